@@ -29,6 +29,10 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        // android.util.Log etc. are no-ops in local unit tests
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -36,8 +36,7 @@ import com.mdp26.mdp20.bluetooth.BluetoothConnection;
 import com.mdp26.mdp20.bluetooth.BluetoothDeviceAdapter;
 import com.mdp26.mdp20.bluetooth.BluetoothInfoReceiver;
 import com.mdp26.mdp20.bluetooth.BluetoothMessage;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageReceiver;
+import com.mdp26.mdp20.bluetooth.MessageBus;
 
 import java.util.ArrayList;
 
@@ -48,7 +47,7 @@ public class BluetoothActivity extends AppCompatActivity {
     private static final int DISCOVERABLE_DURATION = 300; // 5 minutes
     private MyApplication myApp; // my context for "static" vars
     private BroadcastReceiver infoReceiver; // main receiver for all bt intents
-    private BroadcastReceiver msgReceiver; // receive bluetooth messages
+    private MessageBus.Subscription msgSubscription; // receive bluetooth messages
     private BluetoothDeviceAdapter bluetoothDeviceAdapter; // to inflate recycler view
 
     private ActivityResultLauncher<Intent> requestEnableBluetooth; // to enable bluetooth
@@ -141,10 +140,8 @@ public class BluetoothActivity extends AppCompatActivity {
             getApplicationContext().registerReceiver(infoReceiver, intentFilter, RECEIVER_EXPORTED);
         }
 
-        // register message receiver
-        msgReceiver = new BluetoothMessageReceiver(BluetoothMessageParser.ofDefault(), this::onMsgReceived);
-        getApplicationContext().registerReceiver(msgReceiver,
-                new IntentFilter(BluetoothMessageReceiver.ACTION_MSG_READ), RECEIVER_NOT_EXPORTED);
+        // subscribe to bluetooth messages
+        msgSubscription = myApp.messageBus().subscribe(MessageBus.mainThread(), this::onMsgReceived);
 
         LocationManager locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
         boolean isGpsEnabled = locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER);
@@ -288,7 +285,7 @@ public class BluetoothActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         getApplicationContext().unregisterReceiver(infoReceiver);
-        getApplicationContext().unregisterReceiver(msgReceiver);
+        msgSubscription.close();
 
         // btConnectedSfx.release();
     }
@@ -377,12 +374,11 @@ public class BluetoothActivity extends AppCompatActivity {
             if (device != null) {
                 Log.d(TAG, "Connected to " + device.getName() + ": " + connected);
                 if (!connected) {
-                    // Let other device reconnect or initiate reconnection
-                    Toast.makeText(this, "Lost Connection. Retrying in 3s...", Toast.LENGTH_SHORT).show();
-                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                        Log.d(TAG, "Attempting auto-reconnect...");
-                        myApp.btInterface().connectAsClient(device);
-                    }, 3000);
+                    // BluetoothInterface's ReconnectSupervisor retries, even if this activity is not shown,
+                    // unless the link can't be re-established, e.g. one from connectVia
+                    boolean reconnecting = myApp.btInterface().getReconnectSupervisor().isReconnecting();
+                    Toast.makeText(this, reconnecting ? "Lost Connection. Reconnecting..." : "Lost Connection",
+                            Toast.LENGTH_SHORT).show();
                 } else {
                     // connection successful
                     /*
@@ -3,24 +3,24 @@ package com.mdp26.mdp20;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
-import androidx.core.text.HtmlCompat;
 import com.google.android.material.tabs.TabLayout;
 import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import android.content.BroadcastReceiver;
-import android.content.IntentFilter;
 import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.util.Log;
 import android.widget.Button;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 import android.widget.Toast;
+import android.text.Editable;
 import android.text.InputFilter;
+import android.text.TextWatcher;
 import android.text.Spanned;
 import android.widget.EditText;
 import android.content.SharedPreferences;
@@ -28,18 +28,35 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.mdp26.mdp20.bluetooth.BluetoothMessage;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageReceiver;
+import com.mdp26.mdp20.bluetooth.LatencyHistogram;
+import com.mdp26.mdp20.bluetooth.MessageBus;
+import com.mdp26.mdp20.bluetooth.RobotMoveCommand;
 import com.mdp26.mdp20.canvas.CanvasTouchController;
-import com.mdp26.mdp20.canvas.CanvasView;
+import com.mdp26.mdp20.canvas.ArenaView;
+import com.mdp26.mdp20.canvas.Grid;
 import com.mdp26.mdp20.canvas.GridObstacle;
-import com.mdp26.mdp20.canvas.RobotView;
+import com.mdp26.mdp20.log.LogEntry;
+import com.mdp26.mdp20.log.LogKind;
+import com.mdp26.mdp20.log.LogQuery;
+import com.mdp26.mdp20.log.LogSearch;
+import com.mdp26.mdp20.log.MessageLog;
+import com.mdp26.mdp20.log.MessageLogAdapter;
 
 public class CanvasActivity extends AppCompatActivity {
-    private TextView receivedMessages;
     private TextView robotStatusDynamic;
-    private ScrollView scrollReceivedMessages;
+    private RecyclerView logRecyclerView;
+    private MessageLogAdapter logAdapter;
+    private Spinner logKindFilter; // "ALL", then every LogKind in order
+    private EditText logSearchBox;
+    private LogSearch logSearch;
+    private boolean logFiltered = false;
+    private final MessageLog.Listener logFilterRefresh = (evicted, inserted) -> {
+        if (logFiltered) applyLogFilter(); // the whole log follows flushes by itself
+    };
     private Spinner spinnerRobotFacing;
     private EditText inputX;
     private EditText inputY;
@@ -48,9 +65,8 @@ public class CanvasActivity extends AppCompatActivity {
     private Facing facingDirection;
     private final String TAG = "CanvasActivity";
     private MyApplication myApp;
-    private BroadcastReceiver msgReceiver; // receive bluetooth messages
-    private CanvasView canvasView;
-    private RobotView robotView;
+    private MessageBus.Subscription msgSubscription; // receive bluetooth messages
+    private ArenaView arenaView;
     private CanvasTouchController canvasTouchController;
     private MediaPlayer mediaPlayer;
 
@@ -59,28 +75,26 @@ public class CanvasActivity extends AppCompatActivity {
     private ConstraintLayout layoutLogMode;
     private TabLayout tabLayout;
 
-    public void logMessage(String direction, String message, String colorHex) {
-        if (receivedMessages != null) {
-            String htmlText = "<br><font color='" + colorHex + "'><b>[" + direction + "]</b> " + message + "</font>";
-            receivedMessages.append(HtmlCompat.fromHtml(htmlText, HtmlCompat.FROM_HTML_MODE_LEGACY));
-            scrollReceivedMessages.post(() -> scrollReceivedMessages.fullScroll(View.FOCUS_DOWN));
-        }
+    /**
+     * Adds a line to the app-scoped {@link com.mdp26.mdp20.log.MessageLog} shown in the Logs tab.
+     */
+    public void logMessage(LogEntry.Direction direction, LogKind kind, String message) {
+        myApp.messageLog().append(direction, kind, message);
     }
 
-    @Override
-    protected void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (receivedMessages != null) {
-            outState.putCharSequence("LOGS", receivedMessages.getText());
-        }
+    /**
+     * As {@link #logMessage(LogEntry.Direction, LogKind, String)}, for a message about one obstacle.
+     */
+    public void logMessage(LogEntry.Direction direction, LogKind kind, int obstacleId, String message) {
+        myApp.messageLog().append(direction, kind, obstacleId, message);
     }
 
-    @Override
-    protected void onRestoreInstanceState(Bundle savedInstanceState) {
-        super.onRestoreInstanceState(savedInstanceState);
-        if (receivedMessages != null) {
-            receivedMessages.setText(savedInstanceState.getCharSequence("LOGS"));
-        }
+    /**
+     * Sends the grid edits made since the last sync to the RPi, see {@link com.mdp26.mdp20.bluetooth.ObstacleSyncEngine}.
+     */
+    private void syncRemoteMap() {
+        myApp.obstacleSync().sync(myApp.btConnection(), (frame, obstacleId) ->
+                logMessage(LogEntry.Direction.SENT, LogKind.OBSTACLE, obstacleId, frame));
     }
 
     @Override
@@ -99,30 +113,33 @@ public class CanvasActivity extends AppCompatActivity {
 
         // reset robot pos and dir
         myApp.robot().updatePosition(1, 1).updateFacing(Facing.NORTH);
+        myApp.robotTrail().clear();
 
         canvasTouchController = new CanvasTouchController(this, myApp);
 
-        canvasView = findViewById(R.id.canvasView);
-        canvasView.setGrid(myApp.grid());
-        canvasView.setOnTouchListener(canvasTouchController);
-
-        robotView = findViewById(R.id.robotView);
-        robotView.setRobot(myApp.robot());
+        arenaView = findViewById(R.id.arenaView);
+        arenaView.setGrid(myApp.grid());
+        arenaView.setRobot(myApp.robot());
+        arenaView.setTrail(myApp.robotTrail());
+        arenaView.setOnTouchListener(canvasTouchController);
 
         bindUI(); // Calls method to initialize UI components
 
-        msgReceiver = new BluetoothMessageReceiver(BluetoothMessageParser.ofDefault(), this::onMsgReceived);
-        getApplicationContext().registerReceiver(msgReceiver,
-                new IntentFilter(BluetoothMessageReceiver.ACTION_MSG_READ), RECEIVER_NOT_EXPORTED);
+        msgSubscription = myApp.messageBus().subscribeConflated(MessageBus.mainThread(), this::onMsgReceived);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        try {
-            getApplicationContext().unregisterReceiver(msgReceiver);
-        } catch (IllegalArgumentException e) {
-            // Receiver not registered
+        if (msgSubscription != null) {
+            msgSubscription.close();
+        }
+        if (logRecyclerView != null) {
+            logRecyclerView.setAdapter(null); // unregisters from the app-scoped log
+        }
+        if (logSearch != null) {
+            myApp.messageLog().removeListener(logFilterRefresh);
+            logSearch.cancel();
         }
         if (mediaPlayer != null) {
             mediaPlayer.release();
@@ -140,11 +157,16 @@ public class CanvasActivity extends AppCompatActivity {
         inputY.setText(String.valueOf(myApp.robot().getPosition().getYInt()));
         chatInputBox = findViewById(R.id.chatInputBox);
 
-        receivedMessages = findViewById(R.id.ReceiveMsgTextView);
         robotStatusDynamic = findViewById(R.id.robotStatusDynamic);
 
-        // Initialize scroll view
-        scrollReceivedMessages = findViewById(R.id.ReceiveMsgScrollView);
+        // Initialize log list, the log itself is app-scoped and outlives this activity
+        logRecyclerView = findViewById(R.id.logRecyclerView);
+        LinearLayoutManager logLayoutManager = new LinearLayoutManager(this);
+        logLayoutManager.setStackFromEnd(true);
+        logRecyclerView.setLayoutManager(logLayoutManager);
+        logAdapter = new MessageLogAdapter(myApp.messageLog());
+        logRecyclerView.setAdapter(logAdapter);
+        setupLogFilter();
 
         // Initialize spinner
         spinnerRobotFacing = findViewById(R.id.spinnerRobotFacing);
@@ -166,6 +188,15 @@ public class CanvasActivity extends AppCompatActivity {
         Button btnLoadMap = findViewById(R.id.btnLoadMap);
         if (btnLoadMap != null)
             btnLoadMap.setOnClickListener(view -> loadMap());
+        Button btnArenaSize = findViewById(R.id.btnArenaSize);
+        if (btnArenaSize != null) {
+            btnArenaSize.setOnClickListener(view -> showArenaSizeDialog());
+            // debug: long press flips the arena layer cache to compare draw times on a device
+            btnArenaSize.setOnLongClickListener(view -> {
+                toggleArenaLayers();
+                return true;
+            });
+        }
         Button btnClearMap = findViewById(R.id.btnClearMap);
         if (btnClearMap != null)
             btnClearMap.setOnClickListener(view -> {
@@ -173,13 +204,8 @@ public class CanvasActivity extends AppCompatActivity {
                 if (currentStatus.contains("RUNNING") || currentStatus.contains("MOVING")) {
                     Toast.makeText(this, "Cannot clear map while Robot is moving!", Toast.LENGTH_LONG).show();
                 } else {
-                    if (myApp.btConnection() != null) {
-                        String strClear = "CLEAR";
-                        myApp.btConnection().sendMessage(strClear);
-                        logMessage("SENT", strClear, "#00BCD4");
-                    }
                     myApp.grid().clear();
-                    canvasView.invalidate();
+                    syncRemoteMap();
                     Toast.makeText(this, "Map Cleared", Toast.LENGTH_SHORT).show();
                 }
             });
@@ -196,28 +222,28 @@ public class CanvasActivity extends AppCompatActivity {
         findViewById(R.id.btnRobotForward).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("f"); // Forward
+            arenaView.robotCommandSent(RobotMoveCommand.FORWARD);
             myApp.robot().moveForward();
-            robotView.invalidate();
         });
         findViewById(R.id.btnRobotBackward).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("r"); // Reverse
+            arenaView.robotCommandSent(RobotMoveCommand.BACKWARD);
             myApp.robot().moveBackward();
-            robotView.invalidate();
         });
 
         // Spot Rotation Controls
         findViewById(R.id.btnRobotRight).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("tr"); // Rotate Right (Spot)
+            arenaView.robotCommandSent(RobotMoveCommand.ROTATE_RIGHT);
             myApp.robot().rotateRight();
-            robotView.invalidate();
         });
         findViewById(R.id.btnRobotLeft).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("tl"); // Rotate Left (Spot)
+            arenaView.robotCommandSent(RobotMoveCommand.ROTATE_LEFT);
             myApp.robot().rotateLeft();
-            robotView.invalidate();
         });
 
         // Arc Turn Controls
@@ -225,14 +251,14 @@ public class CanvasActivity extends AppCompatActivity {
         findViewById(R.id.btnRobotArcRight).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("fr"); // Forward Right (Arc)
+            arenaView.robotCommandSent(RobotMoveCommand.TURN_RIGHT);
             myApp.robot().turnRight();
-            robotView.invalidate();
         });
         findViewById(R.id.btnRobotArcLeft).setOnClickListener(view -> {
             if (myApp.btConnection() != null)
                 myApp.btConnection().sendMessage("fl"); // Forward Left (Arc)
+            arenaView.robotCommandSent(RobotMoveCommand.TURN_LEFT);
             myApp.robot().turnLeft();
-            robotView.invalidate();
         });
 
         // ================= TABS LOGIC =================
@@ -267,7 +293,7 @@ public class CanvasActivity extends AppCompatActivity {
     private void startRobot() {
         if (myApp.btConnection() != null) {
             myApp.btConnection().sendMessage("BEGIN");
-            logMessage("SENT", "BEGIN", "#00BCD4");
+            logMessage(LogEntry.Direction.SENT, LogKind.COMMAND, "BEGIN");
         }
         if (mediaPlayer != null) {
             mediaPlayer.stop();
@@ -275,10 +301,8 @@ public class CanvasActivity extends AppCompatActivity {
         }
         // mediaPlayer = MediaPlayer.create(this, R.raw.tokyo_drift);
         // mediaPlayer.start();
-        for (GridObstacle obstacle : myApp.grid().getObstacleList()) {
-            obstacle.setTarget(null);
-        }
-        canvasView.invalidate();
+        myApp.grid().clearTargets();
+        myApp.robotTrail().clear(); // trail of this run only
     }
 
     private void showConfirmationDialog() {
@@ -298,7 +322,7 @@ public class CanvasActivity extends AppCompatActivity {
         BluetoothMessage msg = BluetoothMessage.ofObstaclesMessage(this.myApp.grid().getObstacleList());
         String msgStr = msg.getAsJsonMessage().getAsJson();
         myApp.btConnection().sendMessage(msgStr);
-        logMessage("SENT", msgStr, "#00BCD4");
+        logMessage(LogEntry.Direction.SENT, LogKind.OBSTACLE, msgStr);
         Toast.makeText(CanvasActivity.this, "Data sent successfully", Toast.LENGTH_SHORT).show();
         if (mediaPlayer != null) {
             mediaPlayer.stop();
@@ -339,14 +363,10 @@ public class CanvasActivity extends AppCompatActivity {
         try {
             JSONArray array = new JSONArray(savedData);
 
-            // First, tell the RPi to wipe its memory bank
-            if (myApp.btConnection() != null) {
-                String strClear = "CLEAR";
-                myApp.btConnection().sendMessage(strClear);
-                logMessage("SENT", strClear, "#00BCD4");
-            }
             myApp.grid().clear();
 
+            int count = 0;
+            int skipped = 0;
             for (int i = 0; i < array.length(); i++) {
                 JSONObject obj = array.getJSONObject(i);
                 int x = obj.getInt("x");
@@ -354,18 +374,18 @@ public class CanvasActivity extends AppCompatActivity {
                 Facing facing = convertFacing(obj.getString("facing"));
 
                 GridObstacle obs = GridObstacle.of(x, y, facing);
-                myApp.grid().addObstacle(obs);
-
-                // Blast the newly loaded obstacle out to the RPi memory bank
-                if (myApp.btConnection() != null) {
-                    BluetoothMessage msg = BluetoothMessage.ofObstacleEventMessage(obs.getId(), x, y, facing, false);
-                    String msgStr = msg.getAsJsonMessage().getAsJson();
-                    myApp.btConnection().sendMessage(msgStr);
-                    logMessage("SENT", msgStr, "#00BCD4");
+                if (myApp.grid().addObstacle(obs)) {
+                    count++;
+                } else {
+                    skipped++; // e.g. saved on a larger arena
                 }
             }
-            canvasView.invalidate();
-            Toast.makeText(this, "Map Loaded! (" + array.length() + " obstacles)", Toast.LENGTH_SHORT).show();
+            // the RPi's bank is wiped and refilled with the loaded obstacles
+            syncRemoteMap();
+            String msg = "Map Loaded! (" + count + " obstacles)";
+            if (skipped > 0)
+                msg += " Skipped " + skipped + " (outside the arena or occupied).";
+            Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
         } catch (JSONException e) {
             Log.e(TAG, "Failed to load obstacles", e);
             Toast.makeText(this, "Failed to load map.", Toast.LENGTH_SHORT).show();
@@ -402,6 +422,73 @@ public class CanvasActivity extends AppCompatActivity {
         builder.show();
     }
 
+    private void showArenaSizeDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Arena Size");
+
+        final EditText input = new EditText(this);
+        input.setHint("Format: WIDTH HEIGHT (e.g. 20 20)");
+        input.setText(myApp.grid().getWidth() + " " + myApp.grid().getHeight());
+        input.setInputType(android.text.InputType.TYPE_CLASS_TEXT);
+
+        android.widget.FrameLayout container = new android.widget.FrameLayout(this);
+        android.widget.FrameLayout.LayoutParams params = new android.widget.FrameLayout.LayoutParams(
+                android.view.ViewGroup.LayoutParams.MATCH_PARENT,
+                android.view.ViewGroup.LayoutParams.WRAP_CONTENT);
+        int margin = (int) (20 * getResources().getDisplayMetrics().density);
+        params.setMargins(margin, margin, margin, margin);
+        input.setLayoutParams(params);
+        container.addView(input);
+
+        builder.setView(container);
+        builder.setMessage("Clears the map.");
+
+        builder.setPositiveButton("Resize", (dialog, which) -> processArenaSize(input.getText().toString()));
+        builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
+
+        builder.show();
+    }
+
+    private void toggleArenaLayers() {
+        boolean cached = arenaView.isLayersCached();
+        LatencyHistogram.Snapshot times = arenaView.getDrawTimes().getSnapshot();
+        String was = (cached ? "cached" : "redrawn") + " layers: " + times.count() + " frames, p50 "
+                + times.p50() + "us, p99 " + times.p99() + "us";
+        Log.d(TAG, "onDraw times, " + was);
+        arenaView.setLayersCached(!cached); // resets the draw times for the new mode
+        Toast.makeText(this, was + "\nNow " + (cached ? "redrawing" : "caching") + " layers",
+                Toast.LENGTH_LONG).show();
+    }
+
+    private void processArenaSize(String input) {
+        String currentStatus = robotStatusDynamic.getText().toString().toUpperCase();
+        if (currentStatus.contains("RUNNING") || currentStatus.contains("MOVING")) {
+            Toast.makeText(this, "Cannot resize arena while Robot is moving!", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        String[] parts = input.trim().split("[\\sxX,]+");
+        int width, height;
+        try {
+            width = Integer.parseInt(parts[0]);
+            height = parts.length >= 2 ? Integer.parseInt(parts[1]) : width;
+        } catch (NumberFormatException e) {
+            Toast.makeText(this, "Invalid arena size: " + input, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (width < 1 || height < 1 || width > Grid.MAX_SIZE || height > Grid.MAX_SIZE) {
+            Toast.makeText(this, "Arena sides must be 1 to " + Grid.MAX_SIZE, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // the RPi drops the old obstacles too, then the views are bound to the new grid
+        myApp.grid().clear();
+        syncRemoteMap();
+        myApp.setArenaSize(width, height);
+        Toast.makeText(this, "Arena is now " + width + "x" + height, Toast.LENGTH_SHORT).show();
+        recreate();
+    }
+
     private void processFastAdd(String input) {
         String currentStatus = robotStatusDynamic.getText().toString().toUpperCase();
         if (currentStatus.contains("RUNNING") || currentStatus.contains("MOVING")) {
@@ -440,13 +527,6 @@ public class CanvasActivity extends AppCompatActivity {
                             GridObstacle obs = GridObstacle.of(x, y, facing);
                             myApp.grid().addObstacle(obs);
                             count++;
-                            if (myApp.btConnection() != null) {
-                                BluetoothMessage msg = BluetoothMessage.ofObstacleEventMessage(obs.getId(), x, y,
-                                        facing, false);
-                                String msgStr = msg.getAsJsonMessage().getAsJson();
-                                myApp.btConnection().sendMessage(msgStr);
-                                logMessage("SENT", msgStr, "#00BCD4");
-                            }
                         } else {
                             skipped++;
                         }
@@ -456,7 +536,7 @@ public class CanvasActivity extends AppCompatActivity {
                 }
             }
         }
-        canvasView.invalidate();
+        syncRemoteMap();
         String msg = "Added " + count + " obstacles.";
         if (skipped > 0)
             msg += " Skipped " + skipped + " (already occupied).";
@@ -480,6 +560,77 @@ public class CanvasActivity extends AppCompatActivity {
         input.setFilters(new InputFilter[] { minMaxFilter });
     }
 
+    private void setupLogFilter() {
+        logKindFilter = findViewById(R.id.logKindFilter);
+        logSearchBox = findViewById(R.id.logSearchBox);
+        List<String> kinds = new ArrayList<>();
+        kinds.add("ALL");
+        for (LogKind kind : LogKind.values()) kinds.add(kind.name());
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, kinds);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        logKindFilter.setAdapter(adapter);
+        logKindFilter.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                applyLogFilter();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        logSearchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                applyLogFilter();
+            }
+        });
+        logSearch = new LogSearch(myApp.messageLog());
+        myApp.messageLog().addListener(logFilterRefresh); // keeps the filtered list current during a run
+    }
+
+    /**
+     * Shows the log entries of the kind picked and containing the search text, or about one obstacle if the text is
+     * e.g. "#3". The whole log if neither is set.
+     */
+    private void applyLogFilter() {
+        int kindPosition = logKindFilter.getSelectedItemPosition();
+        String text = logSearchBox.getText().toString().trim();
+        logFiltered = kindPosition > 0 || !text.isEmpty();
+        if (!logFiltered) {
+            logSearch.cancel();
+            logAdapter.setFilteredEntries(null);
+            return;
+        }
+        LogQuery query = LogQuery.all();
+        if (kindPosition > 0) query = query.ofKinds(LogKind.values()[kindPosition - 1]);
+        if (text.matches("#\\d{1,9}")) {
+            query = query.forObstacle(Integer.parseInt(text.substring(1)));
+            text = "";
+        }
+        if (text.isEmpty()) {
+            logSearch.cancel();
+            logAdapter.setFilteredEntries(myApp.messageLog().query(query));
+            return;
+        }
+        LogQuery filter = query;
+        logSearch.search(text, (needle, matches) -> {
+            List<LogEntry> shown = new ArrayList<>(matches.size());
+            for (LogEntry entry : matches) {
+                if (filter.matches(entry)) shown.add(entry);
+            }
+            logAdapter.setFilteredEntries(shown);
+        });
+    }
+
     private void setupSpinner() {
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
                 this,
@@ -505,7 +656,7 @@ public class CanvasActivity extends AppCompatActivity {
 
         if (!message.isEmpty()) {
             myApp.btConnection().sendMessage(message); // Send the message via Bluetooth
-            logMessage("SENT", message, "#00BCD4");
+            logMessage(LogEntry.Direction.SENT, LogKind.TEXT, message);
             chatInputBox.setText(""); // Clear the input field after sending
             Toast.makeText(this, "Message sent: " + message, Toast.LENGTH_SHORT).show();
         } else {
@@ -527,17 +678,16 @@ public class CanvasActivity extends AppCompatActivity {
     }
 
     private void initializeRobot(int x, int y, Facing facing) {
-        myApp.robot().updatePosition(x, y);
-        myApp.robot().updateFacing(facing);
+        myApp.robot().updatePose(x, y, facing);
+        myApp.robotTrail().clear();
 
         if (myApp.btConnection() != null) {
             BluetoothMessage msg = BluetoothMessage.ofRobotStateMessage(x, y, facing);
             String msgStr = msg.getAsJsonMessage().getAsJson();
             myApp.btConnection().sendMessage(msgStr);
-            logMessage("SENT", msgStr, "#00BCD4");
+            logMessage(LogEntry.Direction.SENT, LogKind.COMMAND, msgStr);
         }
 
-        robotView.invalidate();
         if (mediaPlayer != null) {
             mediaPlayer.stop();
             mediaPlayer.release();
@@ -564,7 +714,7 @@ public class CanvasActivity extends AppCompatActivity {
     private void onMsgReceived(BluetoothMessage btMsg) {
         if (btMsg instanceof BluetoothMessage.PlainStringMessage m) {
             // show on ui
-            logMessage("RECV", m.rawMsg(), "#4CAF50");
+            logMessage(LogEntry.Direction.RECV, LogKind.of(m), m.rawMsg());
             if (m.rawMsg().equals("[info] Commands and path received Algo API. Robot is ready to move.")) {
                 if (mediaPlayer != null) {
                     mediaPlayer.stop();
@@ -576,7 +726,7 @@ public class CanvasActivity extends AppCompatActivity {
         } else if (btMsg instanceof BluetoothMessage.RobotStatusMessage m) {
             // show on ui
             robotStatusDynamic.setText(m.status().toUpperCase());
-            logMessage("RECV", "[status] " + m.rawMsg(), "#4CAF50");
+            logMessage(LogEntry.Direction.RECV, LogKind.STATUS, "[status] " + m.rawMsg());
             if (m.status().equals("finished")) {
                 if (mediaPlayer != null) {
                     mediaPlayer.stop();
@@ -594,11 +744,9 @@ public class CanvasActivity extends AppCompatActivity {
             myApp.grid().updateObstacleTarget(m.obstacleId(), m.targetId());
             // update facing if provided
             if (m.direction() != -1) {
-                myApp.grid().findObstacleWithId(m.obstacleId())
-                        .ifPresent(obs -> obs.setFacing(Facing.getFacingFromCode(m.direction())));
+                myApp.grid().updateObstacleFacing(m.obstacleId(), Facing.getFacingFromCode(m.direction()));
             }
-            canvasView.invalidate();
-            logMessage("RECV", "[image-rec] " + m.rawMsg(), "#4CAF50");
+            logMessage(LogEntry.Direction.RECV, LogKind.TARGET, m.obstacleId(), "[image-rec] " + m.rawMsg());
         } else if (btMsg instanceof BluetoothMessage.RobotPositionMessage m) {
             // Update Status to MOVING TO (X, Y, DIR)
             String dirStr = switch (m.direction()) {
@@ -610,10 +758,9 @@ public class CanvasActivity extends AppCompatActivity {
             };
             robotStatusDynamic.setText(String.format("MOVING TO (%d, %d, %s)", m.x(), m.y(), dirStr));
 
-            // update robot's pos, then invalidate ui
-            myApp.robot().updatePosition(m.x(), m.y()).updateFacing(Facing.getFacingFromCode(m.direction()));
-            robotView.invalidate();
-            logMessage("RECV", "[location] " + m.rawMsg(), "#4CAF50");
+            // update robot's pos, the ArenaView glides it there from where it is drawn
+            myApp.robot().updatePose(m.x(), m.y(), Facing.getFacingFromCode(m.direction()));
+            logMessage(LogEntry.Direction.RECV, LogKind.POSITION, "[location] " + m.rawMsg());
         }
     }
 
@@ -3,7 +3,6 @@ package com.mdp26.mdp20;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.media.MediaPlayer;
 import android.media.PlaybackParams;
 import android.os.Bundle;
@@ -22,8 +21,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.mdp26.mdp20.bluetooth.BluetoothMessage;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
-import com.mdp26.mdp20.bluetooth.BluetoothMessageReceiver;
+import com.mdp26.mdp20.bluetooth.MessageBus;
 
 /**
  * Hyperspace Launch Activity.
@@ -33,7 +31,7 @@ import com.mdp26.mdp20.bluetooth.BluetoothMessageReceiver;
 public class HyperspaceActivity extends AppCompatActivity {
     private static final String TAG = "HyperspaceActivity";
     private MyApplication myApp;
-    private BluetoothMessageReceiver msgReceiver;
+    private MessageBus.Subscription msgSubscription;
 
     // UI
     private VideoView videoView;
@@ -58,10 +56,8 @@ public class HyperspaceActivity extends AppCompatActivity {
         myApp = (MyApplication) getApplication();
         vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
 
-        // Bluetooth Receiver
-        msgReceiver = new BluetoothMessageReceiver(BluetoothMessageParser.ofDefault(), this::onMsgReceived);
-        getApplicationContext().registerReceiver(msgReceiver,
-                new IntentFilter(BluetoothMessageReceiver.ACTION_MSG_READ), RECEIVER_NOT_EXPORTED);
+        // Bluetooth Messages
+        msgSubscription = myApp.messageBus().subscribe(MessageBus.mainThread(), this::onMsgReceived);
 
         // Setup UI
         videoView = findViewById(R.id.videoView);
@@ -242,7 +238,7 @@ public class HyperspaceActivity extends AppCompatActivity {
 
         if (myApp.btConnection() != null) {
             BluetoothMessage msg = BluetoothMessage.ofRobotStartMessage();
-            myApp.btConnection().sendMessage(msg.getAsJsonMessage().getAsJson());
+            myApp.btConnection().sendMessage(msg.getAsJsonMessage());
             Toast.makeText(this, "JUMP INITIATED", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(this, "Simulation Mode", Toast.LENGTH_SHORT).show();
@@ -274,6 +270,6 @@ public class HyperspaceActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        getApplicationContext().unregisterReceiver(msgReceiver);
+        msgSubscription.close();
     }
 }
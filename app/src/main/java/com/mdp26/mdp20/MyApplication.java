@@ -1,19 +1,37 @@
 package com.mdp26.mdp20;
 
 import android.app.Application;
+import android.util.Log;
 
 import com.mdp26.mdp20.bluetooth.BluetoothConnection;
 import com.mdp26.mdp20.bluetooth.BluetoothInterface;
+import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
+import com.mdp26.mdp20.bluetooth.MessageBus;
+import com.mdp26.mdp20.bluetooth.ObstacleSyncEngine;
 import com.mdp26.mdp20.canvas.Grid;
 import com.mdp26.mdp20.canvas.Robot;
+import com.mdp26.mdp20.canvas.RobotTrail;
+import com.mdp26.mdp20.log.LogEntry;
+import com.mdp26.mdp20.log.LogKind;
+import com.mdp26.mdp20.log.MessageLog;
+import com.mdp26.mdp20.session.SessionJournal;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Application class to hold app-scoped variables, such as the bluetooth connection handler.
  */
 public class MyApplication extends Application {
+    private static final String TAG = "MyApplication";
     private BluetoothInterface bluetoothInterface;
+    private MessageBus messageBus;
     private Grid grid;
+    private ObstacleSyncEngine obstacleSync;
     private Robot robot;
+    private RobotTrail robotTrail;
+    private SessionJournal journal; // null if it could not be opened
+    private MessageLog messageLog;
 
     @Override
     public void onCreate() {
@@ -27,9 +45,44 @@ public class MyApplication extends Application {
                        : androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_NO
         );
         
-        bluetoothInterface = new BluetoothInterface(this);
-        grid = new Grid();
-        robot = Robot.ofDefault();
+        messageBus = new MessageBus(BluetoothMessageParser.ofFast());
+        bluetoothInterface = new BluetoothInterface(this, messageBus);
+        try {
+            journal = SessionJournal.open(new File(getFilesDir(), "journal"));
+            bluetoothInterface.setJournal(journal);
+        } catch (IOException e) {
+            Log.e(TAG, "Session journal disabled", e);
+        }
+        grid = new Grid(arenaSize(prefs, "ArenaWidth"), arenaSize(prefs, "ArenaHeight"));
+        obstacleSync = new ObstacleSyncEngine(grid);
+        robot = Robot.ofDefault().setArena(grid.getWidth(), grid.getHeight());
+        robotTrail = new RobotTrail();
+        robotTrail.follow(robot);
+        messageLog = new MessageLog();
+        messageLog.append(LogEntry.Direction.SYSTEM, LogKind.SYSTEM, "System ready.");
+    }
+
+    // a stored size out of range falls back to the standard arena
+    private static int arenaSize(android.content.SharedPreferences prefs, String key) {
+        int size = prefs.getInt(key, Grid.DEFAULT_SIZE);
+        return size >= 1 && size <= Grid.MAX_SIZE ? size : Grid.DEFAULT_SIZE;
+    }
+
+    /**
+     * Replaces the {@link #grid()} with an empty arena of {@code width} by {@code height} cells, also used on the
+     * next launches. Views bound to the old grid have to be bound again, e.g. by recreating the activity.
+     *
+     * @throws IllegalArgumentException if a side is not between 1 and {@link Grid#MAX_SIZE}
+     */
+    public void setArenaSize(int width, int height) {
+        grid = new Grid(width, height);
+        obstacleSync = new ObstacleSyncEngine(grid);
+        robot.setArena(width, height);
+        getSharedPreferences("AppPrefs", MODE_PRIVATE).edit()
+                .putInt("ArenaWidth", width)
+                .putInt("ArenaHeight", height)
+                .apply();
+        Log.d(TAG, "Arena size set to " + width + "x" + height);
     }
 
     //getters omit "get" to showcase immutability, liken to records
@@ -41,11 +94,47 @@ public class MyApplication extends Application {
         return bluetoothInterface.getBluetoothConnection();
     }
 
+    /**
+     * Subscribe here for inbound bluetooth messages, see {@link MessageBus#subscribe}.
+     */
+    public MessageBus messageBus() {
+        return messageBus;
+    }
+
     public Grid grid() {
         return grid;
     }
 
+    /**
+     * Call {@link ObstacleSyncEngine#sync} after editing the {@link #grid()} to update the RPi.
+     */
+    public ObstacleSyncEngine obstacleSync() {
+        return obstacleSync;
+    }
+
     public Robot robot() {
         return robot;
     }
+
+    /**
+     * Where the {@link #robot()} has been since the last {@link RobotTrail#clear()}. Main thread only.
+     */
+    public RobotTrail robotTrail() {
+        return robotTrail;
+    }
+
+    /**
+     * Messages shown in the Logs tab, kept across activities. Main thread only.
+     */
+    public MessageLog messageLog() {
+        return messageLog;
+    }
+
+    /**
+     * Binary record of every frame sent and received, may be null. Read back with
+     * {@link com.mdp26.mdp20.session.JournalReader}.
+     */
+    public SessionJournal journal() {
+        return journal;
+    }
 }
\ No newline at end of file
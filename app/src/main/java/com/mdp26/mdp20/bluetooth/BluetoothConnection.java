@@ -1,6 +1,5 @@
 package com.mdp26.mdp20.bluetooth;
 
-import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothSocket;
 import android.content.Context;
@@ -10,17 +9,21 @@ import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.mdp26.mdp20.session.SessionJournal;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Class responsible for the thread handling incoming/outgoing messages.
  * <p> Note that the messages are assumed to be strings.
  * <p> Reference: <a href="https://developer.android.com/develop/connectivity/bluetooth/transfer-data">Transferring data over BT</a>
  */
-public class BluetoothConnection {
+public class BluetoothConnection implements MessageSink {
     private static final String TAG = "BluetoothConnection";
 
     public static final int READ_BUF_SIZE = 1024;
@@ -31,66 +34,148 @@ public class BluetoothConnection {
     public final static String EXTRA_CONNECTED = "EXTRA_CONNECTED";
     /** Equivalent to {@link BluetoothDevice#EXTRA_DEVICE } */
     public final static String EXTRA_DEVICE = BluetoothDevice.EXTRA_DEVICE;
+    public final static String ACTION_LINK_DEGRADED = BluetoothConnection.class.getPackageName() + "." + BluetoothConnection.class.getName() + ".ACTION_LINK_DEGRADED";
+    /** Boolean value, true if heartbeats are going unanswered, false once they are answered again */
+    public final static String EXTRA_DEGRADED = "EXTRA_DEGRADED";
 
     private final Context appContext;
+    private final MessageBus messageBus; // inbound frames are parsed and published here
     private final MessageThread messageThread;
+    // outbound frames are encoded here before being copied into the writer's queue
+    private final FrameBuffer sendBuffer = new FrameBuffer();
+    private final Lock sendLock = new ReentrantLock();
+    // what the RPi advertised with CAPS on this connection, none until then
+    private volatile BluetoothMessage.PeerCapabilitiesMessage peerCapabilities = null;
+    private final LinkHeartbeat heartbeat; // started once the RPi advertises PING
+    private volatile Consumer<BluetoothConnection> linkLostListener = null;
+    private volatile SessionJournal journal = null; // records every frame in and out
+
+    public BluetoothConnection(Context context, BluetoothSocket socket, BluetoothDevice device, MessageBus messageBus) {
+        this(context, new RfcommTransport(socket, device), messageBus);
+    }
 
-    public BluetoothConnection(Context context, BluetoothSocket socket, BluetoothDevice device) {
+    /**
+     * @param transport an already connected transport, see {@link Transport}
+     */
+    public BluetoothConnection(Context context, Transport transport, MessageBus messageBus) {
+        this(context, transport, messageBus, null);
+    }
+
+    /**
+     * @param transport an already connected transport, see {@link Transport}
+     * @param outbound  a detached {@link FrameWriter} shared across connections, attached to this transport while
+     *                  it is up, or null for a writer of its own that is stopped with the connection
+     */
+    public BluetoothConnection(Context context, Transport transport, MessageBus messageBus, FrameWriter outbound) {
         this.appContext = context.getApplicationContext(); // just in case
-        messageThread = new MessageThread(socket, device);
+        this.messageBus = messageBus;
+        messageThread = new MessageThread(transport, outbound);
+        heartbeat = new LinkHeartbeat(this);
+        heartbeat.setDegradedListener(this::degradedBroadcast);
     }
 
     public void start() {
         messageThread.start();
+        messageThread.startWriter();
     }
 
     public void cancel() {
+        heartbeat.stop();
         messageThread.cancel();
     }
 
+    /**
+     * The outbound queue, e.g. to change its {@link FrameWriter.OverflowPolicy} or read its {@link FrameWriter.Stats}.
+     */
+    public FrameWriter getWriter() {
+        return messageThread.writer;
+    }
+
+    /**
+     * Called on the I/O thread when the link drops by itself, i.e. not after {@link #cancel()}.
+     */
+    public void setOnLinkLost(Consumer<BluetoothConnection> listener) {
+        this.linkLostListener = listener;
+    }
+
+    /**
+     * Records every frame queued for sending or received from now on, null to stop.
+     */
+    public void setJournal(SessionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Round-trip latency and link health, see {@link LinkHeartbeat}.
+     */
+    public LinkHeartbeat getHeartbeat() {
+        return heartbeat;
+    }
+
+    @Override
+    public boolean supports(String capability) {
+        BluetoothMessage.PeerCapabilitiesMessage caps = peerCapabilities;
+        return caps != null && caps.supports(capability);
+    }
+
     private class MessageThread extends Thread {
         private static final String TAG = "MessageThread";
-        private final BluetoothSocket socket;
+        private final Transport transport;
         private final BluetoothDevice device;
         private final InputStream inStream;
         private final OutputStream outStream;
+        private final FrameWriter writer; // drains outbound frames on its own thread
+        private final boolean sharedWriter; // outlives this connection, detach instead of stop
+        private volatile boolean cancelled = false;
 
         private final byte[] readBuffer;
+        private final FrameAssembler frameAssembler; // carries partial frames across reads
 
         private final Handler handler; // to post to main thread
 
 
-        @SuppressLint("MissingPermission")
-        public MessageThread(BluetoothSocket socket, BluetoothDevice device) {
+        public MessageThread(Transport transport, FrameWriter outbound) {
+            super("MessageThread-" + transport.getName());
             handler = new Handler(Looper.getMainLooper());
 
-            this.socket = socket;
-            this.device = device;
+            this.transport = transport;
+            this.device = transport.getDevice();
             InputStream tmpIn = null;
             OutputStream tmpOut = null;
             try {
-                tmpIn = this.socket.getInputStream();
-                tmpOut = this.socket.getOutputStream();
+                tmpIn = this.transport.getInputStream();
+                tmpOut = this.transport.getOutputStream();
             } catch (IOException e) {
                 e.printStackTrace();
             }
             this.inStream = tmpIn;
             this.outStream = tmpOut;
+            this.sharedWriter = outbound != null;
+            this.writer = sharedWriter ? outbound : new FrameWriter(outStream);
 
             this.readBuffer = new byte[READ_BUF_SIZE];
+            // each complete frame is parsed once, right here on the I/O thread
+            this.frameAssembler = new FrameAssembler(this::onFrame);
 
             handler.post(() -> {
                 connectedBroadcast(true, device);
             });
         }
 
-        @SuppressLint("MissingPermission")
         public void run() {
-            Log.d(TAG, "MessageThread: Running.");
+            Log.d(TAG, "MessageThread: Running on " + transport.getName());
             boolean shldQuit = false;
-            while (socket != null && !shldQuit) {
+            while (inStream != null && !shldQuit) {
                 shldQuit = read();
             }
+            if (!cancelled) {
+                // no more pings into the outage queue, they would go out stale after a reconnect
+                heartbeat.stop();
+                // queue up from here on instead of writing into a dead stream
+                if (sharedWriter) writer.detach(outStream);
+                Consumer<BluetoothConnection> listener = linkLostListener;
+                if (listener != null) listener.accept(BluetoothConnection.this);
+            }
             handler.post(() -> {
                 connectedBroadcast(false, device);
                 cancel(); // close the socket
@@ -100,23 +185,12 @@ public class BluetoothConnection {
         public boolean read() {
             try {
                 int bytes = inStream.read(readBuffer);
-                String inMsg = new String(readBuffer, 0, bytes);
-                Log.d(TAG, "InputStream: " + inMsg);
-
-                StringBuilder strBuilder = new StringBuilder();
-                strBuilder.append(inMsg);
-
-                // find delimiter
-                int delimiterIdx = strBuilder.indexOf("\n");
-                String builtStr = strBuilder.toString();
-                if (delimiterIdx != -1) {
-                    // build string and split by delimiter
-                    String[] messages = builtStr.split("\n");
-                    Log.d(TAG, "Sending broadcast.");
-                    readMsgBroadcast(messages);
-                } else {
-                    readMsgBroadcast(new String[]{builtStr});
+                if (bytes < 0) {
+                    Log.d(TAG, "InputStream: end of stream.");
+                    return true;
                 }
+                // only whole frames come out, a partial line stays in the assembler until the next read
+                frameAssembler.feed(readBuffer, 0, bytes);
             } catch (IOException e) {
                 Log.e(TAG, "Error reading input stream. " + e.getMessage());
                 return true;
@@ -124,36 +198,48 @@ public class BluetoothConnection {
             return false;
         }
 
-        public void write(byte[] bytes) {
-            try {
-                outStream.write(bytes);
-            } catch (IOException e) {
-                Log.e(TAG, "Error writing to output stream. " + e.getMessage());
+        private void onFrame(String frame) {
+            SessionJournal j = journal;
+            if (j != null) j.record(SessionJournal.Direction.IN, frame);
+            if (heartbeat.onFrame(frame)) return; // PONG, only timing matters
+            BluetoothMessage msg = messageBus.publishFrame(frame);
+            if (msg instanceof BluetoothMessage.PeerCapabilitiesMessage caps) {
+                Log.d(TAG, "Peer capabilities: " + caps.capabilities());
+                peerCapabilities = caps;
+                if (caps.supports(LinkHeartbeat.CAPABILITY)) {
+                    heartbeat.start();
+                }
+            }
+        }
+
+        void startWriter() {
+            if (sharedWriter) {
+                writer.attach(outStream); // frames queued during an outage go out first
+            } else {
+                writer.start();
             }
         }
 
+        public boolean write(FrameBuffer frame) {
+            return writer.offer(frame.array(), 0, frame.length());
+        }
+
         public void cancel() {
             Log.d(TAG, "MessageThread: Socket closed.");
+            cancelled = true;
+            if (sharedWriter) {
+                writer.detach(outStream);
+            } else {
+                writer.stop();
+            }
             try {
-                socket.close();
+                transport.close();
             } catch (IOException e) {
-                Log.e(TAG, "Could not close the MessageThread socket", e);
+                Log.e(TAG, "Could not close the MessageThread transport", e);
             }
             this.interrupt();
         }
 
-        // sends the received message and broadcast it on main thread
-        void readMsgBroadcast(String[] messages) {
-            handler.post(() -> {
-                for (String message : messages) {
-                    Intent intent = new Intent(ACTION_MSG_READ)
-                            .setPackage(appContext.getPackageName())
-                            .putExtra(EXTRA_MSG_READ, message);
-                    appContext.sendBroadcast(intent);
-                }
-            });
-        }
-
         void connectedBroadcast(boolean connected, BluetoothDevice device) {
             handler.post(() -> {
                 Intent intent = new Intent(ACTION_CONNECTED)
@@ -165,10 +251,69 @@ public class BluetoothConnection {
         }
     }
 
-    public void sendMessage(String s) {
+    private void degradedBroadcast(boolean degraded) {
+        new Handler(Looper.getMainLooper()).post(() -> {
+            Intent intent = new Intent(ACTION_LINK_DEGRADED)
+                    .setPackage(appContext.getPackageName())
+                    .putExtra(EXTRA_DEGRADED, degraded);
+            appContext.sendBroadcast(intent);
+        });
+    }
+
+    // caller holds sendLock, records the frame in sendBuffer without its delimiter
+    private void journalSent() {
+        SessionJournal j = journal;
+        if (j != null) j.record(SessionJournal.Direction.OUT, sendBuffer.array(), 0, sendBuffer.length() - 1);
+    }
+
+    /**
+     * Queues a message to be written on the writer thread, never blocks unless the policy is {@link FrameWriter.OverflowPolicy#BLOCK}.
+     *
+     * @return false if the outbound queue refused the message
+     */
+    @Override
+    public boolean sendMessage(String s) {
         if (messageThread != null) {
-            Log.d(TAG, "write: Writing to output stream: " + s);
-            messageThread.write((s + "\n").getBytes(StandardCharsets.UTF_8));
+            if (Log.isLoggable(TAG, Log.DEBUG)) { // skips building the text on every D-pad press
+                Log.d(TAG, "write: Queueing for output stream: " + s);
+            }
+            sendLock.lock();
+            try {
+                sendBuffer.reset().put(s).put('\n');
+                if (messageThread.write(sendBuffer)) {
+                    journalSent();
+                    return true;
+                }
+            } finally {
+                sendLock.unlock();
+            }
+            Log.e(TAG, "write: Outbound queue refused message: " + s);
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@code sendMessage(msg.getAsJson())} but encodes straight into the connection's frame buffer,
+     * see {@link JsonMessage#encodeTo}. Does not allocate for the common outbound messages.
+     *
+     * @return false if msg is null or the outbound queue refused the message
+     */
+    @Override
+    public boolean sendMessage(JsonMessage msg) {
+        if (messageThread == null || msg == null) return false;
+        sendLock.lock();
+        try {
+            sendBuffer.reset();
+            msg.encodeTo(sendBuffer);
+            sendBuffer.put('\n');
+            if (messageThread.write(sendBuffer)) {
+                journalSent();
+                return true;
+            }
+        } finally {
+            sendLock.unlock();
         }
+        Log.e(TAG, "write: Outbound queue refused message: " + msg);
+        return false;
     }
 }
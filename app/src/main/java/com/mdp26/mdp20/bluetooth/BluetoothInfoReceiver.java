@@ -23,6 +23,7 @@ public class BluetoothInfoReceiver extends BroadcastReceiver {
             new IntentFilter(BluetoothDevice.ACTION_FOUND), //discovered a device
             new IntentFilter(BluetoothDevice.ACTION_BOND_STATE_CHANGED), // paired/unpaired
             new IntentFilter(BluetoothConnection.ACTION_CONNECTED), // connected/disconnected
+            new IntentFilter(BluetoothConnection.ACTION_LINK_DEGRADED), // heartbeats missed/answered again
     };
 
     public BluetoothInfoReceiver(BiConsumer<Intent, String> consumer) {
@@ -89,6 +90,11 @@ public class BluetoothInfoReceiver extends BroadcastReceiver {
             }
         }
 
+        if (action.equals(BluetoothConnection.ACTION_LINK_DEGRADED)) {
+            boolean degraded = intent.getBooleanExtra(BluetoothConnection.EXTRA_DEGRADED, false);
+            Toast.makeText(context, degraded ? "Link degraded, RPi not responding" : "Link recovered", Toast.LENGTH_SHORT).show();
+        }
+
         consumer.accept(intent, action);
     }
 }
@@ -12,6 +12,8 @@ import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.mdp26.mdp20.session.SessionJournal;
+
 import java.io.IOException;
 import java.util.Set;
 import java.util.UUID;
@@ -31,6 +33,12 @@ public class BluetoothInterface {
 
     private final Context context; //read-only, used by child threads
     private final BluetoothAdapter bluetoothAdapter; // adapter is already synchronized
+    private final MessageBus messageBus; // handed to every connection for inbound messages
+    // outlives connections, so frames sent while the link is down are replayed on the next one
+    private final FrameWriter outbound = new FrameWriter(FrameWriter.DEFAULT_CAPACITY_BYTES,
+            FrameWriter.DEFAULT_CAPACITY_FRAMES, FrameWriter.OverflowPolicy.REJECT);
+    private final ReconnectSupervisor reconnect = new ReconnectSupervisor();
+    private volatile SessionJournal journal = null; // handed to every connection
 
     // note that AcceptThread and ConnectThread are not mutually exclusive,
     // but they share a lock for simplicity.
@@ -42,10 +50,11 @@ public class BluetoothInterface {
     private final Lock threadLock; // to lock acceptThread and connectThread read/write
     private final Lock connectionLock; // to lock btConnection
 
-    public BluetoothInterface(Context context) {
+    public BluetoothInterface(Context context, MessageBus messageBus) {
         BluetoothManager btMgr = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         this.bluetoothAdapter = btMgr.getAdapter();
         this.context = context;
+        this.messageBus = messageBus;
 
         threadLock = new ReentrantLock();
         connectionLock = new ReentrantLock();
@@ -53,6 +62,10 @@ public class BluetoothInterface {
 
     // this method runs when a connection is made
     void onConnected(BluetoothSocket socket, BluetoothDevice device) {
+        onConnected(new RfcommTransport(socket, device));
+    }
+
+    void onConnected(Transport transport) {
         threadLock.lock();
         // close un-needed server sockets and resources
         // but importantly do not close BluetoothSocket!
@@ -70,13 +83,27 @@ public class BluetoothInterface {
         try {
             if (btConnection != null)
                 btConnection.cancel();
-            btConnection = new BluetoothConnection(context, socket, device);
+            btConnection = new BluetoothConnection(context, transport, messageBus, outbound);
+            btConnection.setOnLinkLost(this::onLinkLost);
+            btConnection.setJournal(journal);
             btConnection.start();
         } finally {
             connectionLock.unlock();
         }
 
         threadLock.unlock();
+        reconnect.onConnected();
+    }
+
+    // runs on the lost connection's I/O thread
+    private void onLinkLost(BluetoothConnection lost) {
+        connectionLock.lock();
+        try {
+            if (lost != btConnection) return; // already replaced
+        } finally {
+            connectionLock.unlock();
+        }
+        reconnect.onLinkLost();
     }
 
     public boolean isBluetoothEnabled() {
@@ -90,11 +117,45 @@ public class BluetoothInterface {
         return btConnection;
     }
 
+    /**
+     * Records the frames of this and every later connection, null to stop.
+     */
+    public void setJournal(SessionJournal journal) {
+        connectionLock.lock();
+        try {
+            this.journal = journal;
+            if (btConnection != null) btConnection.setJournal(journal);
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    /**
+     * Frames sent on any connection go through this queue, it keeps them while the link is down.
+     */
+    public FrameWriter getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * Reconnects after the link drops, also has the time-to-reconnect metrics.
+     */
+    public ReconnectSupervisor getReconnectSupervisor() {
+        return reconnect;
+    }
+
     /**
      * I.e. starts the {@link AcceptThread} (and stops the {@link ConnectThread})
      * <p> Make sure the device is discoverable in the first place for unpaired connection.
+     * If the link later drops, the interface listens again so the RPi can reconnect.
      */
     public void acceptIncomingConnection() {
+        reconnect.stop();
+        reconnect.setTarget(this::startAccept);
+        startAccept();
+    }
+
+    private void startAccept() {
         threadLock.lock();
         try {
             if (acceptThread != null) {
@@ -109,20 +170,70 @@ public class BluetoothInterface {
 
     /**
      * I.e. starts the {@link ConnectThread} (and stops the {@link AcceptThread})
+     * <p> If the link later drops, the same device is retried by the {@link ReconnectSupervisor}.
      */
     public void connectAsClient(BluetoothDevice btDevice) {
+        reconnect.stop();
+        reconnect.setTarget(() -> startConnect(btDevice, true));
+        startConnect(btDevice, false);
+    }
+
+    // a supervised attempt reports failure to the supervisor instead of showing a toast
+    private void startConnect(BluetoothDevice btDevice, boolean supervised) {
         threadLock.lock();
         try {
             if (connectThread != null) {
                 connectThread.cancel();
             }
-            connectThread = new ConnectThread(btDevice);
+            connectThread = new ConnectThread(btDevice, supervised);
             connectThread.start();
         } finally {
             threadLock.unlock();
         }
     }
 
+    /**
+     * Uses an already connected {@link Transport} (e.g. {@link TcpTransport} or {@link LoopbackTransport})
+     * in place of a bluetooth socket. Stops the {@link AcceptThread} and {@link ConnectThread}.
+     * <p> Not reconnected if it drops, there is no way to recreate the transport.
+     */
+    public void connectVia(Transport transport) {
+        reconnect.stop();
+        reconnect.setTarget(null);
+        onConnected(transport);
+    }
+
+    /**
+     * Connects to a TCP stand-in for the RPi on a background thread, see {@link TcpTransport}.
+     * <p> If the link later drops, the same address is retried by the {@link ReconnectSupervisor}.
+     */
+    public void connectTcp(String host, int port) {
+        reconnect.stop();
+        reconnect.setTarget(() -> startTcpConnect(host, port, true));
+        startTcpConnect(host, port, false);
+    }
+
+    private void startTcpConnect(String host, int port, boolean supervised) {
+        new Thread(() -> {
+            try {
+                onConnected(TcpTransport.connect(host, port));
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to connect to " + host + ":" + port, e);
+                onConnectFailed(supervised);
+            }
+        }, "TcpConnectThread").start();
+    }
+
+    private void onConnectFailed(boolean supervised) {
+        if (supervised) {
+            reconnect.onAttemptFailed();
+            return;
+        }
+        new Handler(Looper.getMainLooper()).post(() ->
+                Toast.makeText(context, "Connection failed", Toast.LENGTH_SHORT).show()
+        );
+    }
+
     /**
      * Scans for bluetooth devices
      */
@@ -146,6 +257,7 @@ public class BluetoothInterface {
     // code from android docs
     private class AcceptThread extends Thread {
         private final BluetoothServerSocket serverSocket;
+        private volatile boolean cancelled = false; // replaced or connected, not a failed attempt
 
         @SuppressLint("MissingPermission")
         public AcceptThread() {
@@ -164,12 +276,17 @@ public class BluetoothInterface {
         @Override
         public void run() {
             Log.d(TAG, "AcceptThread: Running.");
+            if (serverSocket == null) {
+                reconnect.onAttemptFailed(); // listen again later if this was a retry
+                return;
+            }
             BluetoothSocket socket = null;
             while (true) {
                 try {
                     socket = serverSocket.accept();
                 } catch (IOException e) {
                     Log.e(TAG, "Socket's accept() method failed", e);
+                    if (!cancelled) reconnect.onAttemptFailed();
                     break;
                 }
 
@@ -189,8 +306,9 @@ public class BluetoothInterface {
 
         // Closes the connect socket and causes the thread to finish.
         public void cancel() {
+            cancelled = true;
             try {
-                serverSocket.close();
+                if (serverSocket != null) serverSocket.close();
                 Log.d(TAG, "AcceptThread: Socket closed.");
             } catch (IOException e) {
                 Log.e(TAG, "Could not close the AcceptThread socket", e);
@@ -202,11 +320,13 @@ public class BluetoothInterface {
     private class ConnectThread extends Thread {
         private final BluetoothSocket socket;
         private final BluetoothDevice device;
+        private final boolean supervised; // started by the ReconnectSupervisor
 
         @SuppressLint("MissingPermission")
-        public ConnectThread(BluetoothDevice device) {
+        public ConnectThread(BluetoothDevice device, boolean supervised) {
             BluetoothSocket tmp = null;
             this.device = device;
+            this.supervised = supervised;
 
             try {
                 tmp = device.createRfcommSocketToServiceRecord(BT_UUID);
@@ -233,9 +353,7 @@ public class BluetoothInterface {
                 // unable to connect
                 try {
                     Log.e(TAG, "Unable to connect");
-                    new Handler(Looper.getMainLooper()).post(() ->
-                            Toast.makeText(context, "Connection failed", Toast.LENGTH_SHORT).show()
-                    );
+                    onConnectFailed(supervised);
                     socket.close();
                 } catch (IOException closeException) {
                     Log.e(TAG, "Could not close the client socket", closeException);
@@ -18,7 +18,7 @@ import java.util.Locale;
  * <p> Essentially wraps around a raw message string and provides the parsed info as getters.
  * <p> Use {@code ofXXX()} to create the subclassed record.
  */
-public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage, BluetoothMessage.ObstaclesMessage, BluetoothMessage.PlainStringMessage, BluetoothMessage.RobotMoveMessage, BluetoothMessage.RobotPositionMessage, BluetoothMessage.RobotStartMessage, BluetoothMessage.RobotStatusMessage, BluetoothMessage.TargetFoundMessage, BluetoothMessage.RobotStateMessage, BluetoothMessage.ObstacleEventMessage {
+public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage, BluetoothMessage.ObstaclesMessage, BluetoothMessage.PlainStringMessage, BluetoothMessage.RobotMoveMessage, BluetoothMessage.RobotPositionMessage, BluetoothMessage.RobotStartMessage, BluetoothMessage.RobotStatusMessage, BluetoothMessage.TargetFoundMessage, BluetoothMessage.RobotStateMessage, BluetoothMessage.ObstacleEventMessage, BluetoothMessage.ObstacleBatchMessage, BluetoothMessage.PeerCapabilitiesMessage {
     // this class uses the sealed..permit feature as a usage example, not strictly necessary
 
     public static final String TAG = "BluetoothMessage";
@@ -80,6 +80,11 @@ public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage,
         public String getAsJson() {
             return getFormattedStr("manual", cmd.value());
         }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            JsonMessage.encodeFormattedStr(buf, "manual", cmd.value());
+        }
     }
     public static BluetoothMessage ofRobotMoveMessage(RobotMoveCommand cmd) {
         return new RobotMoveMessage(cmd);
@@ -89,6 +94,11 @@ public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage,
         public String getAsJson() {
             return getFormattedStr("control", "start");
         }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            JsonMessage.encodeFormattedStr(buf, "control", "start");
+        }
     }
     public static BluetoothMessage ofRobotStartMessage() {
         return new RobotStartMessage();
@@ -107,6 +117,11 @@ public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage,
             int valY = (y - 1) * 5;
             return String.format(Locale.ENGLISH, "ROBOT,%d,%d,%s", valX, valY, direction.name());
         }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            buf.put("ROBOT,").putInt((x - 2) * 5).put(',').putInt((y - 1) * 5).put(',').put(direction.name());
+        }
     }
     public static BluetoothMessage ofRobotStateMessage(int x, int y, Facing direction) {
         return new RobotStateMessage(x, y, direction);
@@ -132,11 +147,69 @@ public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage,
                 return String.format(Locale.ENGLISH, "OBSTACLE,%d,%d,%d,%s", id, cmX, cmY, face.name());
             }
         }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            buf.put("OBSTACLE,");
+            encodeFieldsTo(buf);
+        }
+
+        // <id>,<x>,<y>,<FACE>, shared with ObstacleBatchMessage
+        void encodeFieldsTo(FrameBuffer buf) {
+            buf.putInt(id).put(',').putInt(x * 10).put(',').putInt(y * 10).put(',');
+            if (isRemove) {
+                buf.put("-1");
+            } else {
+                buf.put(face.name());
+            }
+        }
     }
     public static BluetoothMessage ofObstacleEventMessage(int id, int x, int y, Facing face, boolean isRemove) {
         return new ObstacleEventMessage(id, x, y, face, isRemove);
     }
 
+    /**
+     * Sent to RPI. Several obstacle events in one frame, only if the RPi advertised {@link #CAPABILITY}.
+     * Format: OBSTACLES|<id>,<x>,<y>,<FACE>|<id>,<x>,<y>,<FACE>|...
+     * Each entry has the same fields and units as {@link ObstacleEventMessage}, FACE is -1 for removal.
+     */
+    public record ObstacleBatchMessage(List<ObstacleEventMessage> obstacles) implements BluetoothMessage, JsonMessage {
+        public static final String CAPABILITY = "OBSTACLES";
+
+        @Override
+        public String getAsJson() {
+            FrameBuffer buf = new FrameBuffer();
+            encodeTo(buf);
+            return buf.toString();
+        }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            buf.put(CAPABILITY);
+            for (ObstacleEventMessage obstacle : obstacles) {
+                buf.put('|');
+                obstacle.encodeFieldsTo(buf);
+            }
+        }
+    }
+    public static BluetoothMessage ofObstacleBatchMessage(List<ObstacleEventMessage> obstacles) {
+        return new ObstacleBatchMessage(obstacles);
+    }
+
+    /**
+     * Received from RPI. Optional protocol extensions the RPi understands, e.g. {@link ObstacleBatchMessage#CAPABILITY}.
+     * Format: CAPS,<capability>,<capability>...
+     * Capabilities are trimmed and upper-cased, empty ones are skipped.
+     */
+    public record PeerCapabilitiesMessage(String rawMsg, List<String> capabilities) implements BluetoothMessage {
+        public boolean supports(String capability) {
+            return capabilities.contains(capability);
+        }
+    }
+    public static BluetoothMessage ofPeerCapabilitiesMessage(String rawMsg, List<String> capabilities) {
+        return new PeerCapabilitiesMessage(rawMsg, capabilities);
+    }
+
     /**
      * Sent to RPI. Task Initiation.
      * Format: ALG|<x>,<y>,<dir>,<id>|...
@@ -148,6 +221,11 @@ public sealed interface BluetoothMessage permits BluetoothMessage.CustomMessage,
             // When we click "Send Data", we just send "PATH" to trigger the RPi to forward its bank to the PC.
             return "PATH";
         }
+
+        @Override
+        public void encodeTo(FrameBuffer buf) {
+            buf.put("PATH");
+        }
     }
     public static BluetoothMessage ofObstaclesMessage(List<GridObstacle> obstacleList) {
         return new ObstaclesMessage(obstacleList);
@@ -2,10 +2,14 @@ package com.mdp26.mdp20.bluetooth;
 
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.function.Function;
 
 /**
- * Interface for a message parser. Has a default implementation {@link #ofDefault}.
+ * Interface for a message parser. Has a default implementation {@link #ofDefault}
+ * and an allocation-free equivalent {@link #ofFast}.
  */
 public interface BluetoothMessageParser extends Function<String, BluetoothMessage> {
 
@@ -21,6 +25,7 @@ public interface BluetoothMessageParser extends Function<String, BluetoothMessag
      *     <li>status</li>
      *     <li>location</li>
      *     <li>image-rec</li>
+     *     <li>caps</li>
      * </ul>
      */
     BluetoothMessageParser DEFAULT = msg -> {
@@ -63,6 +68,15 @@ public interface BluetoothMessageParser extends Function<String, BluetoothMessag
                          ret = BluetoothMessage.ofPlainStringMessage(msg);
                     }
                 }
+                case "CAPS" -> {
+                    // CAPS,<capability>,...
+                    List<String> capabilities = new ArrayList<>();
+                    for (int i = 1; i < params.length; i++) {
+                        String capability = params[i].trim().toUpperCase(Locale.ENGLISH);
+                        if (!capability.isEmpty()) capabilities.add(capability);
+                    }
+                    ret = BluetoothMessage.ofPeerCapabilitiesMessage(msg, List.copyOf(capabilities));
+                }
                 case "TARGET", "IMAGE-REC" -> {
                     // TARGET,<ObstacleID>,<TargetID>
                     // TARGET,<ObstacleID>,<TargetID>,<Direction> (Optional)
@@ -88,6 +102,12 @@ public interface BluetoothMessageParser extends Function<String, BluetoothMessag
         return BluetoothMessage.ofPlainStringMessage(msg);
     };
 
+    /**
+     * Same format and results as {@link #DEFAULT}, parsed in a single pass over the frame's chars with no
+     * intermediate strings or exceptions. Meant for the high-rate ROBOT stream.
+     */
+    BluetoothMessageParser FAST = new FastMessageParser();
+
     public static int[] tryGetIntParams(String[] params, int expectedSize) {
         int[] ret = new int[expectedSize];
         // if input not valid just return empty list
@@ -111,6 +131,10 @@ public interface BluetoothMessageParser extends Function<String, BluetoothMessag
         return DEFAULT;
     }
 
+    public static BluetoothMessageParser ofFast() {
+        return FAST;
+    }
+
     private static int parseDirection(String dStr) {
         return switch(dStr.toUpperCase()) {
             case "N", "NORTH" -> 1;
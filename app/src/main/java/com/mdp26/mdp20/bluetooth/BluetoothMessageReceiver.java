@@ -11,6 +11,8 @@ import java.util.function.Consumer;
 /**
  * Class used to listen to bluetooth messages "globally".
  * <p> The receiver should be registered on the application's context.
+ * <p> Only receives anything if a {@link LegacyBroadcastAdapter} is installed on the {@link MessageBus},
+ * new code should use {@link MessageBus#subscribe} instead.
  */
 public class BluetoothMessageReceiver extends BroadcastReceiver {
 
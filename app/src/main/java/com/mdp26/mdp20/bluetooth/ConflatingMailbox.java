@@ -0,0 +1,151 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Mailbox between the I/O thread and a slow consumer, see {@link MessageBus#subscribeConflated}.
+ * <p> Robot position and status frames are last-value-wins: while one is still waiting to be delivered, a newer one
+ * of the same kind replaces it, so the UI only ever draws the latest known state instead of working through a backlog.
+ * Everything else (targets, info, errors, ...) is delivered in order and never dropped.
+ * <p> At most one drain is queued on the executor at a time, however fast frames arrive.
+ */
+public class ConflatingMailbox {
+    private final Executor executor;
+    private final Consumer<BluetoothMessage> consumer;
+
+    // guarded by lock
+    private List<Slot> queue = new ArrayList<>();
+    private final Map<Class<?>, Slot> pendingByKey = new HashMap<>();
+    private boolean drainScheduled = false;
+    private long offered = 0, delivered = 0, collapsed = 0;
+    private final Lock lock = new ReentrantLock();
+
+    private static final class Slot {
+        BluetoothMessage msg; // null if superseded
+
+        Slot(BluetoothMessage msg) {
+            this.msg = msg;
+        }
+    }
+
+    /**
+     * @param executor where {@code consumer} runs, should run tasks one at a time, e.g. {@link MessageBus#mainThread()}
+     */
+    public ConflatingMailbox(Executor executor, Consumer<BluetoothMessage> consumer) {
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Frames with the same non-null key replace each other while undelivered.
+     *
+     * @return null if the message must always be delivered
+     */
+    static Class<?> conflationKey(BluetoothMessage msg) {
+        if (msg instanceof BluetoothMessage.RobotPositionMessage
+                || msg instanceof BluetoothMessage.RobotStatusMessage) {
+            return msg.getClass();
+        }
+        return null;
+    }
+
+    /**
+     * Called on the publishing thread, never blocks on the consumer.
+     */
+    public void offer(BluetoothMessage msg) {
+        Class<?> key = conflationKey(msg);
+        boolean schedule;
+        lock.lock();
+        try {
+            offered++;
+            Slot previous = key == null ? null : pendingByKey.get(key);
+            if (previous != null && !queue.isEmpty() && queue.get(queue.size() - 1) == previous) {
+                // newest in the queue anyway, replace in place
+                previous.msg = msg;
+                collapsed++;
+            } else {
+                if (previous != null) {
+                    // keep its place empty so the newer value comes after whatever arrived in between
+                    previous.msg = null;
+                    collapsed++;
+                }
+                Slot slot = new Slot(msg);
+                queue.add(slot);
+                if (key != null) pendingByKey.put(key, slot);
+            }
+            schedule = !drainScheduled;
+            drainScheduled = true;
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        List<Slot> batch;
+        lock.lock();
+        try {
+            batch = queue;
+            queue = new ArrayList<>();
+            pendingByKey.clear();
+            drainScheduled = false; // later offers schedule another drain
+        } finally {
+            lock.unlock();
+        }
+        int n = 0;
+        try {
+            for (Slot slot : batch) {
+                if (slot.msg != null) {
+                    n++;
+                    consumer.accept(slot.msg);
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                delivered += n;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public long getOfferedCount() {
+        lock.lock();
+        try {
+            return offered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDeliveredCount() {
+        lock.lock();
+        try {
+            return delivered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frames replaced by a newer one of the same kind before they were delivered.
+     */
+    public long getCollapsedCount() {
+        lock.lock();
+        try {
+            return collapsed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
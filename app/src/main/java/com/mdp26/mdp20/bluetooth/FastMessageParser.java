@@ -0,0 +1,197 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.util.Log;
+
+/**
+ * Single-pass implementation of {@link BluetoothMessageParser#DEFAULT}, exposed as {@link BluetoothMessageParser#FAST}.
+ * <p> Fields are located with {@code indexOf} and read in place: the command is matched case-insensitively
+ * without an upper-cased copy, integers are parsed without exceptions and direction words go through a switch
+ * on characters. For ROBOT/LOCATION and TARGET/IMAGE-REC the only allocation is the returned record.
+ * <p> Results are identical to {@code DEFAULT} for every frame, including the malformed ones.
+ */
+final class FastMessageParser implements BluetoothMessageParser {
+    // returned by parseInt when the range is not a valid int, as Integer.parseInt would throw
+    private static final long NOT_AN_INT = Long.MIN_VALUE;
+
+    @Override
+    public BluetoothMessage apply(String msg) {
+        char sep = msg.indexOf(',') >= 0 ? ',' : ';';
+        // same number of fields as msg.split(sep), i.e. trailing empty fields dropped
+        int fieldCount = fieldCount(msg, sep);
+        if (fieldCount < 2) {
+            return BluetoothMessage.ofPlainStringMessage(msg);
+        }
+
+        // separators may run past fieldCount when there are trailing empty fields
+        int s1 = msg.indexOf(sep);
+        int s2 = msg.indexOf(sep, s1 + 1);
+        int s3 = s2 >= 0 ? msg.indexOf(sep, s2 + 1) : -1;
+        int s4 = s3 >= 0 ? msg.indexOf(sep, s3 + 1) : -1;
+        int end1 = s2 >= 0 ? s2 : msg.length();
+        int end2 = s3 >= 0 ? s3 : msg.length();
+        int end3 = s4 >= 0 ? s4 : msg.length();
+
+        int cmdStart = trimStart(msg, 0, s1);
+        int cmdEnd = trimEnd(msg, cmdStart, s1);
+        int cmdLen = cmdEnd - cmdStart;
+        if (cmdLen == 0) {
+            return BluetoothMessage.ofPlainStringMessage(msg);
+        }
+
+        switch (Character.toUpperCase(msg.charAt(cmdStart))) {
+            case 'I' -> {
+                if (is(msg, cmdStart, cmdLen, "INFO")) {
+                    return BluetoothMessage.ofPlainStringMessage("[info] " + msg.substring(s1 + 1, end1));
+                }
+                if (is(msg, cmdStart, cmdLen, "IMAGE-REC")) {
+                    return parseTarget(msg, fieldCount, s1, end1, s2, end2, s3, end3);
+                }
+            }
+            case 'C' -> {
+                if (is(msg, cmdStart, cmdLen, "CAPS")) {
+                    // once per connection, not worth a hand-rolled path
+                    return DEFAULT.apply(msg);
+                }
+            }
+            case 'E' -> {
+                if (is(msg, cmdStart, cmdLen, "ERROR")) {
+                    return BluetoothMessage.ofPlainStringMessage("[error] " + msg.substring(s1 + 1, end1));
+                }
+            }
+            case 'M' -> {
+                if (is(msg, cmdStart, cmdLen, "MODE")) {
+                    return BluetoothMessage.ofPlainStringMessage("[mode] " + msg.substring(s1 + 1, end1));
+                }
+            }
+            case 'S' -> {
+                if (is(msg, cmdStart, cmdLen, "STATUS")) {
+                    return BluetoothMessage.ofRobotStatusMessage(msg, msg.substring(s1 + 1, end1));
+                }
+            }
+            case 'R', 'L' -> {
+                if (is(msg, cmdStart, cmdLen, "ROBOT") || is(msg, cmdStart, cmdLen, "LOCATION")) {
+                    return parseRobot(msg, fieldCount, s1, end1, s2, end2, s3, end3);
+                }
+            }
+            case 'T' -> {
+                if (is(msg, cmdStart, cmdLen, "TARGET")) {
+                    return parseTarget(msg, fieldCount, s1, end1, s2, end2, s3, end3);
+                }
+            }
+        }
+        return BluetoothMessage.ofPlainStringMessage(msg);
+    }
+
+    // ROBOT,<x>,<y>[,<direction>]
+    private static BluetoothMessage parseRobot(String msg, int fieldCount,
+                                               int s1, int end1, int s2, int end2, int s3, int end3) {
+        if (fieldCount < 3) {
+            return BluetoothMessage.ofPlainStringMessage(msg);
+        }
+        long x = parseInt(msg, s1 + 1, end1);
+        long y = parseInt(msg, s2 + 1, end2);
+        if (x == NOT_AN_INT || y == NOT_AN_INT) {
+            return BluetoothMessage.ofPlainStringMessage(msg);
+        }
+        int dir = fieldCount >= 4 ? parseDirectionField(msg, s3 + 1, end3) : 1; // default North
+        return BluetoothMessage.ofRobotPositionMessage(msg, (int) x, (int) y, dir);
+    }
+
+    // TARGET,<ObstacleID>,<TargetID>[,<Direction>]
+    private static BluetoothMessage parseTarget(String msg, int fieldCount,
+                                                int s1, int end1, int s2, int end2, int s3, int end3) {
+        int obstacleId = 0, targetId = 0;
+        if (fieldCount <= 2) {
+            Log.e(TAG, String.format("Error in params, expected %d but size was %d", 2, fieldCount));
+        } else {
+            obstacleId = intOrZero(msg, s1 + 1, end1);
+            targetId = intOrZero(msg, s2 + 1, end2);
+        }
+        if (fieldCount > 3) {
+            return BluetoothMessage.ofTargetFoundMessage(msg, obstacleId, targetId, parseDirectionField(msg, s3 + 1, end3));
+        }
+        return BluetoothMessage.ofTargetFoundMessage(msg, obstacleId, targetId);
+    }
+
+    private static int fieldCount(String msg, char sep) {
+        int last = msg.length() - 1;
+        while (last >= 0 && msg.charAt(last) == sep) last--;
+        if (last < 0) {
+            // "" splits to one empty field, ",,," to none; either way too short to be a command
+            return msg.isEmpty() ? 1 : 0;
+        }
+        int count = 1;
+        for (int i = 0; i < last; i++) {
+            if (msg.charAt(i) == sep) count++;
+        }
+        return count;
+    }
+
+    private static boolean is(String msg, int start, int len, String command) {
+        return len == command.length() && msg.regionMatches(true, start, command, 0, len);
+    }
+
+    // same whitespace rule as String.trim()
+    private static int trimStart(String s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static int trimEnd(String s, int start, int end) {
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * {@link Integer#parseInt} of the trimmed range, without the exception.
+     *
+     * @return the value, or {@link #NOT_AN_INT} where parseInt would throw
+     */
+    static long parseInt(String s, int start, int end) {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        if (start == end) return NOT_AN_INT;
+        boolean negative = false;
+        char first = s.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) return NOT_AN_INT;
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) return NOT_AN_INT;
+            value = value * 10 + digit;
+            if (value > limit) return NOT_AN_INT;
+        }
+        return negative ? -value : value;
+    }
+
+    private static int intOrZero(String msg, int start, int end) {
+        long value = parseInt(msg, start, end);
+        if (value == NOT_AN_INT) {
+            Log.e(TAG, "Error in parsing " + msg.substring(start, end));
+            return 0; // put a safe non-crash value
+        }
+        return (int) value;
+    }
+
+    // numeric direction, else N/E/S/W or the full word, else North
+    private static int parseDirectionField(String s, int start, int end) {
+        long numeric = parseInt(s, start, end);
+        if (numeric != NOT_AN_INT) return (int) numeric;
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        int len = end - start;
+        if (len == 0) return 1;
+        char c = Character.toUpperCase(s.charAt(start));
+        return switch (c) {
+            case 'N' -> 1; // N, NORTH and anything unknown are all North
+            case 'E' -> (len == 1 || is(s, start, len, "EAST")) ? 2 : 1;
+            case 'S' -> (len == 1 || is(s, start, len, "SOUTH")) ? 3 : 1;
+            case 'W' -> (len == 1 || is(s, start, len, "WEST")) ? 4 : 1;
+            default -> 1;
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Reassembles newline-delimited frames out of the raw chunks returned by {@link java.io.InputStream#read(byte[])}.
+ * <p> Bytes are copied into a fixed ring buffer, so a frame that spans several reads is carried over
+ * until its delimiter arrives. Delimiters are searched on the raw bytes ({@code '\n'} never appears inside a
+ * multi-byte UTF-8 sequence), and a completed frame is decoded with one reused {@link CharsetDecoder}, which
+ * also stitches together characters that are split across the end of the ring.
+ * <p> The only allocation per frame is the resulting {@link String}. Not thread safe, meant to be owned by the read thread.
+ */
+public class FrameAssembler {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final byte DELIMITER = '\n';
+
+    private final byte[] ring;
+    private final int mask;
+    private final ByteBuffer ringView; // wraps ring once, position/limit are moved around instead of re-wrapping
+    private final CharsetDecoder decoder;
+    private final byte[] stitch = new byte[8]; // holds a code point that straddles the end of the ring
+    private final ByteBuffer stitchView = ByteBuffer.wrap(stitch);
+    private CharBuffer charBuf;
+    private final Consumer<String> frameConsumer;
+
+    private long head = 0; // start of the pending (incomplete) frame
+    private long scan = 0; // next byte to check for a delimiter
+    private long tail = 0; // next byte to be written
+
+    private long framesOut = 0;
+    private long oversizedFrames = 0;
+
+    /**
+     * @param capacity ring size in bytes, rounded up to a power of two. Also the longest frame that is kept intact.
+     * @param frameConsumer called once per complete (non-empty) frame, without the delimiter
+     */
+    public FrameAssembler(int capacity, Consumer<String> frameConsumer) {
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+        this.ringView = ByteBuffer.wrap(ring);
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.charBuf = CharBuffer.allocate(256);
+        this.frameConsumer = frameConsumer;
+    }
+
+    public FrameAssembler(Consumer<String> frameConsumer) {
+        this(DEFAULT_CAPACITY, frameConsumer);
+    }
+
+    /**
+     * Feeds a chunk of raw bytes, emitting every frame that is completed by it.
+     *
+     * @return number of frames emitted
+     */
+    public int feed(byte[] buf, int off, int len) {
+        int emitted = 0;
+        while (len > 0) {
+            int space = ring.length - (int) (tail - head);
+            if (space == 0) {
+                // a single frame is larger than the ring: pass it on as is rather than silently lose it
+                oversizedFrames++;
+                emitted += emit(head, tail);
+                head = scan = tail;
+                continue;
+            }
+            int n = Math.min(len, space);
+            int start = (int) (tail & mask);
+            int firstPart = Math.min(n, ring.length - start);
+            System.arraycopy(buf, off, ring, start, firstPart);
+            System.arraycopy(buf, off + firstPart, ring, 0, n - firstPart);
+            tail += n;
+            off += n;
+            len -= n;
+
+            for (; scan < tail; scan++) {
+                if (ring[(int) (scan & mask)] == DELIMITER) {
+                    emitted += emit(head, scan);
+                    head = scan + 1;
+                }
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * Drops any partial frame, e.g. after the connection has been reset.
+     */
+    public void reset() {
+        head = scan = tail;
+        decoder.reset();
+    }
+
+    /**
+     * @return number of bytes held for a frame whose delimiter has not arrived yet
+     */
+    public int pendingBytes() {
+        return (int) (tail - head);
+    }
+
+    public long getFrameCount() {
+        return framesOut;
+    }
+
+    /**
+     * @return number of times the ring filled up without a delimiter and was flushed as a frame
+     */
+    public long getOversizedFrameCount() {
+        return oversizedFrames;
+    }
+
+    // decodes ring[from, to) and hands it on, returns 1 if a frame was emitted
+    private int emit(long from, long to) {
+        int len = (int) (to - from);
+        // tolerate CRLF line endings
+        if (len > 0 && ring[(int) ((to - 1) & mask)] == '\r') {
+            len--;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (charBuf.capacity() < len) {
+            charBuf = CharBuffer.allocate(Integer.highestOneBit(len) << 1);
+        }
+        charBuf.clear();
+        decoder.reset();
+
+        int start = (int) (from & mask);
+        int firstPart = Math.min(len, ring.length - start);
+        // first segment is decoded with endOfInput=false, so a character split by the wrap is kept for the second
+        ringView.limit(start + firstPart).position(start);
+        decoder.decode(ringView, charBuf, false);
+        int leftover = ringView.remaining();
+        if (firstPart < len) {
+            decodeAcrossWrap(start + firstPart - leftover, leftover, len - firstPart);
+        } else {
+            decoder.decode(ringView, charBuf, true);
+        }
+        decoder.flush(charBuf);
+        charBuf.flip();
+
+        framesOut++;
+        frameConsumer.accept(charBuf.toString());
+        return 1;
+    }
+
+    // decodes the `leftover` undecoded bytes at the end of the ring, followed by `rest` bytes from the start of the ring
+    private void decodeAcrossWrap(int leftoverStart, int leftover, int rest) {
+        int consumed = 0; // bytes consumed from the start of the ring
+        if (leftover > 0) {
+            // at most 3 bytes of a partial code point straddle the wrap, stitch them with the bytes that complete it
+            int take = Math.min(rest, 4 - leftover);
+            System.arraycopy(ring, leftoverStart, stitch, 0, leftover);
+            System.arraycopy(ring, 0, stitch, leftover, take);
+            stitchView.limit(leftover + take).position(0);
+            decoder.decode(stitchView, charBuf, take == rest);
+            consumed = Math.max(0, stitchView.position() - leftover);
+        }
+        ringView.limit(rest).position(Math.min(consumed, rest));
+        decoder.decode(ringView, charBuf, true);
+    }
+}
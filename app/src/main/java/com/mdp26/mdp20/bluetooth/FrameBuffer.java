@@ -0,0 +1,125 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable byte buffer that outbound frames are encoded into, see {@link JsonMessage#encodeTo}.
+ * <p> Text is written as UTF-8 and ints as ASCII digits directly into the backing array, so once the buffer has
+ * grown to the largest frame, encoding allocates nothing. Not thread safe, the owner serialises access.
+ */
+public final class FrameBuffer {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private byte[] buf;
+    private int len = 0;
+
+    public FrameBuffer(int capacity) {
+        this.buf = new byte[capacity];
+    }
+
+    public FrameBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrameBuffer reset() {
+        len = 0;
+        return this;
+    }
+
+    /**
+     * Appends a single ASCII char, e.g. a separator.
+     */
+    public FrameBuffer put(char c) {
+        if (c >= 0x80) {
+            return put(String.valueOf(c));
+        }
+        ensure(1);
+        buf[len++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of {@code s}, identical to {@code s.getBytes(UTF_8)}. Null is written as "null".
+     */
+    public FrameBuffer put(String s) {
+        if (s == null) s = "null";
+        int n = s.length();
+        ensure(n); // exact for ASCII, grows again below otherwise
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buf[len++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[len++] = (byte) (0xC0 | (c >> 6));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buf[len++] = '?'; // unpaired surrogate, same replacement as getBytes
+            } else {
+                ensure(3);
+                buf[len++] = (byte) (0xE0 | (c >> 12));
+                buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code v} in decimal, same as {@code %d} in {@link java.util.Locale#ENGLISH}.
+     */
+    public FrameBuffer putInt(int v) {
+        if (v == Integer.MIN_VALUE) {
+            return put("-2147483648");
+        }
+        ensure(11);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (int t = v; t >= 10; t /= 10) digits++;
+        int pos = len + digits;
+        len = pos;
+        do {
+            buf[--pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        return this;
+    }
+
+    /**
+     * Backing array, valid up to {@link #length()}. Only until the next write.
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    public int length() {
+        return len;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    /**
+     * Decodes the content, for logging and tests. Allocates.
+     */
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,322 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound pipeline for a connection: callers {@link #offer} frames into a bounded queue and return immediately,
+ * a dedicated writer thread drains everything pending into one buffered write per wakeup.
+ * <p> The queue is a byte ring plus a ring of frame lengths, so enqueueing copies bytes and never allocates.
+ * What happens when it is full is decided by the {@link OverflowPolicy}.
+ * <p> A writer created without a stream outlives connections: it is {@link #attach attached} to each new link's
+ * stream and keeps queueing while detached, so frames offered during an outage go out in order once a link is back.
+ * While detached, {@link OverflowPolicy#BLOCK} behaves like {@link OverflowPolicy#REJECT} as nothing is draining.
+ */
+public class FrameWriter {
+    private static final String TAG = "FrameWriter";
+    public static final int DEFAULT_CAPACITY_BYTES = 16 * 1024;
+    public static final int DEFAULT_CAPACITY_FRAMES = 512;
+
+    public enum OverflowPolicy {
+        /** Caller waits until the writer has made room. */
+        BLOCK,
+        /** Oldest queued frames are discarded to make room. */
+        DROP_OLDEST,
+        /** The new frame is refused, {@link #offer} returns false. */
+        REJECT
+    }
+
+    /**
+     * Snapshot of the writer's counters.
+     */
+    public record Stats(int queuedFrames, int queuedBytes, int maxQueuedFrames,
+                        long framesWritten, long bytesWritten, long flushes,
+                        int lastFlushBytes, int maxFlushBytes, long droppedFrames, long rejectedFrames,
+                        long lostFrames) {
+        public double avgBytesPerFlush() {
+            return flushes == 0 ? 0 : (double) bytesWritten / flushes;
+        }
+    }
+
+    private OutputStream out; // guarded by lock, null while detached
+    private final boolean reattachable; // a failed write detaches instead of closing
+    private volatile OverflowPolicy policy;
+
+    // queue, guarded by lock
+    private final byte[] ring;
+    private final int[] frameLens;
+    private int byteHead = 0, byteCount = 0;
+    private int frameHead = 0, frameCount = 0;
+    private boolean running = false;
+    private boolean closed = false;
+    private boolean inFlight = false; // writer thread is in the middle of a write
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final byte[] flushBuf; // owned by the writer thread
+
+    // counters, guarded by lock
+    private int maxQueuedFrames = 0;
+    private long framesWritten = 0, bytesWritten = 0, flushes = 0;
+    private int lastFlushBytes = 0, maxFlushBytes = 0;
+    private long droppedFrames = 0, rejectedFrames = 0;
+    private long lostFrames = 0; // were in a write that failed, may or may not have reached the peer
+
+    public FrameWriter(OutputStream out, int capacityBytes, int capacityFrames, OverflowPolicy policy) {
+        this(out, false, capacityBytes, capacityFrames, policy);
+    }
+
+    public FrameWriter(OutputStream out) {
+        this(out, DEFAULT_CAPACITY_BYTES, DEFAULT_CAPACITY_FRAMES, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * A detached writer that buffers up to the given capacity until {@link #attach} is called.
+     */
+    public FrameWriter(int capacityBytes, int capacityFrames, OverflowPolicy policy) {
+        this(null, true, capacityBytes, capacityFrames, policy);
+    }
+
+    private FrameWriter(OutputStream out, boolean reattachable, int capacityBytes, int capacityFrames,
+                        OverflowPolicy policy) {
+        this.out = out;
+        this.reattachable = reattachable;
+        this.ring = new byte[capacityBytes];
+        this.frameLens = new int[capacityFrames];
+        this.flushBuf = new byte[capacityBytes];
+        this.policy = policy;
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            if (running || closed) return;
+            running = true;
+            new Thread(this::writeLoop, TAG).start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the writer thread. Frames still queued are discarded, later offers are refused.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Points the writer at a new link's stream and starts draining, queued frames are written first, in order.
+     */
+    public void attach(OutputStream stream) {
+        lock.lock();
+        try {
+            if (closed) return;
+            out = stream;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        start();
+    }
+
+    /**
+     * Stops writing to {@code stream} if it is still the attached one, later frames are queued until the next
+     * {@link #attach}. A frame already being written to it is not recalled.
+     *
+     * @return false if a different stream (or none) was attached
+     */
+    public boolean detach(OutputStream stream) {
+        lock.lock();
+        try {
+            if (out == null || out != stream) return false;
+            out = null;
+            notFull.signalAll(); // BLOCK callers stop waiting for a drain that won't come
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isAttached() {
+        lock.lock();
+        try {
+            return out != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setOverflowPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * Queues one frame (bytes are copied, the caller may reuse its buffer).
+     *
+     * @return false if the frame was refused, i.e. writer closed, frame larger than the queue, or full under {@link OverflowPolicy#REJECT}
+     */
+    public boolean offer(byte[] b, int off, int len) {
+        if (len > ring.length) {
+            Log.e(TAG, "Frame of " + len + " bytes exceeds queue capacity");
+            return false;
+        }
+        lock.lock();
+        try {
+            while (!closed && (byteCount + len > ring.length || frameCount == frameLens.length)) {
+                switch (policy) {
+                    case BLOCK -> {
+                        if (out == null) { // nothing draining, don't wait for it
+                            rejectedFrames++;
+                            return false;
+                        }
+                        notFull.awaitUninterruptibly();
+                    }
+                    case DROP_OLDEST -> dropOldest();
+                    case REJECT -> {
+                        rejectedFrames++;
+                        return false;
+                    }
+                }
+            }
+            if (closed) {
+                rejectedFrames++;
+                return false;
+            }
+            int writePos = (byteHead + byteCount) % ring.length;
+            int first = Math.min(len, ring.length - writePos);
+            System.arraycopy(b, off, ring, writePos, first);
+            System.arraycopy(b, off + first, ring, 0, len - first);
+            byteCount += len;
+            frameLens[(frameHead + frameCount) % frameLens.length] = len;
+            frameCount++;
+            maxQueuedFrames = Math.max(maxQueuedFrames, frameCount);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(frameCount, byteCount, maxQueuedFrames, framesWritten, bytesWritten, flushes,
+                    lastFlushBytes, maxFlushBytes, droppedFrames, rejectedFrames, lostFrames);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every frame queued so far has been written, mostly useful for tests.
+     *
+     * @return false on timeout or if the writer was stopped
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (byteCount > 0 || inFlight) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || closed) return false;
+                notFull.awaitNanos(left);
+            }
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private void dropOldest() {
+        int len = frameLens[frameHead];
+        frameHead = (frameHead + 1) % frameLens.length;
+        frameCount--;
+        byteHead = (byteHead + len) % ring.length;
+        byteCount -= len;
+        droppedFrames++;
+    }
+
+    private void writeLoop() {
+        Log.d(TAG, "Writer thread running.");
+        while (true) {
+            int n;
+            int frames;
+            OutputStream target;
+            lock.lock();
+            try {
+                while (running && (frameCount == 0 || out == null)) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (!running) break;
+                // gather everything pending into one write
+                n = byteCount;
+                frames = frameCount;
+                target = out;
+                int first = Math.min(n, ring.length - byteHead);
+                System.arraycopy(ring, byteHead, flushBuf, 0, first);
+                System.arraycopy(ring, 0, flushBuf, first, n - first);
+                byteHead = frameHead = byteCount = frameCount = 0;
+                inFlight = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            boolean failed = false;
+            try {
+                target.write(flushBuf, 0, n);
+                target.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing to output stream. " + e.getMessage());
+                failed = true;
+            }
+
+            lock.lock();
+            try {
+                inFlight = false;
+                if (!failed) {
+                    framesWritten += frames;
+                    bytesWritten += n;
+                    flushes++;
+                    lastFlushBytes = n;
+                    maxFlushBytes = Math.max(maxFlushBytes, n);
+                } else if (reattachable) {
+                    // keep queueing for the next link, only this batch is gone
+                    lostFrames += frames;
+                    if (out == target) out = null;
+                } else {
+                    // the link is gone, don't let BLOCK callers wait on it forever
+                    lostFrames += frames;
+                    running = false;
+                    closed = true;
+                }
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        Log.d(TAG, "Writer thread stopped.");
+    }
+}
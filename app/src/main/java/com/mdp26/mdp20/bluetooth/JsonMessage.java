@@ -20,4 +20,20 @@ public interface JsonMessage {
         return String.format(JsonMessage.FORMAT_OBJ, category, obj);
     }
     public String getAsJson();
-}
\ No newline at end of file
+
+    /**
+     * Writes the same bytes as {@code getAsJson().getBytes(UTF_8)} into {@code buf}, without the trailing newline.
+     * <p> This default just encodes {@link #getAsJson()}, messages sent at a high rate override it to write
+     * their fields directly and skip the formatter.
+     */
+    default void encodeTo(FrameBuffer buf) {
+        buf.put(getAsJson());
+    }
+
+    /**
+     * Allocation-free equivalent of {@link #getFormattedStr} for {@link #encodeTo}.
+     */
+    static void encodeFormattedStr(FrameBuffer buf, String category, String value) {
+        buf.put("{\"cat\":\"").put(category).put("\", \"value\": \"").put(value).put("\"}");
+    }
+}
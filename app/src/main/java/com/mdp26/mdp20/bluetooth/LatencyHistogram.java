@@ -0,0 +1,135 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size, HDR-style histogram of latencies in microseconds.
+ * <p> Values below 32 get a bucket each, above that every power of two is split into 16 linear buckets, so any
+ * recorded value is reported within ~6% of its true value. Buckets are a plain {@code long[]}, recording never allocates.
+ * Values beyond ~35 min land in the top bucket, the exact {@link Snapshot#max()} is kept separately.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16; // per power of two above LINEAR_BUCKETS
+    private static final int MAX_SHIFT = 26;
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + MAX_SHIFT * SUB_BUCKETS;
+
+    /**
+     * Summary of the histogram at one point in time, latencies in microseconds.
+     */
+    public record Snapshot(long count, long min, long p50, long p90, long p99, long max, double mean) {
+    }
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private final Lock lock = new ReentrantLock();
+
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param micros negative values are counted as 0
+     */
+    public void record(long micros) {
+        if (micros < 0) micros = 0;
+        int index = bucketIndex(micros);
+        lock.lock();
+        try {
+            buckets[index]++;
+            count++;
+            sum += micros;
+            min = Math.min(min, micros);
+            max = Math.max(max, micros);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return an upper bound for the given percentile, never above the max recorded, 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        lock.lock();
+        try {
+            return percentileLocked(percentile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        lock.lock();
+        try {
+            if (count == 0) return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+            return new Snapshot(count, min, percentileLocked(50), percentileLocked(90), percentileLocked(99), max,
+                    (double) sum / count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reset() {
+        lock.lock();
+        try {
+            Arrays.fill(buckets, 0);
+            count = sum = max = 0;
+            min = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private long percentileLocked(double percentile) {
+        if (count == 0) return 0;
+        // rank of the value we want, 1-based
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4; // keep the top 5 bits, i.e. 16..31
+        if (shift > MAX_SHIFT) return BUCKET_COUNT - 1;
+        int top = (int) (value >>> shift);
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < LINEAR_BUCKETS) return index;
+        int k = index - LINEAR_BUCKETS;
+        int shift = k / SUB_BUCKETS + 1;
+        long top = k % SUB_BUCKETS + SUB_BUCKETS;
+        return top << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) return index;
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,34 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.function.Consumer;
+
+/**
+ * Compatibility adapter for code still listening with a {@link BluetoothMessageReceiver}:
+ * re-sends every raw frame as an {@link BluetoothConnection#ACTION_MSG_READ} broadcast on the main thread.
+ * <p> Install with {@link MessageBus#setLegacyAdapter}. Each broadcast costs a binder round trip
+ * and a re-parse per receiver, prefer {@link MessageBus#subscribe}.
+ */
+public class LegacyBroadcastAdapter implements Consumer<String> {
+    private final Context appContext;
+    private final Handler handler;
+
+    public LegacyBroadcastAdapter(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    @Override
+    public void accept(String frame) {
+        handler.post(() -> {
+            Intent intent = new Intent(BluetoothConnection.ACTION_MSG_READ)
+                    .setPackage(appContext.getPackageName())
+                    .putExtra(BluetoothConnection.EXTRA_MSG_READ, frame);
+            appContext.sendBroadcast(intent);
+        });
+    }
+}
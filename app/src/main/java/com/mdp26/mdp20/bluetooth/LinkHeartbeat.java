@@ -0,0 +1,236 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodic {@code PING,<seq>} frames on a connection, matched against the peer's {@code PONG,<seq>} replies.
+ * <p> Round trips go into a {@link LatencyHistogram}. Once the peer has answered at least once, {@link #MISSED_LIMIT}
+ * unanswered pings in a row mark the link as degraded, which is usually long before a read fails.
+ * <p> PONG frames are consumed by {@link #onFrame} before parsing, they never reach the {@link MessageBus}.
+ */
+public class LinkHeartbeat {
+    private static final String TAG = "LinkHeartbeat";
+    public static final String CAPABILITY = "PING";
+    public static final String PING = "PING";
+    public static final String PONG = "PONG";
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    public static final int MISSED_LIMIT = 3;
+    private static final int IN_FLIGHT = 64; // pings remembered for matching, power of two
+
+    private final MessageSink sink;
+    private final LongSupplier clock; // nanoTime, replaceable for tests
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile Consumer<Boolean> degradedListener = null;
+    private volatile long intervalMs = DEFAULT_INTERVAL_MS;
+
+    // guarded by lock
+    private final long[] sentSeq = new long[IN_FLIGHT];
+    private final long[] sentAt = new long[IN_FLIGHT];
+    private long nextSeq = 1;
+    private long lastAckedSeq = 0;
+    private boolean armed = false; // peer answered at least once
+    private boolean degraded = false;
+    private long pingsSent = 0, pongsReceived = 0, latePongs = 0;
+    private final Lock lock = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler = null;
+
+    public LinkHeartbeat(MessageSink sink, LongSupplier clock) {
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    public LinkHeartbeat(MessageSink sink) {
+        this(sink, System::nanoTime);
+    }
+
+    /**
+     * Starts pinging every {@code intervalMs} on a background thread. Does nothing if already started.
+     */
+    public void start(long intervalMs) {
+        lock.lock();
+        try {
+            if (scheduler != null) return;
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, TAG));
+            scheduler.scheduleWithFixedDelay(this::tick, 0, intervalMs, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts pinging every {@link #setInterval interval}, {@link #DEFAULT_INTERVAL_MS} unless set.
+     */
+    public void start() {
+        start(intervalMs);
+    }
+
+    /**
+     * Interval used by {@link #start()}, takes effect on the next start.
+     */
+    public void setInterval(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Cancels the pings, and waits for one being sent right now, so no ping goes out after this returns.
+     */
+    public void stop() {
+        ScheduledExecutorService stopped;
+        lock.lock();
+        try {
+            stopped = scheduler;
+            scheduler = null;
+        } finally {
+            lock.unlock();
+        }
+        if (stopped == null) return;
+        stopped.shutdownNow();
+        try {
+            // outside the lock, the tick in flight needs it to finish
+            stopped.awaitTermination(intervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        lock.lock();
+        try {
+            return scheduler != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called with true when the link becomes degraded and false when it recovers. May be called on any thread.
+     */
+    public void setDegradedListener(Consumer<Boolean> listener) {
+        this.degradedListener = listener;
+    }
+
+    /**
+     * Checks for missed replies, then sends the next ping. Called by the scheduler, public for tests.
+     */
+    public void tick() {
+        long seq;
+        boolean becameDegraded = false;
+        lock.lock();
+        try {
+            if (armed && !degraded && nextSeq - 1 - lastAckedSeq >= MISSED_LIMIT) {
+                degraded = becameDegraded = true;
+            }
+            seq = nextSeq++;
+            int slot = (int) (seq & (IN_FLIGHT - 1));
+            sentSeq[slot] = seq;
+            sentAt[slot] = clock.getAsLong();
+            pingsSent++;
+        } finally {
+            lock.unlock();
+        }
+        if (becameDegraded) {
+            Log.e(TAG, MISSED_LIMIT + " heartbeats missed, link degraded");
+            notifyDegraded(true);
+        }
+        sink.sendMessage(PING + "," + seq);
+    }
+
+    /**
+     * Consumes the frame if it is a PONG.
+     *
+     * @return true if the frame was a heartbeat reply and should not be parsed any further
+     */
+    public boolean onFrame(String frame) {
+        if (!frame.startsWith(PONG)) return false;
+        int comma = frame.indexOf(',');
+        if (comma != PONG.length()) return false; // e.g. "PONGS", not ours
+        long seq = FastMessageParser.parseInt(frame, comma + 1, frame.length());
+        if (seq < 0) {
+            Log.e(TAG, "Malformed heartbeat reply: " + frame);
+            return true;
+        }
+        long now = clock.getAsLong();
+        boolean recovered = false;
+        lock.lock();
+        try {
+            int slot = (int) (seq & (IN_FLIGHT - 1));
+            if (sentSeq[slot] != seq) {
+                latePongs++; // too old, or never sent
+                return true;
+            }
+            sentSeq[slot] = 0;
+            latency.recordNanos(now - sentAt[slot]);
+            pongsReceived++;
+            armed = true;
+            lastAckedSeq = Math.max(lastAckedSeq, seq);
+            if (degraded) {
+                degraded = false;
+                recovered = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (recovered) {
+            Log.d(TAG, "Heartbeat answered, link recovered");
+            notifyDegraded(false);
+        }
+        return true;
+    }
+
+    private void notifyDegraded(boolean isDegraded) {
+        Consumer<Boolean> listener = degradedListener;
+        if (listener != null) listener.accept(isDegraded);
+    }
+
+    public boolean isDegraded() {
+        lock.lock();
+        try {
+            return degraded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Round-trip times of answered pings, query e.g. {@link LatencyHistogram#getSnapshot()} for p50/p99/max.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getPingsSent() {
+        lock.lock();
+        try {
+            return pingsSent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPongsReceived() {
+        lock.lock();
+        try {
+            return pongsReceived;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLatePongs() {
+        lock.lock();
+        try {
+            return latePongs;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory {@link Transport}. Use {@link #createPair()} to get two connected ends, hand one to
+ * {@link BluetoothConnection} and drive the other as the RPi.
+ * <p> Unlike {@link java.io.PipedInputStream}, the pipes do not care which threads read or write them.
+ */
+public class LoopbackTransport implements Transport {
+    public static final int DEFAULT_PIPE_SIZE = 64 * 1024;
+
+    private final String name;
+    private final Pipe in; // peer writes, we read
+    private final Pipe out; // we write, peer reads
+
+    private LoopbackTransport(String name, Pipe in, Pipe out) {
+        this.name = name;
+        this.in = in;
+        this.out = out;
+    }
+
+    public record Pair(LoopbackTransport local, LoopbackTransport remote) {}
+
+    public static Pair createPair() {
+        return createPair(DEFAULT_PIPE_SIZE);
+    }
+
+    public static Pair createPair(int pipeSize) {
+        Pipe toLocal = new Pipe(pipeSize);
+        Pipe toRemote = new Pipe(pipeSize);
+        return new Pair(new LoopbackTransport("loopback:local", toLocal, toRemote),
+                new LoopbackTransport("loopback:remote", toRemote, toLocal));
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in.inputStream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out.outputStream;
+    }
+
+    /**
+     * Closes both directions, the peer reads end-of-stream and its writes fail.
+     */
+    @Override
+    public void close() {
+        in.close();
+        out.close();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // bounded single-direction byte pipe
+    private static class Pipe {
+        private final byte[] buf;
+        private int readPos = 0;
+        private int count = 0;
+        private boolean closed = false;
+
+        private final Lock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+
+        final InputStream inputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return Pipe.this.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                lock.lock();
+                try {
+                    return count;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Pipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        Pipe(int size) {
+            buf = new byte[size];
+        }
+
+        int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            lock.lock();
+            try {
+                while (count == 0) {
+                    if (closed) return -1;
+                    notEmpty.await();
+                }
+                int n = Math.min(len, count);
+                int first = Math.min(n, buf.length - readPos);
+                System.arraycopy(buf, readPos, b, off, first);
+                System.arraycopy(buf, 0, b, off + first, n - first);
+                readPos = (readPos + n) % buf.length;
+                count -= n;
+                notFull.signalAll();
+                return n;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Loopback read interrupted");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                while (len > 0) {
+                    while (count == buf.length && !closed) {
+                        notFull.await();
+                    }
+                    if (closed) throw new IOException("Loopback pipe closed");
+                    int writePos = (readPos + count) % buf.length;
+                    int n = Math.min(len, Math.min(buf.length - count, buf.length - writePos));
+                    System.arraycopy(b, off, buf, writePos, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                    notEmpty.signalAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Loopback write interrupted");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * App-scoped, in-process bus for inbound messages, hosted by {@link com.mdp26.mdp20.MyApplication}.
+ * <p> Each frame is parsed once on the I/O thread ({@link #publishFrame}) and the resulting {@link BluetoothMessage}
+ * is handed to every subscriber on the {@link Executor} it chose, e.g. {@link #mainThread()} for UI work or
+ * {@link #POSTING} to be called directly on the I/O thread.
+ * <p> Subscribers live in a copy-on-write array swapped with CAS, so publishing never takes a lock.
+ * Intent broadcasts are only sent if a {@link LegacyBroadcastAdapter} is installed.
+ */
+public class MessageBus {
+    private static final String TAG = "MessageBus";
+    private static final Subscription[] EMPTY = new Subscription[0];
+
+    /**
+     * Runs the subscriber directly on the publishing (I/O) thread. Keep such subscribers short.
+     */
+    public static final Executor POSTING = Runnable::run;
+    private static volatile Executor mainThread;
+
+    private final BluetoothMessageParser parser;
+    private final AtomicReference<Subscription[]> subscribers = new AtomicReference<>(EMPTY);
+    private volatile Consumer<String> legacyAdapter = null;
+
+    public MessageBus(BluetoothMessageParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Executor that posts to the main looper, created on first use.
+     */
+    public static Executor mainThread() {
+        if (mainThread == null) {
+            Handler handler = new Handler(Looper.getMainLooper());
+            mainThread = handler::post;
+        }
+        return mainThread;
+    }
+
+    /**
+     * @param executor thread the consumer is called on, e.g. {@link #mainThread()} or {@link #POSTING}
+     * @return handle to {@link Subscription#close()} when done, e.g. in {@code onDestroy}
+     */
+    public Subscription subscribe(Executor executor, Consumer<BluetoothMessage> consumer) {
+        return add(new Subscription(executor, consumer, false));
+    }
+
+    /**
+     * Like {@link #subscribe} but through a {@link ConflatingMailbox}: if the consumer falls behind, only the latest
+     * robot position and status are delivered, other messages are all delivered in order.
+     * <p> Meant for UI subscribers that redraw on every position.
+     */
+    public Subscription subscribeConflated(Executor executor, Consumer<BluetoothMessage> consumer) {
+        return add(new Subscription(executor, consumer, true));
+    }
+
+    private Subscription add(Subscription subscription) {
+        Subscription[] current, next;
+        do {
+            current = subscribers.get();
+            next = new Subscription[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = subscription;
+        } while (!subscribers.compareAndSet(current, next));
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscription.active = false;
+        Subscription[] current, next;
+        do {
+            current = subscribers.get();
+            int idx = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscription) {
+                    idx = i;
+                    break;
+                }
+            }
+            if (idx < 0) return;
+            next = current.length == 1 ? EMPTY : new Subscription[current.length - 1];
+            System.arraycopy(current, 0, next, 0, idx);
+            System.arraycopy(current, idx + 1, next, idx, current.length - idx - 1);
+        } while (!subscribers.compareAndSet(current, next));
+    }
+
+    /**
+     * Parses a raw frame once and publishes the result. Called on the I/O thread.
+     */
+    public BluetoothMessage publishFrame(String frame) {
+        forwardRaw(frame);
+        BluetoothMessage msg = parser.apply(frame);
+        publish(msg);
+        return msg;
+    }
+
+    /**
+     * The first step of {@link #publishFrame}: hands the raw frame to the legacy adapter, if any.
+     * For callers that time parsing and publishing separately, e.g. {@link com.mdp26.mdp20.session.SessionReplayer}.
+     */
+    public void forwardRaw(String frame) {
+        Consumer<String> adapter = legacyAdapter;
+        if (adapter != null) {
+            adapter.accept(frame);
+        }
+    }
+
+    public void publish(BluetoothMessage msg) {
+        for (Subscription subscription : subscribers.get()) {
+            subscription.deliver(msg);
+        }
+    }
+
+    public BluetoothMessageParser getParser() {
+        return parser;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get().length;
+    }
+
+    /**
+     * Also forwards every raw frame to {@code adapter}, e.g. a {@link LegacyBroadcastAdapter}. Pass null to remove.
+     */
+    public void setLegacyAdapter(Consumer<String> adapter) {
+        this.legacyAdapter = adapter;
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final Executor executor;
+        private final Consumer<BluetoothMessage> consumer;
+        private final ConflatingMailbox mailbox; // null if every message gets its own task
+        private volatile boolean active = true;
+
+        private Subscription(Executor executor, Consumer<BluetoothMessage> consumer, boolean conflated) {
+            this.executor = executor;
+            this.consumer = consumer;
+            this.mailbox = conflated ? new ConflatingMailbox(executor, this::dispatch) : null;
+        }
+
+        private void deliver(BluetoothMessage msg) {
+            if (mailbox != null) {
+                mailbox.offer(msg);
+            } else if (executor == POSTING) {
+                dispatch(msg);
+            } else {
+                executor.execute(() -> dispatch(msg));
+            }
+        }
+
+        private void dispatch(BluetoothMessage msg) {
+            // may have been closed while the message was queued on the executor
+            if (!active) return;
+            try {
+                consumer.accept(msg);
+            } catch (RuntimeException e) {
+                if (executor == POSTING) {
+                    // don't let one subscriber kill the I/O thread
+                    Log.e(TAG, "Subscriber threw on " + msg, e);
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * The subscription's mailbox with its collapse counters, null unless made by {@link #subscribeConflated}.
+         */
+        public ConflatingMailbox getMailbox() {
+            return mailbox;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+}
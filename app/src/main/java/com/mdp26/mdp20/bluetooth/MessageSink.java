@@ -0,0 +1,23 @@
+package com.mdp26.mdp20.bluetooth;
+
+/**
+ * Something outbound frames can be sent to, i.e. a {@link BluetoothConnection}.
+ */
+public interface MessageSink {
+    /**
+     * @return false if the message was not accepted
+     */
+    boolean sendMessage(String s);
+
+    /**
+     * @return false if the message was not accepted
+     */
+    boolean sendMessage(JsonMessage msg);
+
+    /**
+     * Whether the other end advertised an optional protocol extension, see {@link BluetoothMessage.PeerCapabilitiesMessage}.
+     */
+    default boolean supports(String capability) {
+        return false;
+    }
+}
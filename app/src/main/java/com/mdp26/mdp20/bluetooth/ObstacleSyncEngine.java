@@ -0,0 +1,207 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.util.Log;
+
+import com.mdp26.mdp20.canvas.Grid;
+import com.mdp26.mdp20.canvas.GridChange;
+import com.mdp26.mdp20.canvas.GridObstacle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps the RPi's obstacle bank in step with the {@link Grid}, hosted by {@link com.mdp26.mdp20.MyApplication}.
+ * <p> The engine mirrors what it last sent to the RPi. On {@link #sync} it reads the grid's change journal since
+ * then and only sends the obstacles that actually differ: an {@code OBSTACLE} upsert for added, moved or rotated
+ * ones and an {@code OBSTACLE,...,-1} removal for removed ones. {@code CLEAR} plus the whole map is only sent
+ * for a new connection, after a failed send, or when the journal can't account for the versions in between.
+ * <p> If the RPi advertised {@link BluetoothMessage.ObstacleBatchMessage#CAPABILITY}, several obstacles
+ * (e.g. a loaded map) go out as a single {@code OBSTACLES|...} frame instead.
+ * <p> Main thread only.
+ */
+public class ObstacleSyncEngine {
+    private static final String TAG = "ObstacleSyncEngine";
+    public static final String CLEAR = "CLEAR";
+    /** Id passed to the sent log for frames not about one obstacle, i.e. {@code CLEAR} and batches */
+    public static final int NO_OBSTACLE = -1;
+
+    private final Grid grid;
+    private final Map<Integer, BluetoothMessage.ObstacleEventMessage> remote = new HashMap<>(); // last upsert sent per id
+    private MessageSink syncedSink = null; // null forces a full resync
+    private final FrameBuffer logBuffer = new FrameBuffer(); // a sent frame encoded again for the log, no formatter
+    private long syncedVersion = 0;
+
+    private long fullResyncs = 0;
+    private long framesSent = 0;
+    private long batchesSent = 0;
+
+    public ObstacleSyncEngine(Grid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Brings the RPi up to date with the grid.
+     *
+     * @param sink    the current connection, nothing is sent if null
+     * @param sentLog optional, receives the text of every frame sent and the id of the obstacle it is about,
+     *                or {@link #NO_OBSTACLE}, e.g. for the on-screen log
+     * @return number of frames sent
+     */
+    public int sync(MessageSink sink, ObjIntConsumer<String> sentLog) {
+        if (sink == null) return 0;
+        if (sink != syncedSink) {
+            Log.d(TAG, "New connection, full resync");
+            return fullResync(sink, sentLog);
+        }
+        Optional<List<GridChange>> changes = grid.getChangesSince(syncedVersion);
+        if (changes.isEmpty()) {
+            Log.d(TAG, "Journal does not cover version " + syncedVersion + " -> " + grid.getVersion() + ", full resync");
+            return fullResync(sink, sentLog);
+        }
+
+        boolean cleared = false;
+        Set<Integer> dirty = new LinkedHashSet<>();
+        for (GridChange change : changes.get()) {
+            if (change.type() == GridChange.Type.CLEAR) {
+                // anything touched before the clear is gone from the grid anyway
+                cleared = true;
+                dirty.clear();
+            } else {
+                dirty.add(change.obstacleId());
+            }
+        }
+
+        List<BluetoothMessage.ObstacleEventMessage> events = new ArrayList<>(dirty.size());
+        for (int id : dirty) {
+            BluetoothMessage.ObstacleEventMessage known = cleared ? null : remote.get(id);
+            Optional<GridObstacle> local = grid.findObstacleWithId(id);
+            if (local.isEmpty()) {
+                if (known != null) { // else added and removed in between
+                    events.add(removal(known));
+                }
+            } else {
+                BluetoothMessage.ObstacleEventMessage now = upsert(local.get());
+                if (!now.equals(known)) { // equal if e.g. only the target changed
+                    events.add(now);
+                }
+            }
+        }
+
+        int sent = 0;
+        if (cleared) {
+            if (!send(sink, CLEAR, NO_OBSTACLE, sentLog)) return abort(sent);
+            sent++;
+            remote.clear();
+        }
+        int eventFrames = sendEvents(sink, events, sentLog);
+        if (eventFrames < 0) return abort(sent);
+        apply(events);
+        syncedVersion = grid.getVersion();
+        return sent + eventFrames;
+    }
+
+    /**
+     * Forces the next {@link #sync} to resend everything, e.g. if the RPi was restarted.
+     */
+    public void invalidate() {
+        syncedSink = null;
+    }
+
+    public long getFullResyncCount() {
+        return fullResyncs;
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    private int fullResync(MessageSink sink, ObjIntConsumer<String> sentLog) {
+        fullResyncs++;
+        syncedSink = null;
+        remote.clear();
+        if (!send(sink, CLEAR, NO_OBSTACLE, sentLog)) return abort(0);
+        List<BluetoothMessage.ObstacleEventMessage> events = new ArrayList<>(grid.getObstacleList().size());
+        for (GridObstacle obstacle : grid.getObstacleList()) {
+            events.add(upsert(obstacle));
+        }
+        int eventFrames = sendEvents(sink, events, sentLog);
+        if (eventFrames < 0) return abort(1);
+        apply(events);
+        syncedSink = sink;
+        syncedVersion = grid.getVersion();
+        return 1 + eventFrames;
+    }
+
+    /**
+     * One {@link BluetoothMessage.ObstacleBatchMessage} if there is more than one event and the peer supports it,
+     * else one frame per event.
+     *
+     * @return frames sent, -1 if one was refused
+     */
+    private int sendEvents(MessageSink sink, List<BluetoothMessage.ObstacleEventMessage> events, ObjIntConsumer<String> sentLog) {
+        if (events.size() > 1 && sink.supports(BluetoothMessage.ObstacleBatchMessage.CAPABILITY)) {
+            if (!send(sink, BluetoothMessage.ofObstacleBatchMessage(events), NO_OBSTACLE, sentLog)) return -1;
+            batchesSent++;
+            return 1;
+        }
+        for (BluetoothMessage.ObstacleEventMessage event : events) {
+            if (!send(sink, event, event.id(), sentLog)) return -1;
+        }
+        return events.size();
+    }
+
+    private void apply(List<BluetoothMessage.ObstacleEventMessage> events) {
+        for (BluetoothMessage.ObstacleEventMessage event : events) {
+            if (event.isRemove()) {
+                remote.remove(event.id());
+            } else {
+                remote.put(event.id(), event);
+            }
+        }
+    }
+
+    // the RPi's state is unknown after a refused frame, start over next time
+    private int abort(int sent) {
+        Log.e(TAG, "Send refused, will resync");
+        syncedSink = null;
+        return sent;
+    }
+
+    private static BluetoothMessage.ObstacleEventMessage upsert(GridObstacle obstacle) {
+        return new BluetoothMessage.ObstacleEventMessage(obstacle.getId(), obstacle.getPosition().getXInt(),
+                obstacle.getPosition().getYInt(), obstacle.getFacing(), false);
+    }
+
+    // same position as the RPi knows, so it can find the obstacle either by id or by cell
+    private static BluetoothMessage.ObstacleEventMessage removal(BluetoothMessage.ObstacleEventMessage known) {
+        return new BluetoothMessage.ObstacleEventMessage(known.id(), known.x(), known.y(), known.face(), true);
+    }
+
+    private boolean send(MessageSink sink, String frame, int obstacleId, ObjIntConsumer<String> sentLog) {
+        if (!sink.sendMessage(frame)) return false;
+        framesSent++;
+        if (sentLog != null) sentLog.accept(frame, obstacleId);
+        return true;
+    }
+
+    private boolean send(MessageSink sink, BluetoothMessage msg, int obstacleId, ObjIntConsumer<String> sentLog) {
+        JsonMessage json = msg.getAsJsonMessage();
+        if (!sink.sendMessage(json)) return false;
+        framesSent++;
+        if (sentLog != null) {
+            json.encodeTo(logBuffer.reset()); // same text as getAsJson()
+            sentLog.accept(logBuffer.toString(), obstacleId);
+        }
+        return true;
+    }
+}
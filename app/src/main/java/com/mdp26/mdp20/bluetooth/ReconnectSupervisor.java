@@ -0,0 +1,223 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.util.Log;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Brings the link back after it drops, owned by {@link BluetoothInterface} so it keeps going whichever activity is shown.
+ * <p> The first retry is quick, as most drops are momentary. After that the delay doubles up to a cap, with
+ * jitter so the tablet and the RPi don't keep retrying in lockstep. Retries go on until a connection is made or
+ * {@link #stop()} is called.
+ * <p> The time from losing the link to the next connection is recorded in a {@link LatencyHistogram}.
+ */
+public class ReconnectSupervisor {
+    private static final String TAG = "ReconnectSupervisor";
+    public static final long DEFAULT_FIRST_RETRY_MS = 250;
+    public static final long DEFAULT_BASE_DELAY_MS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MS = 30_000;
+
+    private final long firstRetryMs;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Random random;
+    private final LongSupplier clock; // nanoTime, replaceable for tests
+    private final LatencyHistogram timeToReconnect = new LatencyHistogram();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, TAG);
+        t.setDaemon(true);
+        return t;
+    });
+
+    // guarded by lock
+    private Runnable target = null; // how to reconnect, null if the last link can't be re-established by us
+    private boolean reconnecting = false;
+    private int attempt = 0; // attempts in the current outage
+    private long lostAt = 0;
+    private ScheduledFuture<?> pending = null;
+    private long outages = 0, reconnects = 0, attempts = 0;
+    private final Lock lock = new ReentrantLock();
+
+    public ReconnectSupervisor(long firstRetryMs, long baseDelayMs, long maxDelayMs, Random random, LongSupplier clock) {
+        this.firstRetryMs = firstRetryMs;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    public ReconnectSupervisor() {
+        this(DEFAULT_FIRST_RETRY_MS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, new Random(), System::nanoTime);
+    }
+
+    /**
+     * Sets how to get the current link back, e.g. connecting to the same device again.
+     * The action is run on the supervisor's thread and should not block for long.
+     *
+     * @param reconnect null to not reconnect at all
+     */
+    public void setTarget(Runnable reconnect) {
+        lock.lock();
+        try {
+            this.target = reconnect;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts retrying, unless there is no target or retries are already under way.
+     */
+    public void onLinkLost() {
+        lock.lock();
+        try {
+            if (target == null || reconnecting) return;
+            reconnecting = true;
+            attempt = 0;
+            lostAt = clock.getAsLong();
+            outages++;
+            Log.d(TAG, "Link lost, reconnecting");
+            scheduleNextLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the reconnect action when it could not connect, schedules the next attempt.
+     */
+    public void onAttemptFailed() {
+        lock.lock();
+        try {
+            if (!reconnecting) return;
+            scheduleNextLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called on every new connection, ends the outage if there was one.
+     */
+    public void onConnected() {
+        lock.lock();
+        try {
+            if (!reconnecting) return;
+            long elapsed = clock.getAsLong() - lostAt;
+            timeToReconnect.recordNanos(elapsed);
+            reconnects++;
+            Log.d(TAG, "Reconnected after " + attempt + " attempt(s), "
+                    + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+            cancelLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives up on the current outage, e.g. when the user picks another device.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            cancelLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isReconnecting() {
+        lock.lock();
+        try {
+            return reconnecting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * From link lost to connected again, per outage, in microseconds.
+     */
+    public LatencyHistogram getTimeToReconnect() {
+        return timeToReconnect;
+    }
+
+    public long getOutageCount() {
+        lock.lock();
+        try {
+            return outages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReconnectCount() {
+        lock.lock();
+        try {
+            return reconnects;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAttemptCount() {
+        lock.lock();
+        try {
+            return attempts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delay before the given attempt of an outage.
+     *
+     * @param attempt 1-based
+     */
+    long delayFor(int attempt) {
+        if (attempt <= 1) return firstRetryMs;
+        // base, 2 * base, 4 * base, ... capped, then anywhere in the upper half of that
+        int doublings = Math.min(attempt - 2, 30);
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << doublings);
+        long half = ceiling / 2;
+        return ceiling - half + (long) (random.nextDouble() * (half + 1));
+    }
+
+    // caller holds lock
+    private void scheduleNextLocked() {
+        attempt++;
+        long delay = delayFor(attempt);
+        Log.d(TAG, "Attempt " + attempt + " in " + delay + " ms");
+        pending = scheduler.schedule(this::runAttempt, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // caller holds lock
+    private void cancelLocked() {
+        reconnecting = false;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void runAttempt() {
+        Runnable action;
+        lock.lock();
+        try {
+            if (!reconnecting || target == null) return;
+            pending = null;
+            attempts++;
+            action = target;
+        } finally {
+            lock.unlock();
+        }
+        action.run();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link Transport} over a connected RFCOMM {@link BluetoothSocket}.
+ */
+public class RfcommTransport implements Transport {
+    private final BluetoothSocket socket;
+    private final BluetoothDevice device;
+
+    public RfcommTransport(BluetoothSocket socket, BluetoothDevice device) {
+        this.socket = socket;
+        this.device = device;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public String getName() {
+        return device != null ? "rfcomm:" + device.getAddress() : "rfcomm";
+    }
+
+    @Override
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mdp26.mdp20.bluetooth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * {@link Transport} over a TCP socket, e.g. to a script standing in for the RPi on the dev machine
+ * (the emulator reaches the host at {@code 10.0.2.2}).
+ */
+public class TcpTransport implements Transport {
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 3000;
+    private final Socket socket;
+
+    public TcpTransport(Socket socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * Blocking connect, do not call on the main thread.
+     */
+    public static TcpTransport connect(String host, int port) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true); // frames are tiny, don't let Nagle hold them back
+            socket.connect(new InetSocketAddress(host, port), DEFAULT_CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return new TcpTransport(socket);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public String getName() {
+        return "tcp:" + socket.getRemoteSocketAddress();
+    }
+}
@@ -0,0 +1,38 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A connected byte stream to the robot, i.e. what {@link BluetoothConnection} reads from and writes to.
+ * <p> Implementations: {@link RfcommTransport} (the real link), {@link TcpTransport} (a local stand-in for the RPi)
+ * and {@link LoopbackTransport} (in-memory, for tests and benchmarks).
+ */
+public interface Transport extends Closeable {
+
+    InputStream getInputStream() throws IOException;
+
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Closes the underlying socket/pipe. A blocked read on the input stream should return or throw.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * @return a short description of the remote end, for logging
+     */
+    String getName();
+
+    /**
+     * @return the remote bluetooth device, or null if this transport is not bluetooth
+     */
+    default BluetoothDevice getDevice() {
+        return null;
+    }
+}
@@ -0,0 +1,204 @@
+package com.mdp26.mdp20.canvas;
+
+/**
+ * Where the cells of a {@link Grid} land on screen, the world to screen transform shared by every layer of the
+ * {@link ArenaView} and by its hit-testing. Cells are square and y is flipped so (0,0) is the bottom-left cell.
+ * Zoomed all the way out the arena is centered with a one cell margin for the axis labels.
+ * <p> There are two versions of it. The zoom ({@link #zoomCellSize}, {@link #zoomOffsetX}, {@link #zoomOffsetY})
+ * is where the arena is on screen right now, in fractional pixels, and is what {@link #columnAt} and
+ * {@link #rowAt} use. The recorded geometry ({@link #cellSize}, {@link #offsetX}, {@link #offsetY}) is the zoom
+ * rounded to whole pixels when the layers were last recorded, and is what they draw with. The two differ by a
+ * scale and a translation, see {@link #deltaScale()}, which the view applies when replaying the layers, so a
+ * pinch or pan only changes that.
+ * <p> Also holds the range of cells visible in the area being drawn, layers only draw those.
+ */
+final class ArenaGeometry {
+    private static final int[] STRIDE_STEPS = {1, 2, 5};
+    static final int MIN_CELLS_ACROSS = 4; // zoomed all the way in
+
+    // recorded
+    int cellSize = 1;
+    int offsetX, offsetY;
+    int columns = Grid.DEFAULT_SIZE, rows = Grid.DEFAULT_SIZE;
+    int minColumn, maxColumn, minRow, maxRow; // visible cells, inclusive, empty if min > max
+
+    // zoom
+    private int width = 0, height = 0;
+    private int fitCellSize = 1; // zoomed all the way out
+    float zoomCellSize = 1;
+    float zoomOffsetX, zoomOffsetY;
+
+    /**
+     * Fits the arena into a view of {@code w} by {@code h} pixels, zoomed all the way out.
+     */
+    void layout(int w, int h, int columns, int rows) {
+        this.width = w;
+        this.height = h;
+        this.columns = columns;
+        this.rows = rows;
+        fitCellSize = Math.max(1, Math.min(w / (columns + 2), h / (rows + 2))); // +2 for axis labels
+        zoomCellSize = fitCellSize;
+        zoomOffsetX = (w - columns * fitCellSize) / 2;
+        zoomOffsetY = (h - rows * fitCellSize) / 2;
+        record();
+    }
+
+    /**
+     * Makes the recorded geometry the zoom, rounded to whole pixels. The layers have to be recorded again.
+     */
+    void record() {
+        cellSize = Math.max(1, Math.round(zoomCellSize));
+        offsetX = Math.round(zoomOffsetX);
+        offsetY = Math.round(zoomOffsetY);
+    }
+
+    /**
+     * Scales the zoom by {@code factor} about a pixel, between zoomed all the way out and {@link #MIN_CELLS_ACROSS}
+     * cells across the view.
+     *
+     * @return whether the zoom changed
+     */
+    boolean zoomBy(float factor, float focusX, float focusY) {
+        float maxCellSize = Math.max(fitCellSize, (float) Math.min(width, height) / MIN_CELLS_ACROSS);
+        float newCellSize = Math.max(fitCellSize, Math.min(maxCellSize, zoomCellSize * factor));
+        if (newCellSize == zoomCellSize) return false;
+        float k = newCellSize / zoomCellSize;
+        zoomOffsetX = focusX - (focusX - zoomOffsetX) * k;
+        zoomOffsetY = focusY - (focusY - zoomOffsetY) * k;
+        zoomCellSize = newCellSize;
+        clampPan();
+        return true;
+    }
+
+    void panBy(float dx, float dy) {
+        zoomOffsetX += dx;
+        zoomOffsetY += dy;
+        clampPan();
+    }
+
+    // an arena that fits stays centered, a larger one can't be dragged further than its labels
+    private void clampPan() {
+        zoomOffsetX = clampOffset(zoomOffsetX, columns * zoomCellSize, width);
+        zoomOffsetY = clampOffset(zoomOffsetY, rows * zoomCellSize, height);
+    }
+
+    private float clampOffset(float offset, float extent, int viewSize) {
+        float margin = zoomCellSize; // axis labels
+        if (extent + 2 * margin <= viewSize) return (viewSize - extent) / 2;
+        return Math.max(viewSize - extent - margin, Math.min(margin, offset));
+    }
+
+    /**
+     * How much the zoom is scaled relative to the recorded geometry: on screen = recorded * scale + delta.
+     */
+    float deltaScale() {
+        return zoomCellSize / cellSize;
+    }
+
+    float deltaX() {
+        return zoomOffsetX - offsetX * deltaScale();
+    }
+
+    float deltaY() {
+        return zoomOffsetY - offsetY * deltaScale();
+    }
+
+    /**
+     * Pixel of the recorded geometry that is at {@code screenX} at the current zoom, e.g. to draw under a finger.
+     */
+    float recordedX(float screenX) {
+        return (screenX - deltaX()) / deltaScale();
+    }
+
+    float recordedY(float screenY) {
+        return (screenY - deltaY()) / deltaScale();
+    }
+
+    /**
+     * Whether the layers as recorded are still good enough for the zoom: no less than half and no more than twice
+     * the detail it calls for, with every cell now on screen recorded.
+     */
+    boolean recordingFits() {
+        float scale = deltaScale();
+        if (scale > 2 || scale < 0.5f) return false;
+        setRecordingVisible();
+        return Math.max(0, columnAt(0)) >= minColumn && Math.min(columns - 1, columnAt(width)) <= maxColumn
+                && Math.max(0, rowAt(height)) >= minRow && Math.min(rows - 1, rowAt(0)) <= maxRow;
+    }
+
+    /**
+     * Whether the recorded geometry is the zoom, bar the rounding.
+     */
+    boolean isRecordedAtZoom() {
+        return cellSize == Math.max(1, Math.round(zoomCellSize))
+                && offsetX == Math.round(zoomOffsetX) && offsetY == Math.round(zoomOffsetY);
+    }
+
+    /**
+     * Sets the visible cells to those recorded: the view and as much again around it, so a pan within that
+     * doesn't have to record the layers again.
+     */
+    void setRecordingVisible() {
+        setVisible(-width, -height, 2 * width, 2 * height);
+    }
+
+    /**
+     * Sets the visible cells to those overlapping the given pixels of the recorded geometry.
+     */
+    void setVisible(int left, int top, int right, int bottom) {
+        minColumn = Math.max(0, Math.floorDiv(left - offsetX, cellSize));
+        maxColumn = Math.min(columns - 1, Math.floorDiv(right - offsetX, cellSize));
+        minRow = Math.max(0, rows - 1 - Math.floorDiv(bottom - offsetY, cellSize));
+        maxRow = Math.min(rows - 1, rows - 1 - Math.floorDiv(top - offsetY, cellSize));
+    }
+
+    boolean hasVisibleCells() {
+        return minColumn <= maxColumn && minRow <= maxRow;
+    }
+
+    int left(int x) {
+        return offsetX + x * cellSize;
+    }
+
+    int top(int y) {
+        return offsetY + (rows - 1 - y) * cellSize;
+    }
+
+    /**
+     * Pixel at the center of a possibly fractional column, e.g. for a robot between cells.
+     */
+    float centerX(double x) {
+        return (float) (offsetX + (x + 0.5) * cellSize);
+    }
+
+    float centerY(double y) {
+        return (float) (offsetY + (rows - 0.5 - y) * cellSize);
+    }
+
+    /**
+     * Column under a pixel on screen, at the current zoom, may be outside the arena.
+     */
+    int columnAt(float px) {
+        return (int) Math.floor((px - zoomOffsetX) / zoomCellSize);
+    }
+
+    /**
+     * Row (y) under a pixel on screen, at the current zoom, may be outside the arena.
+     */
+    int rowAt(float py) {
+        return rows - 1 - (int) Math.floor((py - zoomOffsetY) / zoomCellSize);
+    }
+
+    /**
+     * Draw every n-th line or label, n being the smallest of 1, 2, 5, 10, 20, 50, ... that keeps them at least
+     * {@code minSpacingPx} apart. Keeps the work per frame flat as cells get smaller.
+     */
+    static int stride(int cellSize, int minSpacingPx) {
+        for (int scale = 1; ; scale *= 10) {
+            for (int step : STRIDE_STEPS) {
+                long n = (long) step * scale;
+                if (n * cellSize >= minSpacingPx || n >= Grid.MAX_SIZE) return (int) n;
+            }
+        }
+    }
+}
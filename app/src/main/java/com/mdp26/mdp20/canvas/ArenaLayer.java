@@ -0,0 +1,162 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+
+import com.mdp26.mdp20.Facing;
+
+import java.util.Arrays;
+
+/**
+ * One layer of the {@link ArenaView}, drawn in order on top of the layers before it.
+ * <p> Each layer is recorded into its own {@link RenderNode} and replayed until {@link #invalidate()} is called, so
+ * e.g. a robot move re-records the robot layer only. New layers go in with {@link ArenaView#addLayer}.
+ */
+abstract class ArenaLayer {
+    static final int MIN_DETAIL_CELL_PX = 12; // smaller cells get no text or shadows
+    private static String[] labels = new String[Grid.DEFAULT_SIZE]; // main thread only
+    private final RenderNode node;
+    private boolean recorded = false;
+    private ArenaView view = null;
+    private float translationX, translationY, rotation, pivotX, pivotY;
+
+    protected ArenaLayer(String name) {
+        this.node = new RenderNode(name);
+        node.setClipToBounds(false); // recorded beyond the view, for panning
+    }
+
+    /**
+     * Draws the layer in view coordinates, only the {@link ArenaGeometry#hasVisibleCells() visible cells} need to be.
+     */
+    protected abstract void onDraw(Canvas canvas, ArenaGeometry geometry);
+
+    /**
+     * Records the layer into its {@link RenderNode}, by default with {@link #onDraw}. A layer may override this to
+     * keep parts of its drawing in nodes of its own and replay those.
+     *
+     * @param width  size of the node, see {@link RenderNode#beginRecording(int, int)}
+     * @param height size of the node, see {@link RenderNode#beginRecording(int, int)}
+     */
+    protected void onRecord(RecordingCanvas canvas, ArenaGeometry geometry, int width, int height) {
+        onDraw(canvas, geometry);
+    }
+
+    /**
+     * Releases whatever {@link #onRecord} kept besides the layer's own node.
+     */
+    protected void onDiscard() {
+    }
+
+    /**
+     * Loads theme dependent paints, called once when added and again on configuration changes.
+     */
+    protected void onThemeChanged(Context context) {
+    }
+
+    /**
+     * Has the layer recorded again on the next frame.
+     */
+    public final void invalidate() {
+        recorded = false;
+        if (view != null) view.invalidate();
+    }
+
+    /**
+     * Moves the layer by (dx, dy) and turns it about (pivotX, pivotY) without recording it again, e.g. to animate it.
+     */
+    final void setTransform(float dx, float dy, float degrees, float pivotX, float pivotY) {
+        translationX = dx;
+        translationY = dy;
+        rotation = degrees;
+        this.pivotX = pivotX;
+        this.pivotY = pivotY;
+        node.setTranslationX(dx);
+        node.setTranslationY(dy);
+        node.setPivotX(pivotX);
+        node.setPivotY(pivotY);
+        node.setRotationZ(degrees);
+    }
+
+    final void attach(ArenaView view) {
+        this.view = view;
+        onThemeChanged(view.getContext());
+        recorded = false;
+    }
+
+    final void detach() {
+        view = null;
+        discard();
+    }
+
+    final void discard() {
+        node.discardDisplayList();
+        onDiscard();
+        recorded = false;
+    }
+
+    // hardware canvases only
+    final void drawCached(Canvas canvas, ArenaGeometry geometry, int width, int height) {
+        if (!recorded) {
+            node.setPosition(0, 0, width, height);
+            RecordingCanvas recording = node.beginRecording(width, height);
+            try {
+                geometry.setRecordingVisible(); // more than the view, replayed whatever part is redrawn or panned to
+                onRecord(recording, geometry, width, height);
+            } finally {
+                node.endRecording();
+            }
+            recorded = true;
+        }
+        canvas.drawRenderNode(node);
+    }
+
+    // software canvases, same transform as the node
+    final void drawDirect(Canvas canvas, ArenaGeometry geometry) {
+        int saveCount = canvas.save();
+        canvas.translate(translationX, translationY);
+        canvas.rotate(rotation, pivotX, pivotY);
+        onDraw(canvas, geometry);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * The decimal string for {@code i}, formatted once and reused, e.g. for axis labels and obstacle ids.
+     */
+    static String label(int i) {
+        if (i >= labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(i + 1, labels.length * 2));
+        }
+        if (labels[i] == null) labels[i] = String.valueOf(i);
+        return labels[i];
+    }
+
+    /**
+     * A block with a drop shadow towards the bottom right, for obstacles and the robot.
+     */
+    static void drawBlock(Canvas canvas, int left, int top, int right, int bottom, int shadowOffset,
+                          Paint body, Paint shadow) {
+        if (shadowOffset > 0) {
+            canvas.drawRect(left + shadowOffset, top + shadowOffset, right + shadowOffset, bottom + shadowOffset,
+                    shadow);
+        }
+        canvas.drawRect(left, top, right, bottom, body);
+    }
+
+    /**
+     * A strip along the side of a block that faces {@code facing}.
+     */
+    static void drawFacingStrip(Canvas canvas, Facing facing, int left, int top, int right, int bottom,
+                                int thickness, Paint paint) {
+        switch (facing) {
+            case NORTH -> canvas.drawRect(left, top, right, top + thickness, paint);
+            case EAST -> canvas.drawRect(right - thickness, top, right, bottom, paint);
+            case SOUTH -> canvas.drawRect(left, bottom - thickness, right, bottom, paint);
+            case WEST -> canvas.drawRect(left, top, left + thickness, bottom, paint);
+            case SKIP -> {
+            }
+        }
+    }
+}
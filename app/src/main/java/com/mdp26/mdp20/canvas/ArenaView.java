@@ -0,0 +1,334 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.mdp26.mdp20.bluetooth.LatencyHistogram;
+import com.mdp26.mdp20.bluetooth.RobotMoveCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws the arena: grid lines, start region and axis labels, then the obstacles of a {@link Grid}, then the
+ * {@link RobotTrail}, then the {@link Robot}, then any overlays added with {@link #addLayer}.
+ * <p> All layers share one {@link ArenaGeometry}, which touch handling uses too ({@link #columnAt}, {@link #rowAt}),
+ * so they can't drift apart. Each {@link ArenaLayer} is recorded into its own {@code RenderNode} and only recorded
+ * again when it changes, e.g. a robot move re-records the robot layer and replays the rest.
+ * <p> A grid change re-records just the obstacle tiles of the cells it touched, see {@link Grid.Listener} and
+ * {@link ObstacleLayer}.
+ * <p> Pinch and pan ({@link #zoomBy}, {@link #panBy}) change only the transform the recorded layers are replayed
+ * with, the layers are recorded again for the new zoom once the gesture ends, see {@link ArenaGeometry}.
+ * <p> The robot glides between position reports, see {@link RobotMotion}. Each frame of that only moves the recorded
+ * robot layer, nothing is recorded again or allocated.
+ * Time spent in {@link #onDraw} is kept in {@link #getDrawTimes()}.
+ */
+public class ArenaView extends View {
+    private static final String TAG = "ArenaView";
+    private final ArenaGeometry geometry = new ArenaGeometry();
+    private final StaticLayer staticLayer = new StaticLayer();
+    private final ObstacleLayer obstacleLayer = new ObstacleLayer();
+    private final TrailLayer trailLayer = new TrailLayer();
+    private final RobotLayer robotLayer = new RobotLayer();
+    private final DragLayer dragLayer = new DragLayer();
+    private final List<ArenaLayer> layers = new ArrayList<>(); // bottom to top
+    private final Rect clip = new Rect();
+    private boolean layersCached = true;
+    private final LatencyHistogram drawTimes = new LatencyHistogram();
+    private Grid grid;
+    private Robot robot;
+    private RobotTrail trail;
+    private final Grid.Listener gridListener = this::invalidateCells;
+    private final RobotTrail.Listener trailListener = trailLayer::invalidate;
+    private final RobotMotion robotMotion = new RobotMotion();
+    private final Rect robotDirty = new Rect(); // where the robot was last drawn
+    private boolean robotFramePosted = false;
+    private final Choreographer.FrameCallback robotFrame = this::onRobotFrame;
+    private final Robot.Listener robotListener = (oldX, oldY, newX, newY) -> {
+        robotLayer.invalidate(); // recorded at the new cell
+        followRobot(robotMotion.onPose(newX, newY, robot.getFacing(), System.nanoTime()));
+    };
+
+    public ArenaView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        addLayer(staticLayer);
+        addLayer(obstacleLayer);
+        addLayer(trailLayer);
+        addLayer(robotLayer);
+        addLayer(dragLayer);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * Adds a layer on top of the existing ones.
+     */
+    void addLayer(ArenaLayer layer) {
+        layers.add(layer);
+        layer.attach(this);
+        invalidate();
+    }
+
+    void removeLayer(ArenaLayer layer) {
+        if (layers.remove(layer)) {
+            layer.detach();
+            invalidate();
+        }
+    }
+
+    public void setGrid(Grid grid) {
+        if (this.grid != null) this.grid.removeListener(gridListener);
+        this.grid = grid;
+        if (isAttachedToWindow()) grid.addListener(gridListener);
+        obstacleLayer.setGrid(grid);
+        dragLayer.setGrid(grid);
+        layoutArena(getWidth(), getHeight()); // the arena size may differ
+    }
+
+    public void setRobot(Robot robot) {
+        if (this.robot != null) this.robot.removeListener(robotListener);
+        this.robot = robot;
+        if (isAttachedToWindow()) robot.addListener(robotListener);
+        robotLayer.setRobot(robot);
+        snapRobot();
+    }
+
+    /**
+     * Draws where the robot has been, under the robot. May be null to hide it.
+     */
+    public void setTrail(RobotTrail trail) {
+        if (this.trail != null) this.trail.removeListener(trailListener);
+        this.trail = trail;
+        if (trail != null && isAttachedToWindow()) trail.addListener(trailListener);
+        trailLayer.setTrail(trail);
+    }
+
+    /**
+     * Tells the robot animation that a move command went out, so it heads for where the command ends.
+     * Call before applying the command to the {@link Robot}.
+     */
+    public void robotCommandSent(RobotMoveCommand command) {
+        robotMotion.commandSent(command, System.nanoTime());
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (grid != null) grid.addListener(gridListener);
+        if (robot != null) robot.addListener(robotListener);
+        if (trail != null) {
+            trail.addListener(trailListener);
+            trailLayer.invalidate(); // missed any points while detached
+        }
+        snapRobot(); // missed any moves while detached
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // the grid and robot outlive the activity
+        if (grid != null) grid.removeListener(gridListener);
+        if (robot != null) robot.removeListener(robotListener);
+        if (trail != null) trail.removeListener(trailListener);
+        Choreographer.getInstance().removeFrameCallback(robotFrame);
+        robotFramePosted = false;
+        Log.d(TAG, "onDraw times (us, layers " + (layersCached ? "cached" : "redrawn") + "): "
+                + drawTimes.getSnapshot());
+        for (ArenaLayer layer : layers) layer.discard();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutArena(w, h);
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        for (ArenaLayer layer : layers) {
+            layer.onThemeChanged(getContext()); // colors may come from another theme now
+            layer.invalidate();
+        }
+    }
+
+    private void layoutArena(int w, int h) {
+        int columns = grid == null ? Grid.DEFAULT_SIZE : grid.getWidth();
+        int rows = grid == null ? Grid.DEFAULT_SIZE : grid.getHeight();
+        geometry.layout(w, h, columns, rows);
+        robotLayer.follow(robotMotion, geometry);
+        invalidateLayers();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        long start = System.nanoTime();
+        int saveCount = canvas.save();
+        // from the geometry the layers were recorded with to the current zoom
+        canvas.translate(geometry.deltaX(), geometry.deltaY());
+        canvas.scale(geometry.deltaScale(), geometry.deltaScale());
+        if (layersCached && canvas.isHardwareAccelerated()) {
+            for (ArenaLayer layer : layers) {
+                layer.drawCached(canvas, geometry, getWidth(), getHeight());
+            }
+        } else if (canvas.getClipBounds(clip)) {
+            // e.g. a software layer, which can't replay a RenderNode: draw what is inside the clip only
+            geometry.setVisible(clip.left, clip.top, clip.right, clip.bottom);
+            for (ArenaLayer layer : layers) {
+                layer.drawDirect(canvas, geometry);
+            }
+        }
+        canvas.restoreToCount(saveCount);
+        drawTimes.recordNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Has every layer recorded again on the next frame.
+     */
+    public void invalidateLayers() {
+        for (ArenaLayer layer : layers) layer.invalidate();
+    }
+
+    /**
+     * Repaints the obstacles in the given cells, inclusive. Only their tiles of the obstacle layer are recorded
+     * again, the rest of the arena is replayed.
+     */
+    public void invalidateCells(int minX, int minY, int maxX, int maxY) {
+        obstacleLayer.invalidateCells(minX, minY, maxX, maxY);
+    }
+
+    // a rect of the recorded geometry, where it is on screen at the current zoom
+    private void invalidateRecorded(Rect r) {
+        float scale = geometry.deltaScale(), dx = geometry.deltaX(), dy = geometry.deltaY();
+        invalidate((int) Math.floor(r.left * scale + dx), (int) Math.floor(r.top * scale + dy),
+                (int) Math.ceil(r.right * scale + dx), (int) Math.ceil(r.bottom * scale + dy));
+    }
+
+    /**
+     * Zooms in ({@code factor > 1}) or out about a pixel of this view, e.g. the focus of a pinch. Call
+     * {@link #endGesture()} when the fingers lift.
+     */
+    public void zoomBy(float factor, float focusX, float focusY) {
+        if (geometry.zoomBy(factor, focusX, focusY)) zoomChanged();
+    }
+
+    public void panBy(float dx, float dy) {
+        geometry.panBy(dx, dy);
+        zoomChanged();
+    }
+
+    /**
+     * Records the layers again at the zoom the gesture ended on, for full detail.
+     */
+    public void endGesture() {
+        if (!geometry.isRecordedAtZoom()) recordAtZoom();
+    }
+
+    public void resetZoom() {
+        layoutArena(getWidth(), getHeight());
+    }
+
+    private void zoomChanged() {
+        if (geometry.recordingFits()) {
+            invalidate(); // just replayed with another transform
+        } else {
+            recordAtZoom(); // zoomed too far or panned out of what was recorded
+        }
+    }
+
+    private void recordAtZoom() {
+        geometry.record();
+        robotLayer.follow(robotMotion, geometry);
+        invalidateLayers();
+    }
+
+    private void snapRobot() {
+        if (robot == null) return;
+        robotMotion.snapTo(robot.getPosition().getXInt(), robot.getPosition().getYInt(), robot.getFacing(),
+                System.nanoTime());
+        followRobot(false);
+    }
+
+    private void onRobotFrame(long frameTimeNanos) {
+        robotFramePosted = false;
+        if (robot != null) followRobot(robotMotion.step(frameTimeNanos));
+    }
+
+    // moves the robot layer to the animated pose, repaints where it was and is, and asks for another frame if needed
+    private void followRobot(boolean moving) {
+        robotLayer.follow(robotMotion, geometry);
+        invalidateRecorded(robotDirty);
+        RobotLayer.footprint(geometry, robotMotion.getX(), robotMotion.getY(), robotDirty);
+        invalidateRecorded(robotDirty);
+        if (moving && !robotFramePosted) {
+            robotFramePosted = true;
+            Choreographer.getInstance().postFrameCallback(robotFrame);
+        }
+    }
+
+    /**
+     * Turns the cached layers off to compare frame times, see {@link #getDrawTimes()}. On by default.
+     */
+    public void setLayersCached(boolean cached) {
+        layersCached = cached;
+        drawTimes.reset();
+        invalidateLayers();
+    }
+
+    public boolean isLayersCached() {
+        return layersCached;
+    }
+
+    /**
+     * Time spent in {@link #onDraw} per frame, in microseconds. Reset by {@link #setLayersCached}.
+     */
+    public LatencyHistogram getDrawTimes() {
+        return drawTimes;
+    }
+
+    /**
+     * Column of the arena under a pixel of this view, may be outside the arena.
+     */
+    public int columnAt(float px) {
+        return geometry.columnAt(px);
+    }
+
+    /**
+     * Row (y, 0 at the bottom) of the arena under a pixel of this view, may be outside the arena.
+     */
+    public int rowAt(float py) {
+        return geometry.rowAt(py);
+    }
+
+    /**
+     * Size of a cell on screen, at the current zoom.
+     */
+    public int getCellSize() {
+        return Math.round(geometry.zoomCellSize);
+    }
+
+    /**
+     * Previews {@code obstacle}, picked up at cell ({@code homeX}, {@code homeY}), being dragged to a pixel of this
+     * view, over everything else. The ghost is drawn ({@code leadX}, {@code leadY}) ahead of the pixel, the target
+     * cell is the one under it. Only the preview is redrawn, the grid is not touched until the drop.
+     */
+    public void showDrag(GridObstacle obstacle, int homeX, int homeY, float x, float y, float leadX, float leadY) {
+        dragLayer.show(obstacle, homeX, homeY, x, y, leadX, leadY);
+    }
+
+    public void hideDrag() {
+        dragLayer.hide();
+    }
+}
@@ -7,12 +7,13 @@ import android.content.Context;
 import android.widget.Toast;
 
 import com.mdp26.mdp20.MyApplication;
-import com.mdp26.mdp20.bluetooth.BluetoothMessage;
 import com.mdp26.mdp20.Facing;
 
 import java.util.Optional;
 
 import com.mdp26.mdp20.CanvasActivity;
+import com.mdp26.mdp20.log.LogEntry;
+import com.mdp26.mdp20.log.LogKind;
 
 /**
  * Handles all touch interactions with the canvas. Namely:
@@ -21,7 +22,10 @@ import com.mdp26.mdp20.CanvasActivity;
  * lifted
  * Obstacle replacement is not allowed if the finger is lifted over an occupied
  * grid cell</li>
- * <li>Touch & hold in an occupied spot, then drag to move/remove obstacle</li>
+ * <li>Touch & hold in an occupied spot, then drag to move/remove obstacle. A ghost of it follows the finger,
+ * see {@link ArenaView#showDrag}</li>
+ * <li>Pinch with two fingers to zoom, drag with them to pan. Nothing is edited once a second finger touches down,
+ * until all fingers are lifted</li>
  * </ul>
  * Extra: Uses vibration to feedback to the user.
  */
@@ -36,6 +40,15 @@ public class CanvasTouchController implements View.OnTouchListener {
 
     // to track x and y touched down on
     private int downX = 0, downY = 0;
+    // drag preview: last touch sample and the finger's velocity in px/ms, smoothed over the samples
+    private float sampleX, sampleY;
+    private long sampleTime;
+    private float velocityX, velocityY;
+    private static final float PREDICTION_MS = 8; // about half a frame, the rest of the lag is the display's
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+    // pinch and pan: centroid of the fingers and their mean distance from it, last event
+    private boolean gesture = false;
+    private float focusX, focusY, span;
 
     public CanvasTouchController(CanvasActivity activity, MyApplication myApp) {
         this.activity = activity;
@@ -50,54 +63,95 @@ public class CanvasTouchController implements View.OnTouchListener {
 
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        CanvasView canvasView = (CanvasView) v;
-        int x = (int) ((event.getX() - canvasView.getOffsetX()) / canvasView.getCellSize());
-        int y = (int) ((event.getY() - canvasView.getOffsetY()) / canvasView.getCellSize());
-        y = (Grid.GRID_SIZE - 1) - y; // Flip Y to match bottom-left origin
+        ArenaView arenaView = (ArenaView) v;
+        int x = arenaView.columnAt(event.getX());
+        int y = arenaView.rowAt(event.getY()); // bottom-left origin
 
-        switch (event.getAction()) {
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
                 downX = x;
                 downY = y;
+                sampleX = event.getX();
+                sampleY = event.getY();
+                sampleTime = event.getEventTime();
+                velocityX = velocityY = 0;
                 Log.d(TAG, "Touched down at (" + downX + ", " + downY + ")");
                 if (grid.isInsideGrid(downX, downY)) {
                     selectedObstacle = grid.findObstacleWithApproxPos(downX, downY, SELECTION_RADIUS);
                     selectedObstacle.ifPresent(obst -> {
                         Log.d(TAG, "Selected obstacle at " + obst.getPosition());
                         obst.setSelected(true);
-                        canvasView.invalidate();
+                        grid.obstacleChanged(obst);
                     });
                 }
                 break;
 
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (!gesture) {
+                    gesture = true;
+                    arenaView.hideDrag();
+                    clearSelection(); // a second finger: zoom or pan, not an edit
+                }
+                trackFingers(event, -1);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (gesture) {
+                    float lastX = focusX, lastY = focusY, lastSpan = span;
+                    trackFingers(event, -1);
+                    if (lastSpan > 0 && span > 0) arenaView.zoomBy(span / lastSpan, focusX, focusY);
+                    arenaView.panBy(focusX - lastX, focusY - lastY);
+                } else if (selectedObstacle.isPresent()) {
+                    trackDrag(event);
+                    float lead = Math.min(PREDICTION_MS, (float) arenaView.getCellSize() / 2
+                            / Math.max(1e-3f, (float) Math.hypot(velocityX, velocityY))); // at most half a cell
+                    // the target cell follows the last real sample, like the drop, only the ghost runs ahead
+                    arenaView.showDrag(selectedObstacle.get(), downX, downY, sampleX, sampleY,
+                            velocityX * lead, velocityY * lead);
+                }
+                break;
+
+            case MotionEvent.ACTION_POINTER_UP:
+                if (gesture) trackFingers(event, event.getActionIndex()); // carry on with the fingers left
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                arenaView.hideDrag();
+                clearSelection();
+                endGesture(arenaView);
+                break;
+
             case MotionEvent.ACTION_UP:
                 v.performClick();
+                arenaView.hideDrag(); // the drop below changes the grid, once
+                if (gesture) {
+                    endGesture(arenaView);
+                    break;
+                }
                 Log.d(TAG, "Touched up at (" + x + ", " + y + ")");
                 if (selectedObstacle.isPresent()) {
                     GridObstacle obstacle = selectedObstacle.get();
                     obstacle.setSelected(false);
+                    grid.obstacleChanged(obstacle);
                     int oldX = obstacle.getPosition().getXInt();
                     int oldY = obstacle.getPosition().getYInt();
                     Log.d(TAG, downX + " " + downY + " " + x + " " + y);
                     if (downX == x && downY == y) { // if the finger is lifted on the same cell
                         // Rotate obstacle clockwise if lifted on the same cell
-                        obstacle.rotateClockwise();
+                        grid.rotateObstacle(obstacle);
                         Log.d(TAG, "Rotated obstacle clockwise at " + obstacle.getPosition());
-                        canvasView.invalidate(); // Refresh canvas
-                        rebuildRemoteMap();
+                        syncRemoteMap();
                     } else if (!grid.isInsideGrid(x, y)) { // if finger lifted outside of grid
                         // Remove if lifted outside the grid
                         grid.removeObstacle(oldX, oldY);
                         Log.d(TAG, "Removed obstacle at (" + oldX + ", " + oldY + ")");
-                        canvasView.invalidate(); // Refresh canvas
-                        rebuildRemoteMap();
+                        syncRemoteMap();
                     } else if (!grid.hasObstacle(x, y)) { // if finger lifted on empty cell
                         // Move obstacle only if lifted on an empty cell
-                        obstacle.updatePosition(x, y);
+                        grid.moveObstacle(obstacle, x, y);
                         Log.d(TAG, "Moved obstacle from (" + oldX + ", " + oldY + ") to (" + x + ", " + y + ")");
                         Toast.makeText(myApp, "Moved obst to (" + x + ", " + y + ")", Toast.LENGTH_SHORT).show();
-                        canvasView.invalidate(); // Refresh canvas
-                        rebuildRemoteMap();
+                        syncRemoteMap();
                     }
                 } else {
                     // If no obstacle was selected, add a new one
@@ -106,36 +160,72 @@ public class CanvasTouchController implements View.OnTouchListener {
                         grid.addObstacle(obstacle);
                         Log.d(TAG, "Added new obstacle at (" + x + ", " + y + ")");
                         Toast.makeText(myApp, "Added obst at (" + x + ", " + y + ")", Toast.LENGTH_SHORT).show();
-                        canvasView.invalidate(); // Refresh canvas
-                        rebuildRemoteMap();
+                        syncRemoteMap();
                     }
                 }
                 selectedObstacle = Optional.empty(); // Clear selection
                 break;
-    }
+        }
         return true;
     }
 
-    private void rebuildRemoteMap() {
-        if (myApp.btConnection() == null) return;
-        
-        // Wipe remote RPi Bank
-        String strClear = "CLEAR";
-        myApp.btConnection().sendMessage(strClear);
-        activity.logMessage("SENT", strClear, "#00BCD4");
-        
-        // Broadcast clean map sequentially
-        for (GridObstacle obs : grid.getObstacleList()) {
-            BluetoothMessage msg = BluetoothMessage.ofObstacleEventMessage(
-                obs.getId(), 
-                obs.getPosition().getXInt(), 
-                obs.getPosition().getYInt(), 
-                obs.getFacing(), 
-                false
-            );
-            String msgStr = msg.getAsJsonMessage().getAsJson();
-            myApp.btConnection().sendMessage(msgStr);
-            activity.logMessage("SENT", msgStr, "#00BCD4");
+    // every sample since the last event, not just the latest, so the velocity holds up when events are batched
+    private void trackDrag(MotionEvent event) {
+        for (int h = 0; h < event.getHistorySize(); h++) {
+            addDragSample(event.getHistoricalX(h), event.getHistoricalY(h), event.getHistoricalEventTime(h));
         }
+        addDragSample(event.getX(), event.getY(), event.getEventTime());
+    }
+
+    private void addDragSample(float x, float y, long timeMs) {
+        long dt = timeMs - sampleTime;
+        if (dt > 0) {
+            velocityX += VELOCITY_SMOOTHING * ((x - sampleX) / dt - velocityX);
+            velocityY += VELOCITY_SMOOTHING * ((y - sampleY) / dt - velocityY);
+        }
+        sampleX = x;
+        sampleY = y;
+        sampleTime = timeMs;
+    }
+
+    // focus and span of the fingers down, without the one at skipIndex that is lifting
+    private void trackFingers(MotionEvent event, int skipIndex) {
+        int count = event.getPointerCount();
+        int fingers = skipIndex < 0 ? count : count - 1;
+        float sumX = 0, sumY = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == skipIndex) continue;
+            sumX += event.getX(i);
+            sumY += event.getY(i);
+        }
+        focusX = sumX / fingers;
+        focusY = sumY / fingers;
+        float sumDistance = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == skipIndex) continue;
+            sumDistance += (float) Math.hypot(event.getX(i) - focusX, event.getY(i) - focusY);
+        }
+        span = fingers > 1 ? sumDistance / fingers : 0; // no zooming with one finger left, just panning
+    }
+
+    private void endGesture(ArenaView arenaView) {
+        if (gesture) {
+            gesture = false;
+            arenaView.endGesture();
+        }
+    }
+
+    private void clearSelection() {
+        selectedObstacle.ifPresent(obstacle -> {
+            obstacle.setSelected(false);
+            grid.obstacleChanged(obstacle);
+        });
+        selectedObstacle = Optional.empty();
+    }
+
+    // only the obstacle just edited goes out, see ObstacleSyncEngine
+    private void syncRemoteMap() {
+        myApp.obstacleSync().sync(myApp.btConnection(), (frame, obstacleId) ->
+                activity.logMessage(LogEntry.Direction.SENT, LogKind.OBSTACLE, obstacleId, frame));
     }
 }
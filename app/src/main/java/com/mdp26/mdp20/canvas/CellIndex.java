@@ -0,0 +1,98 @@
+package com.mdp26.mdp20.canvas;
+
+import java.util.Arrays;
+
+/**
+ * Sparse map from cell index to obstacle slot, used by {@link Grid}.
+ * <p> Open addressing with linear probing over primitive arrays, so memory grows with the number of obstacles
+ * rather than with the arena's area, and lookups don't box.
+ */
+final class CellIndex {
+    static final int NONE = -1;
+    private static final int FREE = -1; // cell indexes are never negative
+
+    private int[] keys = new int[32];
+    private int[] values = new int[32];
+    private int size = 0;
+
+    CellIndex() {
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return the slot in {@code cell}, or {@link #NONE}
+     */
+    int get(int cell) {
+        int mask = keys.length - 1;
+        for (int i = mix(cell) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == cell) return values[i];
+            if (k == FREE) return NONE;
+        }
+    }
+
+    void put(int cell, int slot) {
+        if ((size + 1) * 2 > keys.length) grow(); // at most half full, keeps probes short
+        int mask = keys.length - 1;
+        int i = mix(cell) & mask;
+        while (keys[i] != FREE && keys[i] != cell) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == FREE) size++;
+        keys[i] = cell;
+        values[i] = slot;
+    }
+
+    void remove(int cell) {
+        int mask = keys.length - 1;
+        int i = mix(cell) & mask;
+        while (keys[i] != cell) {
+            if (keys[i] == FREE) return;
+            i = (i + 1) & mask;
+        }
+        // shift later entries of the run back, so no tombstones are needed
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            // move j into the gap unless its home lies cyclically in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == FREE) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // neighbouring cells have neighbouring indexes, spread them out
+    private static int mix(int cell) {
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
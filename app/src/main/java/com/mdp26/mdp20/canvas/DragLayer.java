@@ -0,0 +1,87 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.core.content.ContextCompat;
+
+import com.mdp26.mdp20.R;
+
+/**
+ * Overlay while an obstacle is dragged: a ghost of it under the finger, and the cell it would land on, red if
+ * taken. The ghost turns red outside the arena, where lifting removes the obstacle.
+ * <p> Only this layer is recorded again while the finger moves, the {@link Grid} is changed once on drop.
+ */
+final class DragLayer extends ArenaLayer {
+    private final Paint ghostPaint = new Paint();
+    private final Paint targetPaint = new Paint();
+    private final Paint invalidPaint = new Paint();
+    private Grid grid = null;
+    private GridObstacle obstacle = null;
+    private int homeX, homeY; // cell touched down on, lifting there rotates instead
+    private float fingerX, fingerY; // on screen
+    private float leadX, leadY; // the ghost is drawn this far ahead of the finger
+
+    DragLayer() {
+        super("ArenaDrag");
+    }
+
+    void setGrid(Grid grid) {
+        this.grid = grid;
+        hide();
+    }
+
+    /**
+     * Shows {@code obstacle}, picked up at cell ({@code homeX}, {@code homeY}), dragged to a pixel on screen.
+     * The target cell is the one under that pixel, as for the drop. Only the ghost is drawn
+     * ({@code leadX}, {@code leadY}) ahead of it, where the finger is predicted to be by the time the frame shows.
+     */
+    void show(GridObstacle obstacle, int homeX, int homeY, float x, float y, float leadX, float leadY) {
+        this.obstacle = obstacle;
+        this.homeX = homeX;
+        this.homeY = homeY;
+        this.fingerX = x;
+        this.fingerY = y;
+        this.leadX = leadX;
+        this.leadY = leadY;
+        invalidate();
+    }
+
+    void hide() {
+        if (obstacle == null) return;
+        obstacle = null;
+        invalidate();
+    }
+
+    @Override
+    protected void onThemeChanged(Context context) {
+        ghostPaint.setColor(ContextCompat.getColor(context, R.color.drag_ghost));
+        ghostPaint.setStyle(Paint.Style.FILL);
+
+        targetPaint.setColor(ContextCompat.getColor(context, R.color.drag_target));
+        targetPaint.setStyle(Paint.Style.FILL);
+
+        invalidPaint.setColor(ContextCompat.getColor(context, R.color.drag_target_invalid));
+        invalidPaint.setStyle(Paint.Style.FILL);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas, ArenaGeometry geometry) {
+        if (obstacle == null || grid == null) return;
+        int cellSize = geometry.cellSize;
+        int column = geometry.columnAt(fingerX), row = geometry.rowAt(fingerY);
+        boolean inside = grid.isInsideGrid(column, row);
+        boolean home = column == homeX && row == homeY;
+        if (inside && !home) { // lifting at home rotates it instead
+            int left = geometry.left(column), top = geometry.top(row);
+            canvas.drawRect(left, top, left + cellSize, top + cellSize,
+                    grid.hasObstacle(column, row) ? invalidPaint : targetPaint);
+        }
+
+        float centerX = geometry.recordedX(fingerX + leadX), centerY = geometry.recordedY(fingerY + leadY);
+        float half = cellSize / 2f;
+        canvas.drawRect(centerX - half, centerY - half, centerX + half, centerY + half,
+                inside ? ghostPaint : invalidPaint);
+    }
+}
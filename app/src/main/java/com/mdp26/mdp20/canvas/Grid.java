@@ -2,25 +2,85 @@ package com.mdp26.mdp20.canvas;
 
 import android.util.Log;
 
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.Position;
 import com.mdp26.mdp20.Target;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Logical representation / Data structure for the canvas grid.
  * <p> Contains {@link GridObstacle}s.
+ * <p> Every mutation bumps the grid's version and is recorded in a bounded change journal, so that
+ * e.g. the {@link com.mdp26.mdp20.bluetooth.ObstacleSyncEngine} can find out what changed since it last looked.
+ * Mutate obstacles through the grid ({@link #moveObstacle}, {@link #rotateObstacle}) for this to work.
+ * <p> Obstacles sit in a dense list of slots, indexed by cell (cell -> slot) and by id (id -> slot), so lookups by
+ * position or id don't scan the list. The cell index is sparse, so a large arena costs no more memory than a
+ * small one with the same obstacles.
+ * <p> The arena is {@link #getWidth()} by {@link #getHeight()} cells, (0,0) being the bottom-left cell.
+ * <p> {@link Listener}s hear which cells look different after each change, so views can repaint just those.
  */
 public class Grid {
 
     private static final String TAG = "Grid";
-    public static final int GRID_SIZE = 20;
+
+    /**
+     * Told about the cells whose contents changed, e.g. to invalidate just that part of a view.
+     */
+    public interface Listener {
+        /**
+         * Cells from (minX,minY) to (maxX,maxY), inclusive. A move is reported as the old cell, then the new one.
+         */
+        void onCellsChanged(int minX, int minY, int maxX, int maxY);
+    }
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 1000;
+    private static final int EMPTY = CellIndex.NONE;
     private static int idGen = 1;
-    private final List<GridObstacle> obstacleList; // list represents obstacles currently added
+    public static final int JOURNAL_SIZE = 256;
+    // obstacles currently added, dense: removing one moves the last into its slot
+    private final List<GridObstacle> obstacleList;
+    private final CellIndex cellSlot = new CellIndex(); // cell index -> slot
+    private final int width;
+    private final int height;
+    private int[] idSlot = new int[64]; // obstacle id -> slot, EMPTY if no such obstacle
 
-    public Grid() {
+    private final List<Listener> listeners = new ArrayList<>();
+    private long version = 0; // number of changes made so far
+    private final GridChange[] journal = new GridChange[JOURNAL_SIZE]; // ring, change v is at v % JOURNAL_SIZE
+
+    /**
+     * @param width  cells per row, at most {@link #MAX_SIZE}
+     * @param height cells per column, at most {@link #MAX_SIZE}
+     */
+    public Grid(int width, int height) {
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Arena size out of range: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
         obstacleList = new ArrayList<>();
+        Arrays.fill(idSlot, EMPTY);
+    }
+
+    /**
+     * The standard {@value #DEFAULT_SIZE} by {@value #DEFAULT_SIZE} arena.
+     */
+    public Grid() {
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
     }
 
     /**
@@ -31,9 +91,20 @@ public class Grid {
      * @return true if placed successfully, false if out of bounds or position occupied.
      */
     public boolean addObstacle(GridObstacle obstacle) {
-        // skip check if obstacle not alr at same position
+        int x = obstacle.getPosition().getXInt();
+        int y = obstacle.getPosition().getYInt();
+        if (!isInsideGrid(x, y) || cellSlot.get(cellIndex(x, y)) != EMPTY) {
+            Log.d(TAG, "Cannot add obstacle at (" + x + ", " + y + ")");
+            return false;
+        }
+        int slot = obstacleList.size();
         obstacleList.add(obstacle);
         obstacle.setId(idGen++); // set the id to an auto-inc id
+        obstacle.setGrid(this);
+        cellSlot.put(cellIndex(x, y), slot);
+        setIdSlot(obstacle.getId(), slot);
+        record(GridChange.Type.ADD, obstacle.getId());
+        cellChanged(x, y);
         Log.d(TAG, "Added obstacle: " + obstacle);
         return true;
     }
@@ -44,91 +115,300 @@ public class Grid {
      * @return true if an obstacle was removed, false if the position was empty.
      */
     public boolean removeObstacle(int x, int y) {
-        Optional<GridObstacle> foundObstacle = findObstacleWithPos(x, y);
-        if (foundObstacle.isPresent()) {
-            obstacleList.remove(foundObstacle.get());
-            Log.d(TAG, "Removed obstacle: " + foundObstacle.get());
-            return true;
+        int slot = slotAt(x, y);
+        if (slot == EMPTY) return false;
+        GridObstacle removed = obstacleList.get(slot);
+        cellSlot.remove(cellIndex(x, y));
+        idSlot[removed.getId()] = EMPTY;
+        int last = obstacleList.size() - 1;
+        if (slot != last) {
+            // fill the gap with the last obstacle, so no other slot changes
+            GridObstacle moved = obstacleList.get(last);
+            obstacleList.set(slot, moved);
+            cellSlot.put(cellIndex(moved.getPosition().getXInt(), moved.getPosition().getYInt()), slot);
+            idSlot[moved.getId()] = slot;
+        }
+        obstacleList.remove(last);
+        removed.setGrid(null);
+        record(GridChange.Type.REMOVE, removed.getId());
+        cellChanged(x, y);
+        Log.d(TAG, "Removed obstacle: " + removed);
+        return true;
+    }
+
+    /**
+     * Moves an obstacle of this grid to (x,y). {@link GridObstacle#updatePosition} ends up here too.
+     *
+     * @return false if (x,y) is outside the grid or taken by another obstacle, nothing is changed then
+     */
+    public boolean moveObstacle(GridObstacle obstacle, int x, int y) {
+        int slot = slotOf(obstacle);
+        if (slot == EMPTY) {
+            Log.e(TAG, "Not an obstacle of this grid: " + obstacle);
+            return false;
         }
-        return false;
+        int oldX = obstacle.getPosition().getXInt();
+        int oldY = obstacle.getPosition().getYInt();
+        if (oldX == x && oldY == y) return true;
+        if (!isInsideGrid(x, y) || cellSlot.get(cellIndex(x, y)) != EMPTY) return false;
+        cellSlot.remove(cellIndex(oldX, oldY));
+        cellSlot.put(cellIndex(x, y), slot);
+        obstacle.setPosition(x, y);
+        record(GridChange.Type.MOVE, obstacle.getId());
+        cellChanged(oldX, oldY);
+        cellChanged(x, y);
+        return true;
+    }
+
+    /**
+     * Rotates an obstacle of this grid clockwise.
+     */
+    public void rotateObstacle(GridObstacle obstacle) {
+        obstacle.rotateClockwise();
+        record(GridChange.Type.ROTATE, obstacle.getId());
+        obstacleChanged(obstacle);
     }
 
     /**
      * Gets the obstacle at a given position.
      */
     public Optional<GridObstacle> findObstacleWithPos(int x, int y) {
-        for (GridObstacle gridObstacle : obstacleList) {
-            if (gridObstacle.getPosition().getXInt() == x &&
-                    gridObstacle.getPosition().getYInt() == y) {
-                return Optional.of(gridObstacle);
-            }
-        }
-        return Optional.empty();
+        int slot = slotAt(x, y);
+        return slot == EMPTY ? Optional.empty() : Optional.of(obstacleList.get(slot));
     }
 
     /**
-     * Gets the obstacle at a given approximate position.
+     * Gets the obstacle nearest to a given position, strictly within {@code SELECTION_RADIUS} cells of it.
+     * <p> Only the cells inside the radius are looked at, or the obstacles themselves if there are fewer of those.
      */
     public Optional<GridObstacle> findObstacleWithApproxPos(int touchX, int touchY, int SELECTION_RADIUS) {
-        Optional<GridObstacle> nearestObstacle = Optional.empty();
-        double minDistance = SELECTION_RADIUS; // Set threshold distance
+        if (SELECTION_RADIUS <= 0 || obstacleList.isEmpty()) return Optional.empty();
+        long limit = (long) SELECTION_RADIUS * SELECTION_RADIUS; // compare squared distances
+        int minX = Math.max(0, touchX - SELECTION_RADIUS + 1);
+        int maxX = Math.min(width - 1, touchX + SELECTION_RADIUS - 1);
+        int minY = Math.max(0, touchY - SELECTION_RADIUS + 1);
+        int maxY = Math.min(height - 1, touchY + SELECTION_RADIUS - 1);
+        if (minX > maxX || minY > maxY) return Optional.empty();
 
-        for (GridObstacle obstacle : getObstacleList()) {
-            int obsX = obstacle.getPosition().getXInt();
-            int obsY = obstacle.getPosition().getYInt();
-            double distance = Math.sqrt(Math.pow(touchX - obsX, 2) + Math.pow(touchY - obsY, 2));
+        int best = EMPTY;
+        long bestDistance = limit;
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > obstacleList.size()) {
+            for (int slot = 0; slot < obstacleList.size(); slot++) {
+                Position p = obstacleList.get(slot).getPosition();
+                long d = squaredDistance(touchX, touchY, p.getXInt(), p.getYInt());
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = slot;
+                }
+            }
+        } else {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int slot = cellSlot.get(cellIndex(x, y));
+                    if (slot == EMPTY) continue;
+                    long d = squaredDistance(touchX, touchY, x, y);
+                    if (d < bestDistance) {
+                        bestDistance = d;
+                        best = slot;
+                    }
+                }
+            }
+        }
+        return best == EMPTY ? Optional.empty() : Optional.of(obstacleList.get(best));
+    }
 
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearestObstacle = Optional.of(obstacle);
+    /**
+     * Adds the obstacles within the given cells, bounds inclusive, to {@code out}. For drawing just what is visible:
+     * looks up each cell, or goes through the obstacles if there are fewer of those.
+     */
+    public void collectObstaclesIn(int minX, int minY, int maxX, int maxY, List<GridObstacle> out) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        if (minX > maxX || minY > maxY) return;
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > obstacleList.size()) {
+            for (GridObstacle obstacle : obstacleList) {
+                int x = obstacle.getPosition().getXInt();
+                int y = obstacle.getPosition().getYInt();
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) out.add(obstacle);
+            }
+        } else {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int slot = cellSlot.get(cellIndex(x, y));
+                    if (slot != EMPTY) out.add(obstacleList.get(slot));
+                }
             }
         }
-        return nearestObstacle;
     }
 
     /**
      * Gets the obstacle from a given id.
      */
     public Optional<GridObstacle> findObstacleWithId(int obstacleId) {
-        for (GridObstacle gridObstacle : obstacleList) {
-            if (gridObstacle.getId() == obstacleId) {
-                return Optional.of(gridObstacle);
-            }
-        }
-        return Optional.empty();
+        int slot = slotOfId(obstacleId);
+        return slot == EMPTY ? Optional.empty() : Optional.of(obstacleList.get(slot));
     }
 
     /**
      * If there is an obstacle at (x,y), returns true
      */
     public boolean hasObstacle(int x, int y) {
-        return findObstacleWithPos(x, y).isPresent();
+        return slotAt(x, y) != EMPTY;
     }
 
     /**
-     * Returns list of obstacles (mutable). For usage in {@link CanvasView}.
+     * Returns a read-only view of the obstacles. For usage in {@link ArenaView}.
+     * <p> Use the grid to add, move or remove obstacles, so its indexes stay in step.
      */
     public List<GridObstacle> getObstacleList() {
-        return obstacleList;
+        return Collections.unmodifiableList(obstacleList);
     }
 
     public void updateObstacleTarget(int x, int y, int targetId) {
-        findObstacleWithPos(x, y).ifPresent(obstacle -> obstacle.setTarget(Target.of(targetId)));
+        int slot = slotAt(x, y);
+        if (slot == EMPTY) return;
+        GridObstacle obstacle = obstacleList.get(slot);
+        obstacle.setTarget(Target.of(targetId));
+        record(GridChange.Type.TARGET, obstacle.getId());
+        cellChanged(x, y);
     }
 
     public void updateObstacleTarget(int obstacleId, int targetId) {
-        findObstacleWithId(obstacleId).ifPresent(obstacle -> obstacle.setTarget(Target.of(targetId)));
+        int slot = slotOfId(obstacleId);
+        if (slot == EMPTY) return;
+        GridObstacle obstacle = obstacleList.get(slot);
+        obstacle.setTarget(Target.of(targetId));
+        record(GridChange.Type.TARGET, obstacleId);
+        obstacleChanged(obstacle);
+    }
+
+    /**
+     * Sets the facing the RPi reported for an obstacle. Not journaled, the RPi already knows.
+     */
+    public void updateObstacleFacing(int obstacleId, Facing facing) {
+        int slot = slotOfId(obstacleId);
+        if (slot == EMPTY) return;
+        GridObstacle obstacle = obstacleList.get(slot);
+        obstacle.setFacing(facing);
+        obstacleChanged(obstacle);
+    }
+
+    /**
+     * Removes the targets of all obstacles, e.g. when a new run starts.
+     */
+    public void clearTargets() {
+        for (GridObstacle obstacle : obstacleList) {
+            if (obstacle.getTarget() == null) continue;
+            obstacle.setTarget(null);
+            record(GridChange.Type.TARGET, obstacle.getId());
+            obstacleChanged(obstacle);
+        }
+    }
+
+    /**
+     * Tells the listeners an obstacle changed in a way the grid doesn't track, e.g. its selection.
+     */
+    public void obstacleChanged(GridObstacle obstacle) {
+        cellChanged(obstacle.getPosition().getXInt(), obstacle.getPosition().getYInt());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
     }
 
     public boolean isInsideGrid(int x, int y) {
-        return x >= 0 && x < GRID_SIZE && y >= 0 && y < GRID_SIZE;
+        return x >= 0 && x < width && y >= 0 && y < height;
     }
 
     /**
      * Clear all obstacles
      */
     public void clear() {
+        boolean hadObstacles = !obstacleList.isEmpty();
+        for (GridObstacle obstacle : obstacleList) {
+            obstacle.setGrid(null);
+        }
         obstacleList.clear();
+        cellSlot.clear();
+        Arrays.fill(idSlot, EMPTY);
         idGen = 1;
+        record(GridChange.Type.CLEAR, -1);
+        if (hadObstacles) {
+            for (Listener listener : listeners) {
+                listener.onCellsChanged(0, 0, width - 1, height - 1);
+            }
+        }
+    }
+
+    /**
+     * Incremented on every change, starts at 0.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Changes made after {@code sinceVersion}, oldest first.
+     *
+     * @return empty if the journal no longer reaches back that far, or the version is not one of this grid's
+     */
+    public Optional<List<GridChange>> getChangesSince(long sinceVersion) {
+        if (sinceVersion < 0 || sinceVersion > version || version - sinceVersion > JOURNAL_SIZE) {
+            return Optional.empty();
+        }
+        List<GridChange> changes = new ArrayList<>((int) (version - sinceVersion));
+        for (long v = sinceVersion + 1; v <= version; v++) {
+            changes.add(journal[(int) (v % JOURNAL_SIZE)]);
+        }
+        return Optional.of(changes);
+    }
+
+    private int cellIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    private static long squaredDistance(int x1, int y1, int x2, int y2) {
+        long dx = x1 - x2, dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    private int slotAt(int x, int y) {
+        return isInsideGrid(x, y) ? cellSlot.get(cellIndex(x, y)) : EMPTY;
+    }
+
+    private int slotOfId(int obstacleId) {
+        return obstacleId >= 0 && obstacleId < idSlot.length ? idSlot[obstacleId] : EMPTY;
+    }
+
+    // EMPTY unless the obstacle itself, not just one with the same id, is in this grid
+    private int slotOf(GridObstacle obstacle) {
+        int slot = slotOfId(obstacle.getId());
+        return slot != EMPTY && obstacleList.get(slot) == obstacle ? slot : EMPTY;
+    }
+
+    private void setIdSlot(int obstacleId, int slot) {
+        if (obstacleId >= idSlot.length) {
+            int length = idSlot.length;
+            idSlot = Arrays.copyOf(idSlot, Math.max(length * 2, obstacleId + 1));
+            Arrays.fill(idSlot, length, idSlot.length, EMPTY);
+        }
+        idSlot[obstacleId] = slot;
+    }
+
+    private void cellChanged(int x, int y) {
+        for (Listener listener : listeners) {
+            listener.onCellsChanged(x, y, x, y);
+        }
+    }
+
+    private void record(GridChange.Type type, int obstacleId) {
+        version++;
+        journal[(int) (version % JOURNAL_SIZE)] = new GridChange(version, type, obstacleId);
     }
 }
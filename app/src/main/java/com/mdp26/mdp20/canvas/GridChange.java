@@ -0,0 +1,18 @@
+package com.mdp26.mdp20.canvas;
+
+/**
+ * One entry in the {@link Grid}'s change journal, see {@link Grid#getChangesSince}.
+ *
+ * @param version    the grid's version right after this change
+ * @param obstacleId id of the affected obstacle, -1 for {@link Type#CLEAR}
+ */
+public record GridChange(long version, Type type, int obstacleId) {
+    public enum Type {
+        ADD,
+        MOVE,
+        ROTATE,
+        REMOVE,
+        TARGET,
+        CLEAR
+    }
+}
@@ -18,6 +18,7 @@ public class GridObstacle {
     private final Position position;
 
     private boolean selected; // to detect if the obstacle is being interacted with
+    private Grid grid = null; // the grid it was added to, keeps the grid's indexes in step with moves
 
     public GridObstacle(int x, int y, Facing facing) {
         this.id = 1;
@@ -69,11 +70,27 @@ public class GridObstacle {
         return position;
     }
 
-    public void updatePosition(int x, int y) {
+    /**
+     * Moves the obstacle, through its {@link Grid} if it is on one.
+     *
+     * @return false if the grid refused the move, see {@link Grid#moveObstacle}
+     */
+    public boolean updatePosition(int x, int y) {
+        if (grid != null) return grid.moveObstacle(this, x, y);
+        setPosition(x, y);
+        return true;
+    }
+
+    // only by Grid, after updating its indexes
+    void setPosition(int x, int y) {
         position.setX(x);
         position.setY(y);
     }
 
+    void setGrid(Grid grid) {
+        this.grid = grid;
+    }
+
     public void rotateClockwise() {
         if (this.facing == Facing.NORTH) {
             this.facing = Facing.EAST;
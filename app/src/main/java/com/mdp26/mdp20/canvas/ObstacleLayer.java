@@ -0,0 +1,217 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.graphics.Typeface;
+
+import androidx.core.content.ContextCompat;
+
+import com.mdp26.mdp20.R;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The obstacles of a {@link Grid}, with their id or target and facing. Shadows and text are left out once cells
+ * are too small to read them, and text grows with the cells when zoomed in.
+ * <p> Recorded in tiles of {@link #TILE_CELLS} by {@link #TILE_CELLS} cells, each in a {@link RenderNode} of its
+ * own. {@link #invalidateCells} records just the tiles of those cells again, the layer itself then only replays
+ * the tiles. Tiles without obstacles are left out.
+ */
+final class ObstacleLayer extends ArenaLayer {
+    static final int TILE_CELLS = 8;
+    private static final float SELECTED_STROKE = 4;
+    private static final float ID_TEXT_PER_CELL = 0.4f, TARGET_TEXT_PER_CELL = 0.5f;
+    private static final float MIN_ID_TEXT = 16, MIN_TARGET_TEXT = 21;
+    private final Paint obstaclePaint = new Paint();
+    private final Paint obstacleSelectedPaint = new Paint();
+    private final Paint obstacleShadowPaint = new Paint();
+    private final Paint idPaint = new Paint();
+    private final Paint targetPaint = new Paint();
+    private final Paint facingPaint = new Paint();
+    private final List<GridObstacle> visibleObstacles = new ArrayList<>();
+    private Grid grid = null;
+    // tile (tx, ty) is at ty * tileColumns + tx, null until it first has obstacles
+    private int tileColumns = 0;
+    private RenderNode[] tiles = new RenderNode[0];
+    private boolean[] tileRecorded = new boolean[0];
+    // the geometry the tiles were recorded with, they are all recorded again if it changes
+    private int tileCellSize, tileOffsetX, tileOffsetY, tileMinColumn, tileMaxColumn, tileMinRow, tileMaxRow;
+
+    ObstacleLayer() {
+        super("ArenaObstacles");
+    }
+
+    void setGrid(Grid grid) {
+        this.grid = grid;
+        onDiscard();
+        tileColumns = grid == null ? 0 : (grid.getWidth() + TILE_CELLS - 1) / TILE_CELLS;
+        int tileRows = grid == null ? 0 : (grid.getHeight() + TILE_CELLS - 1) / TILE_CELLS;
+        tiles = new RenderNode[tileColumns * tileRows];
+        tileRecorded = new boolean[tiles.length];
+        invalidate();
+    }
+
+    /**
+     * Records the tiles of the cells from (minX,minY) to (maxX,maxY), inclusive, again on the next frame.
+     */
+    void invalidateCells(int minX, int minY, int maxX, int maxY) {
+        if (tileColumns == 0) return;
+        int tileRows = tiles.length / tileColumns;
+        int minTx = Math.max(0, minX / TILE_CELLS), maxTx = Math.min(tileColumns - 1, maxX / TILE_CELLS);
+        int minTy = Math.max(0, minY / TILE_CELLS), maxTy = Math.min(tileRows - 1, maxY / TILE_CELLS);
+        for (int ty = minTy; ty <= maxTy; ty++) {
+            for (int tx = minTx; tx <= maxTx; tx++) {
+                tileRecorded[ty * tileColumns + tx] = false;
+            }
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onThemeChanged(Context context) {
+        obstaclePaint.setColor(ContextCompat.getColor(context, R.color.obstacle_body));
+        obstaclePaint.setStyle(Paint.Style.FILL);
+
+        obstacleSelectedPaint.setColor(ContextCompat.getColor(context, R.color.obstacle_selected));
+        obstacleSelectedPaint.setStyle(Paint.Style.STROKE);
+        obstacleSelectedPaint.setStrokeWidth(SELECTED_STROKE);
+
+        obstacleShadowPaint.setColor(ContextCompat.getColor(context, R.color.obstacle_shadow));
+        obstacleShadowPaint.setStyle(Paint.Style.FILL);
+
+        // ID text styling (obstacle IDs)
+        idPaint.setColor(ContextCompat.getColor(context, R.color.white));
+        idPaint.setTextAlign(Paint.Align.CENTER);
+        idPaint.setTypeface(Typeface.create("sans-serif", Typeface.BOLD));
+        idPaint.setFakeBoldText(false);
+        idPaint.setTextSize(MIN_ID_TEXT);
+
+        // Target styling
+        targetPaint.setColor(ContextCompat.getColor(context, R.color.status_success));
+        targetPaint.setTextAlign(Paint.Align.CENTER);
+        targetPaint.setTypeface(Typeface.create("sans-serif-black", Typeface.NORMAL));
+        targetPaint.setFakeBoldText(true);
+        targetPaint.setTextSize(MIN_TARGET_TEXT);
+
+        facingPaint.setColor(ContextCompat.getColor(context, R.color.obstacle_facing));
+        facingPaint.setStyle(Paint.Style.FILL);
+        Arrays.fill(tileRecorded, false); // recorded with the old colors
+    }
+
+    @Override
+    protected void onDiscard() {
+        for (RenderNode tile : tiles) {
+            if (tile != null) tile.discardDisplayList();
+        }
+        Arrays.fill(tileRecorded, false);
+    }
+
+    @Override
+    protected void onRecord(RecordingCanvas canvas, ArenaGeometry geometry, int width, int height) {
+        if (grid == null || !geometry.hasVisibleCells()) return;
+        if (!tilesRecordedWith(geometry)) Arrays.fill(tileRecorded, false);
+        for (int ty = geometry.minRow / TILE_CELLS; ty <= geometry.maxRow / TILE_CELLS; ty++) {
+            for (int tx = geometry.minColumn / TILE_CELLS; tx <= geometry.maxColumn / TILE_CELLS; tx++) {
+                int i = ty * tileColumns + tx;
+                if (!tileRecorded[i]) {
+                    recordTile(i, tx, ty, geometry, width, height);
+                    tileRecorded[i] = true;
+                }
+                if (tiles[i] != null && tiles[i].hasDisplayList()) canvas.drawRenderNode(tiles[i]);
+            }
+        }
+    }
+
+    // the visible cells of the tile, the drawing may spill over into the next tiles (shadow, selection border)
+    private void recordTile(int i, int tx, int ty, ArenaGeometry geometry, int width, int height) {
+        int minX = Math.max(geometry.minColumn, tx * TILE_CELLS);
+        int maxX = Math.min(geometry.maxColumn, tx * TILE_CELLS + TILE_CELLS - 1);
+        int minY = Math.max(geometry.minRow, ty * TILE_CELLS);
+        int maxY = Math.min(geometry.maxRow, ty * TILE_CELLS + TILE_CELLS - 1);
+        visibleObstacles.clear();
+        grid.collectObstaclesIn(minX, minY, maxX, maxY, visibleObstacles);
+        if (visibleObstacles.isEmpty()) {
+            if (tiles[i] != null) tiles[i].discardDisplayList();
+            return;
+        }
+        if (tiles[i] == null) {
+            tiles[i] = new RenderNode("ArenaObstacles" + tx + "," + ty);
+            tiles[i].setClipToBounds(false);
+        }
+        tiles[i].setPosition(0, 0, width, height);
+        RecordingCanvas recording = tiles[i].beginRecording(width, height);
+        try {
+            drawObstacles(recording, geometry);
+        } finally {
+            tiles[i].endRecording();
+        }
+    }
+
+    private boolean tilesRecordedWith(ArenaGeometry geometry) {
+        boolean same = tileCellSize == geometry.cellSize && tileOffsetX == geometry.offsetX
+                && tileOffsetY == geometry.offsetY && tileMinColumn == geometry.minColumn
+                && tileMaxColumn == geometry.maxColumn && tileMinRow == geometry.minRow
+                && tileMaxRow == geometry.maxRow;
+        tileCellSize = geometry.cellSize;
+        tileOffsetX = geometry.offsetX;
+        tileOffsetY = geometry.offsetY;
+        tileMinColumn = geometry.minColumn;
+        tileMaxColumn = geometry.maxColumn;
+        tileMinRow = geometry.minRow;
+        tileMaxRow = geometry.maxRow;
+        return same;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas, ArenaGeometry geometry) {
+        if (grid == null || !geometry.hasVisibleCells()) return;
+        visibleObstacles.clear();
+        grid.collectObstaclesIn(geometry.minColumn, geometry.minRow, geometry.maxColumn, geometry.maxRow,
+                visibleObstacles);
+        drawObstacles(canvas, geometry);
+    }
+
+    // the obstacles collected in visibleObstacles, which it leaves empty
+    private void drawObstacles(Canvas canvas, ArenaGeometry geometry) {
+        int cellSize = geometry.cellSize;
+        boolean detailed = cellSize >= MIN_DETAIL_CELL_PX; // too small to read otherwise
+        idPaint.setTextSize(Math.max(MIN_ID_TEXT, cellSize * ID_TEXT_PER_CELL));
+        targetPaint.setTextSize(Math.max(MIN_TARGET_TEXT, cellSize * TARGET_TEXT_PER_CELL));
+        for (GridObstacle gridObstacle : visibleObstacles) {
+            int left = geometry.left(gridObstacle.getPosition().getXInt());
+            int top = geometry.top(gridObstacle.getPosition().getYInt()); // Flip y-axis
+            int right = left + cellSize;
+            int bottom = top + cellSize;
+
+            // 3D Effect: shadow first (offset)
+            drawBlock(canvas, left, top, right, bottom, detailed ? cellSize / 10 : 0, obstaclePaint,
+                    obstacleShadowPaint);
+
+            // Draw Selection Border if selected
+            if (gridObstacle.isSelected()) {
+                canvas.drawRect(left, top, right, bottom, obstacleSelectedPaint);
+            }
+            if (!detailed) continue;
+
+            // Compute text position (center of cell)
+            float textX = left + (cellSize / 2);
+            float textY = top + (cellSize / 2) - ((idPaint.descent() + idPaint.ascent()) / 2);
+
+            if (gridObstacle.getTarget() == null) {
+                // Draw ID text (no target yet)
+                canvas.drawText(label(gridObstacle.getId()), textX, textY, idPaint);
+            } else {
+                // Draw target text if avail
+                canvas.drawText(gridObstacle.getTarget().getTargetStr(), textX, textY, targetPaint);
+            }
+
+            drawFacingStrip(canvas, gridObstacle.getFacing(), left, top, right, bottom, cellSize / 6, facingPaint);
+        }
+        visibleObstacles.clear();
+    }
+}
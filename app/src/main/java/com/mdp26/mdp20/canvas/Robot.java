@@ -3,10 +3,30 @@ package com.mdp26.mdp20.canvas;
 import com.mdp26.mdp20.Facing;
 import com.mdp26.mdp20.Position;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The robot's position and facing on the {@link Grid}.
+ * <p> {@link Listener}s hear about every change, with the cell before and after, so views can repaint just there.
+ */
 public class Robot {
+    /**
+     * Told when the robot moved or turned.
+     */
+    public interface Listener {
+        /**
+         * Cells the robot was centered on before and after, equal if it only turned.
+         */
+        void onRobotChanged(int oldX, int oldY, int newX, int newY);
+    }
+
     private Facing facing;
     private final Position position;
     private final double turningRadius = 4.5;
+    private int arenaWidth = Grid.DEFAULT_SIZE;
+    private int arenaHeight = Grid.DEFAULT_SIZE;
+    private final List<Listener> listeners = new ArrayList<>();
 
     public Robot(int x, int y, Facing facing) {
         this.facing = facing;
@@ -29,8 +49,45 @@ public class Robot {
     }
 
     public Robot updatePosition(int x, int y) {
+        int oldX = position.getXInt(), oldY = position.getYInt();
         position.setX(x);
         position.setY(y);
+        changed(oldX, oldY);
+        return this;
+    }
+
+    /**
+     * Moves and turns the robot in one change, e.g. for a position report, {@link Facing#SKIP} keeps the facing.
+     */
+    public Robot updatePose(int x, int y, Facing facing) {
+        int oldX = position.getXInt(), oldY = position.getYInt();
+        position.setX(x);
+        position.setY(y);
+        if (!facing.equals(Facing.SKIP)) this.facing = facing;
+        changed(oldX, oldY);
+        return this;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void changed(int oldX, int oldY) {
+        for (Listener listener : listeners) {
+            listener.onRobotChanged(oldX, oldY, position.getXInt(), position.getYInt());
+        }
+    }
+
+    /**
+     * Sets the arena the robot has to stay inside of when moved by the controls, see {@link Grid#getWidth()}.
+     */
+    public Robot setArena(int width, int height) {
+        this.arenaWidth = width;
+        this.arenaHeight = height;
         return this;
     }
 
@@ -39,8 +96,10 @@ public class Robot {
     }
 
     public Robot updateFacing(Facing facing) {
-        if (!facing.equals(Facing.SKIP))
+        if (!facing.equals(Facing.SKIP) && facing != this.facing) {
             this.facing = facing;
+            changed(position.getXInt(), position.getYInt());
+        }
         return this;
     }
 
@@ -50,7 +109,7 @@ public class Robot {
 
     // Helper to check bounds
     private boolean isWithinBounds(double x, double y) {
-        return x >= 1 && x < Grid.GRID_SIZE - 1 && y >= 1 && y < Grid.GRID_SIZE - 1;
+        return x >= 1 && x < arenaWidth - 1 && y >= 1 && y < arenaHeight - 1;
     }
 
     // Robot moves forward by one cell in the direction it is facing
@@ -67,8 +126,10 @@ public class Robot {
             newX -= 1;
         }
         if (isWithinBounds(newX, newY)) {
+            int oldX = position.getXInt(), oldY = position.getYInt();
             this.position.setX(newX);
             this.position.setY(newY);
+            changed(oldX, oldY);
         }
     }
 
@@ -86,8 +147,10 @@ public class Robot {
             newX += 1;
         }
         if (isWithinBounds(newX, newY)) {
+            int oldX = position.getXInt(), oldY = position.getYInt();
             this.position.setX(newX);
             this.position.setY(newY);
+            changed(oldX, oldY);
         }
     }
 
@@ -116,9 +179,11 @@ public class Robot {
         }
 
         if (isWithinBounds(newX, newY)) {
+            int oldX = position.getXInt(), oldY = position.getYInt();
             this.position.setX(newX);
             this.position.setY(newY);
             this.facing = newFacing;
+            changed(oldX, oldY);
         }
     }
 
@@ -147,9 +212,11 @@ public class Robot {
         }
         
         if (isWithinBounds(newX, newY)) {
+            int oldX = position.getXInt(), oldY = position.getYInt();
             this.position.setX(newX);
             this.position.setY(newY);
             this.facing = newFacing;
+            changed(oldX, oldY);
         }
     }
 
@@ -164,6 +231,7 @@ public class Robot {
         } else if (this.facing == Facing.WEST) {
             this.facing = Facing.NORTH;
         }
+        changed(position.getXInt(), position.getYInt());
     }
 
     // Robot rotates left in place (Spot Turn)
@@ -177,6 +245,7 @@ public class Robot {
         } else if (this.facing == Facing.EAST) {
             this.facing = Facing.NORTH;
         }
+        changed(position.getXInt(), position.getYInt());
     }
 
     // Reverse logic (To be implemented) - Not used but good to safeguard
@@ -0,0 +1,87 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.core.content.ContextCompat;
+
+import com.mdp26.mdp20.R;
+
+/**
+ * The {@link Robot}, a 20cm x 21cm body centered on its cell with a strip on the side it faces.
+ * <p> Recorded at the robot's cell, then moved to the animated pose with {@link #follow}.
+ */
+final class RobotLayer extends ArenaLayer {
+    private final Paint robotBodyPaint = new Paint();
+    private final Paint robotShadowPaint = new Paint();
+    private final Paint directionPaint = new Paint();
+    private Robot robot = null;
+
+    RobotLayer() {
+        super("ArenaRobot");
+    }
+
+    void setRobot(Robot robot) {
+        this.robot = robot;
+        invalidate();
+    }
+
+    @Override
+    protected void onThemeChanged(Context context) {
+        robotBodyPaint.setColor(ContextCompat.getColor(context, R.color.robot_body));
+        robotBodyPaint.setStyle(Paint.Style.FILL);
+
+        robotShadowPaint.setColor(ContextCompat.getColor(context, R.color.robot_shadow));
+        robotShadowPaint.setStyle(Paint.Style.FILL);
+
+        directionPaint.setColor(ContextCompat.getColor(context, R.color.robot_direction));
+        directionPaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * Pixels covered when the robot is centered on (x,y), fractional while it moves, at any heading, shadow included.
+     */
+    static void footprint(ArenaGeometry geometry, double x, double y, Rect out) {
+        int cellSize = geometry.cellSize;
+        float centerX = geometry.centerX(x);
+        float centerY = geometry.centerY(y);
+        int radius = (int) Math.ceil(cellSize * 1.45) + cellSize / 8 + 1; // half the diagonal of 2 x 2.1 cells
+        out.set((int) centerX - radius, (int) centerY - radius, (int) centerX + radius + 1, (int) centerY + radius + 1);
+    }
+
+    /**
+     * Shows the robot where {@code motion} has it, as an offset from the cell it is recorded at.
+     */
+    void follow(RobotMotion motion, ArenaGeometry geometry) {
+        if (robot == null) return;
+        int x = robot.getPosition().getXInt(), y = robot.getPosition().getYInt();
+        float dx = (float) ((motion.getX() - x) * geometry.cellSize);
+        float dy = (float) ((y - motion.getY()) * geometry.cellSize);
+        float degrees = (float) Math.IEEEremainder(motion.getHeading() - RobotMotion.degrees(robot.getFacing()), 360);
+        setTransform(dx, dy, degrees, geometry.centerX(x), geometry.centerY(y));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas, ArenaGeometry geometry) {
+        if (robot == null) return;
+        int cellSize = geometry.cellSize;
+        // Calculate new dimensions to fit the 20cm x 21cm robot in the grid
+        int robotWidth = cellSize * 2; // Robot spans 2 grid cells in width
+        int robotHeight = (int) (cellSize * 2.1); // Robot spans ~2.1 grid cells in height
+
+        // Calculate the position of the robot centered on its current grid cell
+        int centerX = geometry.left(robot.getPosition().getXInt()) + (cellSize / 2);
+        int centerY = geometry.top(robot.getPosition().getYInt()) + (cellSize / 2);
+
+        int left = centerX - (robotWidth / 2);
+        int top = centerY - (robotHeight / 2);
+        int right = left + robotWidth;
+        int bottom = top + robotHeight;
+
+        int shadowOffset = cellSize >= MIN_DETAIL_CELL_PX ? cellSize / 8 : 0;
+        drawBlock(canvas, left, top, right, bottom, shadowOffset, robotBodyPaint, robotShadowPaint);
+        drawFacingStrip(canvas, robot.getFacing(), left, top, right, bottom, cellSize / 5, directionPaint);
+    }
+}
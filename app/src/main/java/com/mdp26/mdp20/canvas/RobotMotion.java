@@ -0,0 +1,211 @@
+package com.mdp26.mdp20.canvas;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.bluetooth.RobotMoveCommand;
+
+/**
+ * Where to draw the {@link Robot} between position reports, in cells and degrees clockwise from north.
+ * <p> Between reports the pose is dead-reckoned from the last one: towards the end of the move command in flight
+ * if there is one, see {@link #commandSent}, otherwise at the velocity seen between the last two reports for about
+ * one report interval. A report never makes the robot jump, the difference between where it was drawn and where
+ * the report puts it is blended out over the following frames.
+ * <p> Only arithmetic on fields, so {@link #step} can run every frame without allocating. Main thread only.
+ */
+final class RobotMotion {
+    static final double SPEED = 3; // cells per second (~30cm/s), until measured from reports
+    static final double TURN_SPEED = 180; // degrees per second
+    static final double SNAP_DISTANCE = 5; // cells, longer jumps (e.g. a reset) are not animated
+    static final long DEFAULT_INTERVAL = 150_000_000L; // nanos between reports, until measured
+    private static final long MIN_INTERVAL = 30_000_000L;
+    private static final long MAX_INTERVAL = 500_000_000L;
+    private static final long COMMAND_WINDOW = 100_000_000L; // the pose change of a command follows within this
+    private static final double SMOOTHING = 0.25; // weight of a new sample in the running averages
+
+    // the last report
+    private double reportX, reportY, reportHeading;
+    private long reportTime;
+    // dead-reckoning from the report, per second
+    private double vx, vy, vHeading;
+    private boolean toEnd = false; // a command is in flight, stop at its end
+    private double endX, endY, endHeading;
+    private RobotMoveCommand command = null;
+    private long commandTime;
+    // blended out after a report
+    private double errorX, errorY, errorHeading;
+    private long blendStart, blendLength;
+    private long interval = DEFAULT_INTERVAL;
+    private double speed = SPEED;
+    // the pose to draw
+    private double x, y, heading;
+
+    /**
+     * Degrees clockwise from north, {@link Facing#SKIP} counts as north.
+     */
+    static double degrees(Facing facing) {
+        return switch (facing) {
+            case EAST -> 90;
+            case SOUTH -> 180;
+            case WEST -> 270;
+            case NORTH, SKIP -> 0;
+        };
+    }
+
+    /**
+     * Jumps to the pose, e.g. when the robot is first shown.
+     */
+    void snapTo(int x, int y, Facing facing, long nowNanos) {
+        reportX = this.x = x;
+        reportY = this.y = y;
+        reportHeading = this.heading = degrees(facing);
+        reportTime = nowNanos;
+        vx = vy = vHeading = 0;
+        toEnd = false;
+        command = null;
+        errorX = errorY = errorHeading = 0;
+        blendLength = 0;
+    }
+
+    /**
+     * A move command went out, the next pose change within {@link #COMMAND_WINDOW} is where it ends.
+     */
+    void commandSent(RobotMoveCommand command, long nowNanos) {
+        this.command = command;
+        this.commandTime = nowNanos;
+    }
+
+    /**
+     * The robot was reported at, or moved locally to, this pose.
+     *
+     * @return whether the drawn pose will change, as for {@link #step}
+     */
+    boolean onPose(int x, int y, Facing facing, long nowNanos) {
+        double h = reportHeading + Math.IEEEremainder(degrees(facing) - reportHeading, 360);
+        if (Math.hypot(x - this.x, y - this.y) > SNAP_DISTANCE) {
+            snapTo(x, y, facing, nowNanos);
+            return false;
+        }
+        step(nowNanos); // blend from where it is drawn now
+        long gap = nowNanos - reportTime;
+
+        if (command != null && nowNanos - commandTime <= COMMAND_WINDOW) {
+            // the end of the command: travel there from the last report at the command's speed
+            command = null;
+            double seconds = Math.max(Math.hypot(x - reportX, y - reportY) / speed,
+                    Math.abs(h - reportHeading) / TURN_SPEED);
+            startTowards(x, y, h, Math.max(seconds, 1e-3));
+            reportTime = nowNanos;
+        } else {
+            if (gap >= MIN_INTERVAL && gap <= MAX_INTERVAL) {
+                interval = (long) (interval + SMOOTHING * (gap - interval));
+            }
+            if (toEnd) {
+                if (x == endX && y == endY && h == endHeading) {
+                    toEnd = false; // arrived
+                    vx = vy = vHeading = 0;
+                } // else on the way, keep going at the command's velocity from here
+            } else if (gap >= MIN_INTERVAL && gap <= 2 * MAX_INTERVAL) {
+                toEnd = false;
+                double seconds = gap / 1e9;
+                vx = (x - reportX) / seconds;
+                vy = (y - reportY) / seconds;
+                vHeading = (h - reportHeading) / seconds;
+                double measured = Math.hypot(vx, vy);
+                if (measured > 0) speed += SMOOTHING * (measured - speed);
+            } else if (gap >= MIN_INTERVAL) {
+                toEnd = false; // first report after a pause
+                vx = vy = vHeading = 0;
+            } // else the same report again, e.g. position then facing
+            reportX = x;
+            reportY = y;
+            reportHeading = h;
+            reportTime = nowNanos;
+        }
+        errorX = this.x - predictX(nowNanos);
+        errorY = this.y - predictY(nowNanos);
+        errorHeading = this.heading - predictHeading(nowNanos);
+        blendStart = nowNanos;
+        blendLength = Math.min(Math.max(interval, MIN_INTERVAL), MAX_INTERVAL);
+        return step(nowNanos);
+    }
+
+    private void startTowards(double x, double y, double h, double seconds) {
+        toEnd = true;
+        endX = x;
+        endY = y;
+        endHeading = h;
+        vx = (x - reportX) / seconds;
+        vy = (y - reportY) / seconds;
+        vHeading = (h - reportHeading) / seconds;
+    }
+
+    /**
+     * Moves the drawn pose to the given time, e.g. a frame time.
+     *
+     * @return whether the pose will change again, i.e. another frame is needed
+     */
+    boolean step(long nowNanos) {
+        x = predictX(nowNanos);
+        y = predictY(nowNanos);
+        heading = predictHeading(nowNanos);
+        boolean moving = toEnd
+                ? x != endX || y != endY || heading != endHeading
+                : (vx != 0 || vy != 0 || vHeading != 0) && nowNanos - reportTime < 3 * interval;
+        long sinceBlend = nowNanos - blendStart;
+        if (sinceBlend < blendLength) {
+            double u = Math.max(0, (double) sinceBlend / blendLength);
+            double weight = 1 - u * u * (3 - 2 * u); // smoothstep, no jerk at either end
+            x += errorX * weight;
+            y += errorY * weight;
+            heading += errorHeading * weight;
+            return true;
+        }
+        return moving;
+    }
+
+    private double predictX(long nowNanos) {
+        return toEnd ? approach(reportX, vx * elapsed(nowNanos), endX) : reportX + vx * lead(nowNanos);
+    }
+
+    private double predictY(long nowNanos) {
+        return toEnd ? approach(reportY, vy * elapsed(nowNanos), endY) : reportY + vy * lead(nowNanos);
+    }
+
+    private double predictHeading(long nowNanos) {
+        return toEnd
+                ? approach(reportHeading, vHeading * elapsed(nowNanos), endHeading)
+                : reportHeading + vHeading * lead(nowNanos);
+    }
+
+    private double elapsed(long nowNanos) {
+        return Math.max(0, nowNanos - reportTime) / 1e9;
+    }
+
+    // seconds to extrapolate for: up to one interval, held for another, then eased back in case the robot stopped
+    private double lead(long nowNanos) {
+        long dt = Math.max(0, nowNanos - reportTime);
+        long lead = dt <= interval ? dt : dt <= 2 * interval ? interval : Math.max(0, 3 * interval - dt);
+        return lead / 1e9;
+    }
+
+    // from + delta, but not past end if heading that way
+    private static double approach(double from, double delta, double end) {
+        if (delta > 0) return Math.min(from + delta, Math.max(from, end));
+        if (delta < 0) return Math.max(from + delta, Math.min(from, end));
+        return from;
+    }
+
+    double getX() {
+        return x;
+    }
+
+    double getY() {
+        return y;
+    }
+
+    /**
+     * Degrees clockwise from north, not wrapped to [0, 360).
+     */
+    double getHeading() {
+        return heading;
+    }
+}
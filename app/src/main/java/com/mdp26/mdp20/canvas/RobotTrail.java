@@ -0,0 +1,152 @@
+package com.mdp26.mdp20.canvas;
+
+import com.mdp26.mdp20.Facing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Where the {@link Robot} has been, one point per move or turn, whether from a position report or the controls.
+ * <p> Points live in parallel primitive arrays used as a fixed-capacity ring, once it is full each new point
+ * replaces the oldest, so memory stays flat however long the run. Main thread only.
+ */
+public class RobotTrail implements Robot.Listener {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Told when a point was added or the trail cleared.
+     */
+    public interface Listener {
+        void onTrailChanged();
+    }
+
+    private final int capacity;
+    private final float[] xs, ys, headings;
+    private final long[] times;
+    private int head = 0; // oldest point
+    private int size = 0;
+    private final LongSupplier wallClock;
+    private Robot robot = null;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public RobotTrail(int capacity, LongSupplier wallClock) {
+        this.capacity = capacity;
+        this.xs = new float[capacity];
+        this.ys = new float[capacity];
+        this.headings = new float[capacity];
+        this.times = new long[capacity];
+        this.wallClock = wallClock;
+    }
+
+    public RobotTrail() {
+        this(DEFAULT_CAPACITY, System::currentTimeMillis);
+    }
+
+    /**
+     * Records every change of {@code robot} from now on, starting a new trail at where it is.
+     */
+    public void follow(Robot robot) {
+        if (this.robot != null) this.robot.removeListener(this);
+        this.robot = robot;
+        robot.addListener(this);
+        clear();
+    }
+
+    /**
+     * Forgets all points, e.g. at the start of a run. The trail restarts at the robot's current pose.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        if (robot != null) {
+            append(robot.getPosition().getX(), robot.getPosition().getY(), robot.getFacing());
+        }
+        changed();
+    }
+
+    @Override
+    public void onRobotChanged(int oldX, int oldY, int newX, int newY) {
+        if (append(newX, newY, robot.getFacing())) changed();
+    }
+
+    /**
+     * @return false if the pose is the same as the last point's
+     */
+    public boolean add(double x, double y, Facing facing) {
+        if (!append(x, y, facing)) return false;
+        changed();
+        return true;
+    }
+
+    private boolean append(double x, double y, Facing facing) {
+        float heading = (float) RobotMotion.degrees(facing);
+        if (size > 0) {
+            int last = slot(size - 1);
+            if (xs[last] == (float) x && ys[last] == (float) y && headings[last] == heading) return false;
+        }
+        int slot;
+        if (size < capacity) {
+            slot = slot(size++);
+        } else {
+            slot = head; // overwrite the oldest
+            head = (head + 1) % capacity;
+        }
+        xs[slot] = (float) x;
+        ys[slot] = (float) y;
+        headings[slot] = heading;
+        times[slot] = wallClock.getAsLong();
+        return true;
+    }
+
+    private int slot(int i) {
+        return (head + i) % capacity;
+    }
+
+    private void changed() {
+        for (Listener listener : listeners) {
+            listener.onTrailChanged();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Column of the i-th point, 0 being the oldest still kept.
+     */
+    public float getX(int i) {
+        return xs[slot(i)];
+    }
+
+    public float getY(int i) {
+        return ys[slot(i)];
+    }
+
+    /**
+     * Degrees clockwise from north.
+     */
+    public float getHeading(int i) {
+        return headings[slot(i)];
+    }
+
+    /**
+     * Wall clock time in ms the i-th point was recorded at.
+     */
+    public long getTime(int i) {
+        return times[slot(i)];
+    }
+}
@@ -1,113 +0,0 @@
-package com.mdp26.mdp20.canvas;
-
-import android.content.Context;
-import android.graphics.Rect;
-import android.util.AttributeSet;
-import android.view.View;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Color;
-
-import com.mdp26.mdp20.Facing;
-import com.mdp26.mdp20.R;
-
-public class RobotView extends View {
-    private static final String TAG = "RobotView";
-    private final Paint robotBodyPaint = new Paint();
-    private final Paint robotShadowPaint = new Paint();
-    private final Paint directionPaint = new Paint();
-    private Grid grid;
-    // Bitmaps removed
-    private int cellSize; // Dynamically calculated
-    private int offsetX, offsetY; // To align with the grid
-    private Robot robot;
-
-    public RobotView(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        init();
-    }
-
-    private void init() {
-        // Robot Body Paint
-        // Robot Body Paint
-        robotBodyPaint.setColor(androidx.core.content.ContextCompat.getColor(getContext(), R.color.robot_body));
-        robotBodyPaint.setStyle(Paint.Style.FILL);
-
-        // Robot Shadow Paint
-        robotShadowPaint.setColor(androidx.core.content.ContextCompat.getColor(getContext(), R.color.robot_shadow));
-        robotShadowPaint.setStyle(Paint.Style.FILL);
-
-        // Direction Indicator Paint
-        directionPaint.setColor(androidx.core.content.ContextCompat.getColor(getContext(), R.color.robot_direction));
-        directionPaint.setStyle(Paint.Style.FILL);
-
-    }
-
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-
-        int gridSize = Grid.GRID_SIZE; // Get grid size from your Grid class
-
-        // Compute cell size dynamically based on parent view size
-        cellSize = Math.min(w, h) / (gridSize + 2);
-
-        // Calculate offsets to align RobotView with CanvasView
-        offsetX = (w - (gridSize * cellSize)) / 2;
-        offsetY = (h - (gridSize * cellSize)) / 2;
-    }
-
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        // Calculate new dimensions to fit the 20cm x 21cm robot in the grid
-        int robotWidth = cellSize * 2; // Robot spans 2 grid cells in width
-        int robotHeight = (int) (cellSize * 2.1); // Robot spans ~2.1 grid cells in height
-
-        // Calculate the position of the robot centered on its current grid cell
-        int centerX = offsetX + (robot.getPosition().getXInt() * cellSize) + (cellSize / 2);
-        int centerY = offsetY + (Grid.GRID_SIZE - 1 - robot.getPosition().getYInt()) * cellSize + (cellSize / 2);
-
-        // Adjust the position so the robot is centered correctly
-        int left = centerX - (robotWidth / 2);
-        int top = centerY - (robotHeight / 2);
-        int right = left + robotWidth;
-        int bottom = top + robotHeight;
-
-        // Draw the robot body as a rectangle
-        // Draw Shadow (Offset)
-        int shadowOffset = cellSize / 8;
-        canvas.drawRect(left + shadowOffset, top + shadowOffset, right + shadowOffset, bottom + shadowOffset,
-                robotShadowPaint);
-
-        // Draw the robot body as a rectangle
-        canvas.drawRect(left, top, right, bottom, robotBodyPaint);
-
-        int stripThickness = cellSize / 5;
-
-        switch (robot.getFacing()) {
-            case NORTH:
-                canvas.drawRect(left, top, right, top + stripThickness, directionPaint);
-                break;
-            case EAST:
-                canvas.drawRect(right - stripThickness, top, right, bottom, directionPaint);
-                break;
-            case SOUTH:
-                canvas.drawRect(left, bottom - stripThickness, right, bottom, directionPaint);
-                break;
-            case WEST:
-                canvas.drawRect(left, top, left + stripThickness, bottom, directionPaint);
-                break;
-            case SKIP:
-                break;
-        }
-    }
-
-    public void setRobot(Robot robot) {
-        this.robot = robot;
-        invalidate(); // Refresh the view
-    }
-}
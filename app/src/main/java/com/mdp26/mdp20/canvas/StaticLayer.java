@@ -0,0 +1,111 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.core.content.ContextCompat;
+
+import com.mdp26.mdp20.R;
+
+/**
+ * Grid lines, start region and axis labels. Only changes with the view size, the arena size or the theme.
+ * <p> Once cells get small, lines and labels are drawn every 2nd, 5th, 10th, ... cell.
+ */
+final class StaticLayer extends ArenaLayer {
+    private static final int START_REGION_SIZE = 4;
+    private static final int MIN_LINE_SPACING_PX = 6;
+    private final Paint gridPaint = new Paint();
+    private final Paint textPaint = new Paint();
+    private final Paint startRegionPaint = new Paint();
+
+    StaticLayer() {
+        super("ArenaStatic");
+    }
+
+    @Override
+    protected void onThemeChanged(Context context) {
+        // Grid styling
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.grid_line));
+        gridPaint.setStrokeWidth(2);
+        gridPaint.setStyle(Paint.Style.STROKE);
+
+        // Label text styling
+        textPaint.setColor(ContextCompat.getColor(context, R.color.text_primary));
+        textPaint.setTextSize(20); // Adjust for readability
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTypeface(Typeface.create("sans-serif-medium", Typeface.NORMAL));
+        textPaint.setFakeBoldText(true);
+
+        startRegionPaint.setColor(ContextCompat.getColor(context, R.color.accent));
+        startRegionPaint.setStrokeWidth(4);
+        startRegionPaint.setStyle(Paint.Style.STROKE);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas, ArenaGeometry geometry) {
+        if (!geometry.hasVisibleCells()) return;
+        drawGrid(canvas, geometry);
+        drawStartRegion(canvas, geometry);
+        drawAxisLabels(canvas, geometry);
+    }
+
+    private void drawGrid(Canvas canvas, ArenaGeometry geometry) {
+        int cellSize = geometry.cellSize;
+        int stride = ArenaGeometry.stride(cellSize, MIN_LINE_SPACING_PX);
+        int top = geometry.top(geometry.maxRow);
+        int bottom = geometry.top(geometry.minRow) + cellSize;
+        int left = geometry.left(geometry.minColumn);
+        int right = geometry.left(geometry.maxColumn) + cellSize;
+
+        // Draw vertical grid lines, plus the border
+        for (int i = geometry.minColumn; i <= geometry.maxColumn + 1; i++) {
+            if (i % stride != 0 && i != geometry.columns) continue;
+            canvas.drawLine(geometry.left(i), top, geometry.left(i), bottom, gridPaint);
+        }
+
+        // Draw horizontal grid lines, plus the border
+        for (int y = geometry.minRow; y <= geometry.maxRow + 1; y++) {
+            if (y % stride != 0 && y != geometry.rows) continue;
+            int lineY = geometry.top(y) + cellSize; // bottom edge of row y
+            canvas.drawLine(left, lineY, right, lineY, gridPaint);
+        }
+    }
+
+    private void drawStartRegion(Canvas canvas, ArenaGeometry geometry) {
+        if (geometry.minColumn >= START_REGION_SIZE || geometry.minRow >= START_REGION_SIZE) return; // off screen
+        int left = geometry.left(0);
+        int right = geometry.left(START_REGION_SIZE);
+        int top = geometry.top(START_REGION_SIZE - 1); // Flip y-axis
+        int bottom = geometry.top(0) + geometry.cellSize;
+
+        // Draw the green boundary lines
+        canvas.drawLine(left, bottom, right, bottom, startRegionPaint); // Bottom line (0,0) to (4,0)
+        canvas.drawLine(left, top, right, top, startRegionPaint); // Top line (0,4) to (4,4)
+        canvas.drawLine(left, top, left, bottom, startRegionPaint); // Left line (0,0) to (0,4)
+        canvas.drawLine(right, top, right, bottom, startRegionPaint); // Right line (4,0) to (4,4)
+    }
+
+    private void drawAxisLabels(Canvas canvas, ArenaGeometry geometry) {
+        int cellSize = geometry.cellSize;
+        // Center text in the cell: Start of cell + half cell size
+        float halfCell = cellSize / 2f;
+        float yLabelOffsetY = cellSize / 4f; // Vertical adjustment for text centering
+        int xStride = ArenaGeometry.stride(cellSize, (int) (textPaint.getTextSize() * 2));
+        int yStride = ArenaGeometry.stride(cellSize, (int) (textPaint.getTextSize() * 1.2f));
+
+        // Draw X-axis labels (below the grid), for the visible columns
+        float xLabelY = geometry.top(0) + cellSize + 30;
+        for (int x = geometry.minColumn - geometry.minColumn % xStride; x <= geometry.maxColumn; x += xStride) {
+            // "0" at x=0
+            canvas.drawText(label(x), geometry.left(x) + halfCell, xLabelY, textPaint);
+        }
+
+        // Draw Y-axis labels (left of the grid), "0" at the bottom row
+        for (int y = geometry.minRow - geometry.minRow % yStride; y <= geometry.maxRow; y += yStride) {
+            float yPos = geometry.top(y) + halfCell + yLabelOffsetY;
+            canvas.drawText(label(y), geometry.left(0) - 30, yPos, textPaint);
+        }
+    }
+}
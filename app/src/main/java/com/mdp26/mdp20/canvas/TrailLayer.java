@@ -0,0 +1,61 @@
+package com.mdp26.mdp20.canvas;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.core.content.ContextCompat;
+
+import com.mdp26.mdp20.R;
+
+/**
+ * The {@link RobotTrail}, a line through the centers of the cells the robot has been on, under the robot.
+ * <p> Drawn with one {@code drawLines} call from a buffer sized to the trail's capacity. Points less than a pixel
+ * from the last one drawn are skipped, so a long run on a small arena costs no more than the pixels it covers.
+ */
+final class TrailLayer extends ArenaLayer {
+    private final Paint trailPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private RobotTrail trail = null;
+    private float[] lines = new float[0]; // x0 y0 x1 y1 per segment
+
+    TrailLayer() {
+        super("ArenaTrail");
+    }
+
+    void setTrail(RobotTrail trail) {
+        this.trail = trail;
+        if (trail != null && lines.length < 4 * trail.capacity()) {
+            lines = new float[4 * trail.capacity()];
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onThemeChanged(Context context) {
+        trailPaint.setColor(ContextCompat.getColor(context, R.color.robot_trail));
+        trailPaint.setStyle(Paint.Style.STROKE);
+        trailPaint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas, ArenaGeometry geometry) {
+        if (trail == null || trail.size() < 2) return;
+        int size = trail.size();
+        int count = 0;
+        float lastX = geometry.centerX(trail.getX(0));
+        float lastY = geometry.centerY(trail.getY(0));
+        for (int i = 1; i < size; i++) {
+            float x = geometry.centerX(trail.getX(i));
+            float y = geometry.centerY(trail.getY(i));
+            if (Math.abs(x - lastX) < 1 && Math.abs(y - lastY) < 1 && i < size - 1) continue; // denser than a pixel
+            lines[count++] = lastX;
+            lines[count++] = lastY;
+            lines[count++] = x;
+            lines[count++] = y;
+            lastX = x;
+            lastY = y;
+        }
+        trailPaint.setStrokeWidth(Math.max(2, geometry.cellSize / 6f));
+        canvas.drawLines(lines, 0, count, trailPaint);
+    }
+}
@@ -0,0 +1,16 @@
+package com.mdp26.mdp20.log;
+
+/**
+ * One line of the {@link MessageLog}.
+ *
+ * @param seq        increases by one per entry appended, never reused
+ * @param timeMillis wall clock time it was appended
+ * @param obstacleId obstacle the message is about, or {@link #NO_OBSTACLE}
+ */
+public record LogEntry(long seq, long timeMillis, Direction direction, LogKind kind, int obstacleId, String text) {
+    public static final int NO_OBSTACLE = -1;
+
+    public enum Direction {
+        SENT, RECV, SYSTEM
+    }
+}
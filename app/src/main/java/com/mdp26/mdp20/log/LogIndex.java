@@ -0,0 +1,91 @@
+package com.mdp26.mdp20.log;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Secondary indexes of a {@link MessageLog}: entry seqs by {@link LogKind}, by obstacle id and by time bucket.
+ * <p> Updated as entries are flushed into the ring, evicted ones are trimmed lazily. Main thread only.
+ */
+final class LogIndex {
+    static final long BUCKET_MILLIS = 1000;
+
+    private final Map<LogKind, SeqList> byKind = new EnumMap<>(LogKind.class);
+    private final Map<Integer, SeqList> byObstacle = new HashMap<>();
+    // first seq of each time bucket, buckets ascending
+    private long[] bucketKeys = new long[64];
+    private long[] bucketFirstSeq = new long[64];
+    private int bucketStart = 0, bucketEnd = 0;
+
+    void add(LogEntry entry) {
+        byKind.computeIfAbsent(entry.kind(), k -> new SeqList()).add(entry.seq());
+        if (entry.obstacleId() != LogEntry.NO_OBSTACLE) {
+            byObstacle.computeIfAbsent(entry.obstacleId(), k -> new SeqList()).add(entry.seq());
+        }
+        long bucket = Math.floorDiv(entry.timeMillis(), BUCKET_MILLIS);
+        // a clock that steps back stays in the current bucket, see seqAtOrAfter
+        if (bucketEnd == bucketStart || bucket > bucketKeys[bucketEnd - 1]) {
+            addBucket(bucket, entry.seq());
+        }
+    }
+
+    void dropBefore(long firstSeq) {
+        for (SeqList list : byKind.values()) list.dropBefore(firstSeq);
+        byObstacle.values().removeIf(list -> {
+            list.dropBefore(firstSeq);
+            return list.isEmpty();
+        });
+        // keep the bucket holding firstSeq
+        while (bucketEnd - bucketStart > 1 && bucketFirstSeq[bucketStart + 1] <= firstSeq) {
+            bucketStart++;
+        }
+    }
+
+    SeqList kind(LogKind kind) {
+        return byKind.get(kind);
+    }
+
+    SeqList obstacle(int obstacleId) {
+        return byObstacle.get(obstacleId);
+    }
+
+    /**
+     * @return the first seq that may be stamped at or after {@code timeMillis}, or {@code Long.MAX_VALUE}
+     * if every entry is older. Assumes the wall clock does not step back.
+     */
+    long seqAtOrAfter(long timeMillis) {
+        long bucket = Math.floorDiv(timeMillis, BUCKET_MILLIS);
+        int lo = bucketStart, hi = bucketEnd;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bucketKeys[mid] < bucket) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == bucketEnd) return Long.MAX_VALUE;
+        // the bucket of timeMillis itself also holds older entries, the caller filters those
+        return bucketFirstSeq[lo];
+    }
+
+    private void addBucket(long bucket, long seq) {
+        if (bucketEnd == bucketKeys.length) {
+            int live = bucketEnd - bucketStart;
+            if (bucketStart > bucketKeys.length / 2) {
+                System.arraycopy(bucketKeys, bucketStart, bucketKeys, 0, live);
+                System.arraycopy(bucketFirstSeq, bucketStart, bucketFirstSeq, 0, live);
+            } else {
+                long[] keys = new long[bucketKeys.length * 2];
+                long[] seqs = new long[bucketKeys.length * 2];
+                System.arraycopy(bucketKeys, bucketStart, keys, 0, live);
+                System.arraycopy(bucketFirstSeq, bucketStart, seqs, 0, live);
+                bucketKeys = keys;
+                bucketFirstSeq = seqs;
+            }
+            bucketStart = 0;
+            bucketEnd = live;
+        }
+        bucketKeys[bucketEnd] = bucket;
+        bucketFirstSeq[bucketEnd] = seq;
+        bucketEnd++;
+    }
+}
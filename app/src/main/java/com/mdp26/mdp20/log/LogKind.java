@@ -0,0 +1,29 @@
+package com.mdp26.mdp20.log;
+
+import com.mdp26.mdp20.bluetooth.BluetoothMessage;
+
+/**
+ * What a {@link LogEntry} is about, derived from the {@link BluetoothMessage} type for received messages.
+ */
+public enum LogKind {
+    TEXT, INFO, ERROR, MODE, STATUS, POSITION, TARGET, CAPABILITIES, OBSTACLE, COMMAND, SYSTEM;
+
+    public static LogKind of(BluetoothMessage msg) {
+        if (msg instanceof BluetoothMessage.PlainStringMessage m) {
+            // the parser prefixes INFO, ERROR and MODE frames
+            String raw = m.rawMsg();
+            if (raw.startsWith("[info]")) return INFO;
+            if (raw.startsWith("[error]")) return ERROR;
+            if (raw.startsWith("[mode]")) return MODE;
+            return TEXT;
+        }
+        if (msg instanceof BluetoothMessage.RobotStatusMessage) return STATUS;
+        if (msg instanceof BluetoothMessage.RobotPositionMessage) return POSITION;
+        if (msg instanceof BluetoothMessage.TargetFoundMessage) return TARGET;
+        if (msg instanceof BluetoothMessage.PeerCapabilitiesMessage) return CAPABILITIES;
+        if (msg instanceof BluetoothMessage.ObstacleEventMessage
+                || msg instanceof BluetoothMessage.ObstacleBatchMessage
+                || msg instanceof BluetoothMessage.ObstaclesMessage) return OBSTACLE;
+        return COMMAND;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mdp26.mdp20.log;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Filter for {@link MessageLog#query}, all conditions must hold. Start from {@link #all()}, e.g.
+ * {@code LogQuery.all().ofKinds(LogKind.TARGET).forObstacle(3)} or
+ * {@code LogQuery.all().ofKinds(LogKind.ERROR).since(now - 60_000)}.
+ *
+ * @param kinds      empty for any kind
+ * @param obstacleId {@link LogEntry#NO_OBSTACLE} for any
+ * @param fromMillis inclusive
+ * @param toMillis   exclusive
+ */
+public record LogQuery(Set<LogKind> kinds, int obstacleId, long fromMillis, long toMillis) {
+
+    public static LogQuery all() {
+        return new LogQuery(EnumSet.noneOf(LogKind.class), LogEntry.NO_OBSTACLE, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public LogQuery ofKinds(LogKind first, LogKind... rest) {
+        return new LogQuery(EnumSet.of(first, rest), obstacleId, fromMillis, toMillis);
+    }
+
+    public LogQuery forObstacle(int obstacleId) {
+        return new LogQuery(kinds, obstacleId, fromMillis, toMillis);
+    }
+
+    public LogQuery since(long fromMillis) {
+        return new LogQuery(kinds, obstacleId, fromMillis, toMillis);
+    }
+
+    public LogQuery between(long fromMillis, long toMillis) {
+        return new LogQuery(kinds, obstacleId, fromMillis, toMillis);
+    }
+
+    public boolean matches(LogEntry entry) {
+        return (kinds.isEmpty() || kinds.contains(entry.kind()))
+                && (obstacleId == LogEntry.NO_OBSTACLE || entry.obstacleId() == obstacleId)
+                && entry.timeMillis() >= fromMillis && entry.timeMillis() < toMillis;
+    }
+}
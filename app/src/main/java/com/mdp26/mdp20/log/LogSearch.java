@@ -0,0 +1,122 @@
+package com.mdp26.mdp20.log;
+
+import com.mdp26.mdp20.bluetooth.MessageBus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Case-insensitive substring search over a {@link MessageLog}, for a search box that updates as the user types.
+ * <p> The entries are snapshotted on the main thread, which only copies references, and scanned on a background
+ * thread. Each new search supersedes the previous one, a scan that is no longer wanted stops early and its results
+ * are never delivered. When the new text extends the previous one, e.g. "TAR" then "TARG", only the previous matches
+ * and the entries flushed since are scanned again.
+ * <p> {@link #search} and {@link #cancel} are called on the main thread, results arrive there too.
+ */
+public class LogSearch {
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    public interface Callback {
+        /**
+         * @param matches oldest first
+         */
+        void onResults(String needle, List<LogEntry> matches);
+    }
+
+    private final MessageLog log;
+    private final Executor background;
+    private final Executor mainThread;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // main thread only, the last search delivered
+    private String lastNeedle = null;
+    private List<LogEntry> lastMatches = Collections.emptyList();
+    private long lastEndSeq = 0; // entries from here on were not in the last snapshot
+
+    public LogSearch(MessageLog log, Executor background, Executor mainThread) {
+        this.log = log;
+        this.background = background;
+        this.mainThread = mainThread;
+    }
+
+    public LogSearch(MessageLog log) {
+        this(log, searchThread(), MessageBus.mainThread());
+    }
+
+    private static ExecutorService searchThread() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "LogSearch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a search, superseding any still running. An empty needle matches everything.
+     */
+    public void search(String needle, Callback callback) {
+        int gen = generation.incrementAndGet();
+        long firstSeq = log.size() == 0 ? 0 : log.get(0).seq();
+        long endSeq = firstSeq + log.size();
+        List<LogEntry> candidates;
+        if (lastNeedle != null && containsIgnoreCase(needle, lastNeedle)) {
+            // anything matching the longer needle matched the shorter one
+            candidates = new ArrayList<>(lastMatches.size());
+            for (LogEntry entry : lastMatches) {
+                if (entry.seq() >= firstSeq) candidates.add(entry);
+            }
+            for (long seq = Math.max(firstSeq, lastEndSeq); seq < endSeq; seq++) {
+                candidates.add(log.getBySeq(seq));
+            }
+        } else {
+            candidates = new ArrayList<>(log.size());
+            for (int i = 0; i < log.size(); i++) {
+                candidates.add(log.get(i));
+            }
+        }
+        background.execute(() -> {
+            List<LogEntry> matches = scan(candidates, needle, gen);
+            if (matches == null) return;
+            mainThread.execute(() -> {
+                if (generation.get() != gen) return;
+                lastNeedle = needle;
+                lastMatches = matches;
+                lastEndSeq = endSeq;
+                callback.onResults(needle, matches);
+            });
+        });
+    }
+
+    /**
+     * Drops the running search, if any, and forgets the previous results.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        lastNeedle = null;
+        lastMatches = Collections.emptyList();
+    }
+
+    // null if superseded while scanning
+    private List<LogEntry> scan(List<LogEntry> candidates, String needle, int gen) {
+        List<LogEntry> matches = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && generation.get() != gen) return null;
+            LogEntry entry = candidates.get(i);
+            if (containsIgnoreCase(entry.text(), needle)) matches.add(entry);
+        }
+        return matches;
+    }
+
+    static boolean containsIgnoreCase(String haystack, String needle) {
+        int n = needle.length();
+        for (int i = 0, last = haystack.length() - n; i <= last; i++) {
+            if (haystack.regionMatches(true, i, needle, 0, n)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,196 @@
+package com.mdp26.mdp20.log;
+
+import android.view.Choreographer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * App-scoped log of the messages sent and received, hosted by {@link com.mdp26.mdp20.MyApplication}.
+ * <p> Entries live in a fixed-capacity ring, once it is full each new entry replaces the oldest, so memory stays
+ * flat however long the session runs. Appends are staged and moved into the ring once per frame, listeners such
+ * as {@link MessageLogAdapter} then hear about the whole batch at once.
+ * <p> Entries are also indexed by {@link LogKind}, obstacle id and time, so a {@link #query} only visits the
+ * entries it may return. For substring search see {@link LogSearch}.
+ * <p> Main thread only.
+ */
+public class MessageLog {
+    public static final int DEFAULT_CAPACITY = 2000;
+
+    /**
+     * Called once per flush, after the ring has been updated.
+     */
+    public interface Listener {
+        /**
+         * @param evicted  entries removed from the front, i.e. positions 0 to evicted - 1 before the flush
+         * @param inserted entries added at the end
+         */
+        void onFlushed(int evicted, int inserted);
+    }
+
+    private final int capacity;
+    private final LogEntry[] ring;
+    private int head = 0; // position 0
+    private int size = 0;
+    private final ArrayDeque<LogEntry> pending = new ArrayDeque<>();
+    private boolean flushScheduled = false;
+    private long nextSeq = 0;
+    private final LogIndex index = new LogIndex();
+
+    private final Executor frameExecutor;
+    private final LongSupplier wallClock;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * @param frameExecutor runs the flush, e.g. {@link #nextFrame()}
+     */
+    public MessageLog(int capacity, Executor frameExecutor, LongSupplier wallClock) {
+        this.capacity = capacity;
+        this.ring = new LogEntry[capacity];
+        this.frameExecutor = frameExecutor;
+        this.wallClock = wallClock;
+    }
+
+    public MessageLog() {
+        this(DEFAULT_CAPACITY, nextFrame(), System::currentTimeMillis);
+    }
+
+    /**
+     * Executor that runs its task at the start of the next frame, on the calling (looper) thread.
+     */
+    public static Executor nextFrame() {
+        return task -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> task.run());
+    }
+
+    public void append(LogEntry.Direction direction, LogKind kind, String text) {
+        append(direction, kind, LogEntry.NO_OBSTACLE, text);
+    }
+
+    /**
+     * @param obstacleId obstacle the message is about, makes it findable with {@link LogQuery#forObstacle}
+     */
+    public void append(LogEntry.Direction direction, LogKind kind, int obstacleId, String text) {
+        if (pending.size() == capacity) {
+            flush(); // a whole ring's worth in one frame, don't wait for the frame
+        }
+        pending.addLast(new LogEntry(nextSeq++, wallClock.getAsLong(), direction, kind, obstacleId, text));
+        if (!flushScheduled) {
+            flushScheduled = true;
+            frameExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Moves the staged entries into the ring and tells the listeners. Normally run by the frame executor.
+     */
+    public void flush() {
+        flushScheduled = false;
+        int inserted = pending.size();
+        if (inserted == 0) return;
+        int evicted = Math.max(0, size + inserted - capacity);
+        LogEntry entry;
+        while ((entry = pending.pollFirst()) != null) {
+            index.add(entry);
+            if (size == capacity) {
+                ring[head] = entry; // overwrite the oldest
+                head = (head + 1) % capacity;
+            } else {
+                ring[(head + size) % capacity] = entry;
+                size++;
+            }
+        }
+        index.dropBefore(ring[head].seq());
+        for (Listener listener : listeners) {
+            listener.onFlushed(evicted, inserted);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Entries in the ring, not counting those waiting for the next flush.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @param position 0 for the oldest entry still in the ring
+     */
+    public LogEntry get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        return ring[(head + position) % capacity];
+    }
+
+    /**
+     * @return the entry with this seq, or null if it was evicted or is not flushed yet
+     */
+    public LogEntry getBySeq(long seq) {
+        if (size == 0) return null;
+        long offset = seq - ring[head].seq(); // seqs in the ring are consecutive
+        if (offset < 0 || offset >= size) return null;
+        return ring[(int) ((head + offset) % capacity)];
+    }
+
+    /**
+     * Entries in the ring matching {@code query}, oldest first. Served from the indexes where possible,
+     * e.g. a kind-only query visits just the entries of that kind.
+     */
+    public List<LogEntry> query(LogQuery query) {
+        List<LogEntry> out = new ArrayList<>();
+        if (size == 0) return out;
+        long firstSeq = ring[head].seq();
+        long fromSeq = firstSeq;
+        if (query.fromMillis() != Long.MIN_VALUE) {
+            fromSeq = Math.max(firstSeq, index.seqAtOrAfter(query.fromMillis()));
+        }
+
+        if (query.obstacleId() != LogEntry.NO_OBSTACLE) {
+            collect(index.obstacle(query.obstacleId()), fromSeq, query, out);
+        } else if (!query.kinds().isEmpty()) {
+            for (LogKind kind : query.kinds()) {
+                collect(index.kind(kind), fromSeq, query, out);
+            }
+            if (query.kinds().size() > 1) {
+                out.sort(Comparator.comparingLong(LogEntry::seq));
+            }
+        } else {
+            for (long seq = fromSeq; seq < firstSeq + size; seq++) {
+                LogEntry entry = getBySeq(seq);
+                if (query.matches(entry)) out.add(entry);
+            }
+        }
+        return out;
+    }
+
+    private void collect(SeqList list, long fromSeq, LogQuery query, List<LogEntry> out) {
+        if (list == null) return;
+        for (int i = list.lowerBound(fromSeq); i < list.end(); i++) {
+            LogEntry entry = getBySeq(list.get(i));
+            if (entry != null && query.matches(entry)) out.add(entry);
+        }
+    }
+
+    /**
+     * Entries appended since the log was created, including those since evicted.
+     */
+    public long getAppendedCount() {
+        return nextSeq;
+    }
+}
@@ -0,0 +1,149 @@
+package com.mdp26.mdp20.log;
+
+import android.annotation.SuppressLint;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.mdp26.mdp20.R;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Shows a {@link MessageLog} in a {@link RecyclerView}, one row per entry.
+ * <p> Rows are only styled when they are bound, i.e. when they scroll into view. Each flush of the log becomes one
+ * removal and one insertion notification, and the list follows new entries as long as it was scrolled to the end.
+ * <p> {@link #setFilteredEntries} shows a subset instead, e.g. the results of a {@link LogQuery} or {@link LogSearch}.
+ */
+public class MessageLogAdapter extends RecyclerView.Adapter<MessageLogAdapter.EntryViewHolder>
+        implements MessageLog.Listener {
+    private static final int COLOR_SENT = Color.parseColor("#00BCD4");
+    private static final int COLOR_RECV = Color.parseColor("#4CAF50");
+
+    private final MessageLog log;
+    private List<LogEntry> filtered = null; // shown instead of the whole log if not null
+    private int shown; // item count the RecyclerView knows about
+    private RecyclerView recyclerView = null;
+    private final Calendar calendar = Calendar.getInstance(); // reused for timestamps
+
+    public MessageLogAdapter(MessageLog log) {
+        this.log = log;
+        this.shown = log.size();
+        setHasStableIds(true);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        shown = filtered == null ? log.size() : filtered.size();
+        log.addListener(this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        log.removeListener(this);
+        this.recyclerView = null;
+    }
+
+    /**
+     * Shows just {@code entries}, oldest first, until called again. Null shows the whole log again.
+     * <p> Flushes don't change a filtered list, set it again to include new entries.
+     */
+    @SuppressLint("NotifyDataSetChanged") // a different list, nothing in common to animate
+    public void setFilteredEntries(List<LogEntry> entries) {
+        filtered = entries;
+        shown = entries == null ? log.size() : entries.size();
+        notifyDataSetChanged();
+        if (recyclerView != null && shown > 0) {
+            recyclerView.scrollToPosition(shown - 1);
+        }
+    }
+
+    private LogEntry entry(int position) {
+        return filtered == null ? log.get(position) : filtered.get(position);
+    }
+
+    @Override
+    public void onFlushed(int evicted, int inserted) {
+        if (filtered != null) return;
+        // decide before the update, afterwards the new rows are below the fold
+        boolean follow = recyclerView != null && !recyclerView.canScrollVertically(1);
+        if (evicted > 0) {
+            notifyItemRangeRemoved(0, evicted);
+        }
+        notifyItemRangeInserted(shown - evicted, inserted);
+        shown = log.size();
+        if (follow && shown > 0) {
+            recyclerView.scrollToPosition(shown - 1);
+        }
+    }
+
+    @NonNull
+    @Override
+    public EntryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_log_entry, parent, false);
+        return new EntryViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull EntryViewHolder holder, int position) {
+        holder.text.setText(format(entry(position)));
+    }
+
+    @Override
+    public int getItemCount() {
+        return shown;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return entry(position).seq();
+    }
+
+    // e.g. "12:03:44.120 [RECV] ROBOT,1,2,N", direction and text coloured like the old HTML log
+    private CharSequence format(LogEntry entry) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        calendar.setTimeInMillis(entry.timeMillis());
+        appendPadded(sb, calendar.get(Calendar.HOUR_OF_DAY), 2).append(':');
+        appendPadded(sb, calendar.get(Calendar.MINUTE), 2).append(':');
+        appendPadded(sb, calendar.get(Calendar.SECOND), 2).append('.');
+        appendPadded(sb, calendar.get(Calendar.MILLISECOND), 3).append(' ');
+
+        int start = sb.length();
+        sb.append('[').append(entry.direction().name()).append(']');
+        sb.setSpan(new StyleSpan(Typeface.BOLD), start, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        sb.append(' ').append(entry.text());
+        if (entry.direction() != LogEntry.Direction.SYSTEM) {
+            int color = entry.direction() == LogEntry.Direction.SENT ? COLOR_SENT : COLOR_RECV;
+            sb.setSpan(new ForegroundColorSpan(color), start, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return sb;
+    }
+
+    private static SpannableStringBuilder appendPadded(SpannableStringBuilder sb, int value, int width) {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) sb.append('0');
+        }
+        return sb.append(String.valueOf(value));
+    }
+
+    public static class EntryViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        EntryViewHolder(@NonNull View itemView) {
+            super(itemView);
+            text = itemView.findViewById(R.id.logEntryText);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.mdp26.mdp20.log;
+
+import java.util.Arrays;
+
+/**
+ * Growable, ascending list of entry sequence numbers, one posting list of the {@link LogIndex}.
+ * Evicted entries are dropped from the front lazily, by moving {@code start}.
+ */
+final class SeqList {
+    private long[] seqs = new long[16];
+    private int start = 0;
+    private int end = 0;
+
+    void add(long seq) {
+        if (end == seqs.length) {
+            if (start > seqs.length / 2) {
+                // mostly evicted, reuse the space instead of growing
+                System.arraycopy(seqs, start, seqs, 0, end - start);
+                end -= start;
+                start = 0;
+            } else {
+                seqs = Arrays.copyOf(seqs, seqs.length * 2);
+            }
+        }
+        seqs[end++] = seq;
+    }
+
+    /**
+     * Forgets every seq below {@code firstSeq}.
+     */
+    void dropBefore(long firstSeq) {
+        start = lowerBound(firstSeq);
+    }
+
+    /**
+     * @return index of the first seq not below {@code seq}, between start and end
+     */
+    int lowerBound(long seq) {
+        int lo = start, hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seqs[mid] < seq) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    long get(int index) {
+        return seqs[index];
+    }
+
+    int size() {
+        return end - start;
+    }
+
+    boolean isEmpty() {
+        return end == start;
+    }
+}
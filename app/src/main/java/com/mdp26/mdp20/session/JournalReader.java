@@ -0,0 +1,220 @@
+package com.mdp26.mdp20.session;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates the records of a {@link SessionJournal}, oldest first, across segments.
+ * <p> One segment is mapped at a time and records are decoded as they are reached, so reading a long session
+ * never loads the whole journal. A segment that is still being written can be read, iteration stops at the
+ * last complete record.
+ */
+public class JournalReader implements Iterator<JournalReader.Entry>, Closeable {
+    private static final String TAG = "JournalReader";
+
+    /**
+     * One recorded frame.
+     *
+     * @param timestampNanos monotonic clock when the frame was recorded, comparable within a session only
+     * @param wallTimeMillis approximate wall clock time, derived from the segment header
+     */
+    public record Entry(long sessionId, long timestampNanos, long wallTimeMillis,
+                        SessionJournal.Direction direction, byte[] payload) {
+        public String text() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Fixed part of a segment, see {@link SessionJournal}.
+     */
+    record SegmentHeader(long sessionId, long wallBaseMillis, long nanoBase, int sequence) {
+    }
+
+    private final List<File> segments;
+    private final long sessionFilter; // -1 for every session
+    private int nextSegment = 0;
+    private MappedByteBuffer current = null;
+    private SegmentHeader header = null;
+    private Entry next = null;
+
+    private JournalReader(List<File> segments, long sessionFilter) {
+        this.segments = segments;
+        this.sessionFilter = sessionFilter;
+    }
+
+    /**
+     * Reads every session still in the journal.
+     */
+    public static JournalReader open(File dir) {
+        return new JournalReader(listSegments(dir), -1);
+    }
+
+    /**
+     * Reads one session only, see {@link SessionJournal#getSessionId()}.
+     */
+    public static JournalReader open(File dir, long sessionId) {
+        return new JournalReader(listSegments(dir), sessionId);
+    }
+
+    /**
+     * Ids of the sessions still in the journal, oldest first. Only reads segment headers.
+     */
+    public static List<Long> listSessions(File dir) {
+        Set<Long> sessions = new LinkedHashSet<>();
+        for (File file : listSegments(dir)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                if (raf.length() < SessionJournal.SEGMENT_HEADER_BYTES) continue;
+                if (raf.readInt() != SessionJournal.MAGIC || raf.readInt() != SessionJournal.VERSION) continue;
+                sessions.add(raf.readLong());
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read " + file, e);
+            }
+        }
+        return new ArrayList<>(sessions);
+    }
+
+    // segment files in sequence order
+    static List<File> listSegments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SessionJournal.SEGMENT_PREFIX)
+                && name.endsWith(SessionJournal.SEGMENT_SUFFIX));
+        if (files == null) return new ArrayList<>();
+        List<File> list = new ArrayList<>();
+        for (File f : files) {
+            try {
+                SessionJournal.sequenceOf(f);
+                list.add(f);
+            } catch (NumberFormatException e) {
+                // not ours
+            }
+        }
+        list.sort(Comparator.comparingInt(SessionJournal::sequenceOf));
+        return list;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) next = advance();
+        return next != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Entry entry = next;
+        next = null;
+        return entry;
+    }
+
+    /**
+     * The entry {@link #next()} would return, without consuming it.
+     *
+     * @return null at the end of the journal
+     */
+    public Entry peek() {
+        return hasNext() ? next : null;
+    }
+
+    /**
+     * Skips records stamped before {@code timestampNanos} without decoding their payloads.
+     *
+     * @return number of records skipped
+     */
+    public long skipUntil(long timestampNanos) {
+        long skipped = 0;
+        if (next != null) {
+            if (next.timestampNanos() >= timestampNanos) return 0;
+            next = null;
+            skipped++;
+        }
+        while (true) {
+            if (current == null && !openNextSegment()) return skipped;
+            if (current.remaining() < SessionJournal.RECORD_HEADER_BYTES) {
+                current = null;
+                continue;
+            }
+            int start = current.position();
+            int size = current.getInt(start);
+            if (size < SessionJournal.RECORD_HEADER_BYTES || size > current.remaining()) {
+                current = null;
+                continue;
+            }
+            if (current.getLong(start + 4) >= timestampNanos) return skipped;
+            current.position(start + size);
+            skipped++;
+        }
+    }
+
+    @Override
+    public void close() {
+        current = null;
+        nextSegment = segments.size();
+        next = null;
+    }
+
+    private Entry advance() {
+        while (true) {
+            if (current == null && !openNextSegment()) return null;
+            Entry entry = readRecord();
+            if (entry != null) return entry;
+            current = null; // end of this segment
+        }
+    }
+
+    // null at the end of the segment's data
+    private Entry readRecord() {
+        if (current.remaining() < SessionJournal.RECORD_HEADER_BYTES) return null;
+        int start = current.position();
+        int size = current.getInt(start);
+        if (size < SessionJournal.RECORD_HEADER_BYTES || size > current.remaining()) return null; // unwritten or torn
+        current.position(start + 4);
+        long nanos = current.getLong();
+        SessionJournal.Direction direction = SessionJournal.Direction.of(current.get());
+        byte[] payload = new byte[size - SessionJournal.RECORD_HEADER_BYTES];
+        current.get(payload);
+        long wall = header.wallBaseMillis() + TimeUnit.NANOSECONDS.toMillis(nanos - header.nanoBase());
+        return new Entry(header.sessionId(), nanos, wall, direction, payload);
+    }
+
+    private boolean openNextSegment() {
+        while (nextSegment < segments.size()) {
+            File file = segments.get(nextSegment++);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                long length = raf.length();
+                if (length < SessionJournal.SEGMENT_HEADER_BYTES) continue;
+                MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                mapped.order(ByteOrder.BIG_ENDIAN);
+                if (mapped.getInt() != SessionJournal.MAGIC || mapped.getInt() != SessionJournal.VERSION) {
+                    Log.e(TAG, "Not a journal segment: " + file);
+                    continue;
+                }
+                SegmentHeader h = new SegmentHeader(mapped.getLong(), mapped.getLong(), mapped.getLong(), mapped.getInt());
+                if (sessionFilter != -1 && h.sessionId() != sessionFilter) continue;
+                mapped.position(SessionJournal.SEGMENT_HEADER_BYTES);
+                current = mapped;
+                header = h;
+                return true;
+            } catch (IOException e) {
+                // e.g. deleted by the writer's retention in the meantime
+                Log.e(TAG, "Could not map " + file, e);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,271 @@
+package com.mdp26.mdp20.session;
+
+import android.util.Log;
+
+import com.mdp26.mdp20.bluetooth.FrameBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Append-only binary journal of every frame sent or received, hosted by {@link com.mdp26.mdp20.MyApplication}.
+ * <p> Records are copied into a memory-mapped segment file, so recording is a memcpy on the caller's thread and
+ * whatever was recorded is still on disk if the process dies. When a segment is full the next one is started,
+ * and only the newest {@code maxSegments} segments are kept. Every {@link SessionJournal} opened starts a new segment,
+ * tagged with its own session id. Read back with {@link JournalReader}.
+ * <p> Segment layout, big-endian: a {@value #SEGMENT_HEADER_BYTES} byte header (magic, version, session id,
+ * wall clock and monotonic clock at creation, sequence number), then records of
+ * {@code [int size][long monotonic nanos][byte direction][payload]}, where size covers the whole record.
+ * The size is written last, a zero size marks the end of the data.
+ */
+public class SessionJournal implements Closeable {
+    private static final String TAG = "SessionJournal";
+    static final int MAGIC = 0x4D44504A; // "MDPJ"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 40;
+    static final int RECORD_HEADER_BYTES = 13;
+    static final String SEGMENT_PREFIX = "seg-";
+    static final String SEGMENT_SUFFIX = ".jnl";
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+    private static final int SESSION_SEQUENCE_BITS = 20;
+
+    public enum Direction {
+        IN, OUT;
+
+        static Direction of(byte b) {
+            return b == 0 ? IN : OUT;
+        }
+    }
+
+    private final File dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final LongSupplier clock; // monotonic nanos, replaceable for tests
+    private final long sessionId;
+
+    // guarded by lock
+    private MappedByteBuffer segment = null;
+    private int nextSequence;
+    private boolean closed = false;
+    private long records = 0, recordedBytes = 0, oversized = 0;
+    private int segmentsOpened = 0;
+    private final FrameBuffer encodeBuffer = new FrameBuffer(); // for frames recorded as text
+    private final Lock lock = new ReentrantLock();
+
+    public SessionJournal(File dir, int segmentBytes, int maxSegments, LongSupplier clock) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + dir);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.clock = clock;
+        List<File> existing = JournalReader.listSegments(dir);
+        this.nextSequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        this.sessionId = sessionId(System.currentTimeMillis(), nextSequence);
+        openSegment();
+    }
+
+    // wall clock millis in the high bits, so ids sort by time, and the first segment's sequence number in the low
+    // ones, which no other session in the directory has, so two sessions opened in the same milli differ too
+    static long sessionId(long wallMillis, int firstSequence) {
+        return (wallMillis << SESSION_SEQUENCE_BITS) | (firstSequence & ((1 << SESSION_SEQUENCE_BITS) - 1));
+    }
+
+    /**
+     * Opens a journal with the default segment size and retention, e.g. in {@code new File(getFilesDir(), "journal")}.
+     */
+    public static SessionJournal open(File dir) throws IOException {
+        return new SessionJournal(dir, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS, System::nanoTime);
+    }
+
+    /**
+     * Records one frame, copied from {@code b}. Never throws, a journal that can't be written to stops recording.
+     *
+     * @return false if the frame was not recorded, i.e. closed or larger than a segment
+     */
+    public boolean record(Direction direction, byte[] b, int off, int len) {
+        int size = RECORD_HEADER_BYTES + len;
+        if (size > segmentBytes - SEGMENT_HEADER_BYTES) {
+            lock.lock();
+            try {
+                oversized++;
+            } finally {
+                lock.unlock();
+            }
+            return false;
+        }
+        lock.lock();
+        try {
+            if (closed) return false;
+            if (segment.remaining() < size) {
+                if (!rotate()) return false;
+            }
+            long now = clock.getAsLong(); // under the lock, so timestamps never go backwards in a segment
+            int start = segment.position();
+            segment.position(start + 4); // size goes in last
+            segment.putLong(now);
+            segment.put((byte) direction.ordinal());
+            segment.put(b, off, len);
+            segment.putInt(start, size);
+            records++;
+            recordedBytes += len;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a frame as UTF-8 text.
+     */
+    public boolean record(Direction direction, String frame) {
+        lock.lock();
+        try {
+            encodeBuffer.reset().put(frame);
+            return record(direction, encodeBuffer.array(), 0, encodeBuffer.length());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the current segment to storage. Not needed to survive process death, only for power loss.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (!closed) segment.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            segment.force();
+            segment = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Id of this journal's session, see {@link JournalReader#open(File, long)}.
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Payload bytes recorded, excluding record headers.
+     */
+    public long getRecordedBytes() {
+        lock.lock();
+        try {
+            return recordedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getOversizedCount() {
+        lock.lock();
+        try {
+            return oversized;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentsOpened() {
+        lock.lock();
+        try {
+            return segmentsOpened;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private boolean rotate() {
+        try {
+            openSegment();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open next journal segment, recording stopped", e);
+            closed = true;
+            segment = null;
+            return false;
+        }
+    }
+
+    // caller holds lock, or is the constructor
+    private void openSegment() throws IOException {
+        int sequence = nextSequence++;
+        File file = new File(dir, segmentName(sequence));
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentBytes);
+            // the mapping stays valid after the channel is closed
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        mapped.order(ByteOrder.BIG_ENDIAN);
+        mapped.putInt(MAGIC);
+        mapped.putInt(VERSION);
+        mapped.putLong(sessionId);
+        mapped.putLong(System.currentTimeMillis());
+        mapped.putLong(clock.getAsLong());
+        mapped.putInt(sequence);
+        mapped.putInt(0); // reserved
+        segment = mapped;
+        segmentsOpened++;
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments() {
+        List<File> segments = JournalReader.listSegments(dir);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            if (!segments.get(i).delete()) {
+                Log.e(TAG, "Could not delete old segment " + segments.get(i));
+            }
+        }
+    }
+
+    static String segmentName(int sequence) {
+        return String.format(Locale.ENGLISH, "%s%08d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    static int sequenceOf(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,169 @@
+package com.mdp26.mdp20.session;
+
+import android.util.Log;
+
+import com.mdp26.mdp20.bluetooth.BluetoothMessage;
+import com.mdp26.mdp20.bluetooth.LatencyHistogram;
+import com.mdp26.mdp20.bluetooth.LinkHeartbeat;
+import com.mdp26.mdp20.bluetooth.MessageBus;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Feeds the inbound frames of a recorded session back into a {@link MessageBus}, as if they came off the link.
+ * <p> Frames go through the same steps as {@link MessageBus#publishFrame}: the legacy adapter, the bus's parser
+ * and then every subscriber, so the UI redraws exactly as it did during the run. Outbound frames and heartbeat
+ * replies are skipped, the latter never reached the bus live either.
+ * <p> At speed 1 the original gaps between frames are kept, at N they are N times shorter, at {@link #MAX_SPEED}
+ * frames are published back to back. The {@link Report} has the throughput and the time spent reading, parsing
+ * and dispatching each frame.
+ */
+public class SessionReplayer {
+    private static final String TAG = "SessionReplayer";
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    /**
+     * Outcome of one replay, stage timings in microseconds per frame.
+     *
+     * @param read     decoding the record from the journal
+     * @param parse    {@link com.mdp26.mdp20.bluetooth.BluetoothMessageParser}
+     * @param dispatch {@link MessageBus#publish}, i.e. {@link MessageBus#POSTING} subscribers and handing off to the others
+     */
+    public record Report(long framesPublished, long framesSkipped, long elapsedNanos,
+                         LatencyHistogram.Snapshot read, LatencyHistogram.Snapshot parse,
+                         LatencyHistogram.Snapshot dispatch) {
+        public double framesPerSecond() {
+            return elapsedNanos == 0 ? 0 : framesPublished * 1e9 / elapsedNanos;
+        }
+    }
+
+    private final File dir;
+    private final long sessionId;
+    private final MessageBus bus;
+    private volatile double speed = 1;
+    private volatile long seekNanos = 0;
+    private volatile boolean stopRequested = false;
+    private Thread thread = null; // main thread only
+
+    private final LatencyHistogram readTime = new LatencyHistogram();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram dispatchTime = new LatencyHistogram();
+
+    /**
+     * @param dir       the journal's directory, see {@link SessionJournal#getDirectory()}
+     * @param sessionId one of {@link JournalReader#listSessions}
+     */
+    public SessionReplayer(File dir, long sessionId, MessageBus bus) {
+        this.dir = dir;
+        this.sessionId = sessionId;
+        this.bus = bus;
+    }
+
+    /**
+     * @param speed 1 for real time, 2 for twice as fast etc., {@link #MAX_SPEED} for no pauses at all
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0)) throw new IllegalArgumentException("speed must be positive: " + speed);
+        this.speed = speed;
+    }
+
+    /**
+     * Starts the next replay at this offset from the session's first frame, earlier frames are not published.
+     */
+    public void seek(long offset, TimeUnit unit) {
+        this.seekNanos = Math.max(0, unit.toNanos(offset));
+    }
+
+    /**
+     * Replays on a background thread, {@code onDone} is called on that thread when finished or stopped.
+     */
+    public void start(Consumer<Report> onDone) {
+        if (thread != null && thread.isAlive()) return;
+        thread = new Thread(() -> {
+            Report report = run();
+            if (onDone != null) onDone.accept(report);
+        }, TAG);
+        thread.start();
+    }
+
+    /**
+     * Ends the replay after the current frame.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Replays on the calling thread, blocking until the end of the session or {@link #stop()}.
+     */
+    public Report run() {
+        stopRequested = false;
+        readTime.reset();
+        parseTime.reset();
+        dispatchTime.reset();
+        long published = 0, skipped = 0;
+        long startWall = System.nanoTime();
+
+        try (JournalReader reader = JournalReader.open(dir, sessionId)) {
+            JournalReader.Entry first = reader.peek();
+            if (first == null) {
+                Log.e(TAG, "Nothing recorded for session " + sessionId);
+                return report(0, 0, 0);
+            }
+            long startTs = first.timestampNanos() + seekNanos;
+            skipped += reader.skipUntil(startTs);
+            startWall = System.nanoTime();
+
+            while (!stopRequested) {
+                long t0 = System.nanoTime();
+                if (!reader.hasNext()) break;
+                JournalReader.Entry entry = reader.next();
+                String frame = entry.text();
+                long t1 = System.nanoTime();
+                readTime.recordNanos(t1 - t0);
+
+                if (entry.direction() != SessionJournal.Direction.IN || isHeartbeatReply(frame)) {
+                    skipped++;
+                    continue;
+                }
+                double s = speed;
+                if (s != MAX_SPEED) {
+                    waitUntil(startWall + (long) ((entry.timestampNanos() - startTs) / s));
+                    if (stopRequested) break;
+                    t1 = System.nanoTime();
+                }
+
+                bus.forwardRaw(frame);
+                BluetoothMessage msg = bus.getParser().apply(frame);
+                long t2 = System.nanoTime();
+                parseTime.recordNanos(t2 - t1);
+                bus.publish(msg);
+                dispatchTime.recordNanos(System.nanoTime() - t2);
+                published++;
+            }
+        }
+        Report report = report(published, skipped, System.nanoTime() - startWall);
+        Log.d(TAG, "Replayed " + published + " frames, " + Math.round(report.framesPerSecond()) + " frames/s");
+        return report;
+    }
+
+    private Report report(long published, long skipped, long elapsed) {
+        return new Report(published, skipped, elapsed,
+                readTime.getSnapshot(), parseTime.getSnapshot(), dispatchTime.getSnapshot());
+    }
+
+    private void waitUntil(long deadline) {
+        long left;
+        while (!stopRequested && (left = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(left, TimeUnit.MILLISECONDS.toNanos(50))); // wake up now and then for stop()
+        }
+    }
+
+    // consumed by LinkHeartbeat before the bus during the run
+    private static boolean isHeartbeatReply(String frame) {
+        return frame.startsWith(LinkHeartbeat.PONG) && frame.indexOf(',') == LinkHeartbeat.PONG.length();
+    }
+}
@@ -0,0 +1,57 @@
+package com.mdp26.mdp20.bluetooth;
+
+import android.content.ContextWrapper;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BluetoothConnectionTest {
+
+    private static String readFrame(InputStream in) throws IOException {
+        List<String> frames = new ArrayList<>();
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] buf = new byte[BluetoothConnection.READ_BUF_SIZE];
+        while (frames.isEmpty()) {
+            int n = in.read(buf);
+            if (n < 0) return null;
+            assembler.feed(buf, 0, n);
+        }
+        return frames.get(0);
+    }
+
+    @Test
+    public void linkLost_stopsHeartbeatBeforeItFillsTheOutageQueue() throws Exception {
+        LoopbackTransport.Pair pair = LoopbackTransport.createPair();
+        FrameWriter outbound = new FrameWriter(FrameWriter.DEFAULT_CAPACITY_BYTES, FrameWriter.DEFAULT_CAPACITY_FRAMES,
+                FrameWriter.OverflowPolicy.REJECT);
+        BluetoothConnection connection = new BluetoothConnection(new ContextWrapper(null), pair.local(),
+                new MessageBus(BluetoothMessageParser.ofDefault()), outbound);
+        CountDownLatch lost = new CountDownLatch(1);
+        connection.setOnLinkLost(c -> lost.countDown());
+        connection.getHeartbeat().setInterval(10); // short, so a tick is likely in flight when the link drops
+        connection.start();
+        try {
+            pair.remote().getOutputStream().write("CAPS,PING\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("PING,1", readFrame(pair.remote().getInputStream()));
+
+            pair.remote().close(); // the RPi goes away, no cancel() from our side
+            assertTrue(lost.await(1, TimeUnit.SECONDS));
+            // stopped before the writer was detached, so no tick is scheduled and none made it into the queue
+            assertFalse(connection.getHeartbeat().isRunning());
+            assertFalse(outbound.isAttached());
+            assertEquals(0, outbound.getStats().queuedFrames());
+        } finally {
+            connection.cancel();
+            outbound.stop();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BluetoothMessageParserTest {
+
+    private static final List<String> FRAMES = List.of(
+            "INFO,hello", "info;hello world", " Info ,x", "INFO,", "INFO,,x", "INFO", "",
+            "ERROR,bad", "MODE,manual", "mode;auto;extra",
+            "STATUS,running", "status, idle ", "STATUS,a,,,",
+            "ROBOT,1,2,N", "ROBOT,1,2", "robot, 10 , 19 ,e", "ROBOT,1,2,SOUTH", "ROBOT,1,2,west",
+            "ROBOT,1,2,3", "ROBOT,1,2,-4", "ROBOT,1,2,x", "ROBOT,1,2,", "ROBOT,1,2,,5", "ROBOT,1,2,NE",
+            "ROBOT,1", "ROBOT,a,2,N", "ROBOT,1,,N", "ROBOT,+7,-3,N", "ROBOT,-,3", "ROBOT,+,3",
+            "ROBOT,2147483647,-2147483648", "ROBOT,2147483648,1", "ROBOT,-2147483649,1",
+            "ROBOT,99999999999999999999,1", "LOCATION;5;6;E", "ROBOT,١٢,3",
+            "TARGET,1,11", "TARGET,1,11,N", "target;3;20;2", "IMAGE-REC,4,12,WEST",
+            "TARGET,1", "TARGET,x,11", "TARGET,1,y", "TARGET,1,11,,", "TARGET,,", "TARGET,,,,N",
+            "UNKNOWN,1,2", ",,,", ";;", ",INFO", "INFO;a,b", "R,1,2", "ROBOTS,1,2", "I,x", "\tSTATUS\t,x",
+            "CAPS,OBSTACLES", "caps; obstacles ;; x", "CAPS,", "CAPS,,,ping");
+
+    private static void assertParity(String frame) {
+        assertEquals("frame \"" + frame + "\"",
+                BluetoothMessageParser.DEFAULT.apply(frame), BluetoothMessageParser.FAST.apply(frame));
+    }
+
+    @Test
+    public void fast_matchesDefault_onKnownFrames() {
+        for (String frame : FRAMES) {
+            assertParity(frame);
+        }
+    }
+
+    @Test
+    public void fast_matchesDefault_onRandomFrames() {
+        // short frames built from tokens the parsers care about, plus noise
+        String[] tokens = {"ROBOT", "robot", "TARGET", "IMAGE-REC", "STATUS", "INFO", "LOCATION", "MODE", "ERROR",
+                "1", "-1", "+2", "19", "007", "2147483648", "N", "e", "south", "WEST", "x", "", " ", " 3 ", ",", ";"};
+        Random random = new Random(2079);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = random.nextInt(7);
+            for (int j = 0; j < n; j++) {
+                sb.append(tokens[random.nextInt(tokens.length)]);
+                if (random.nextBoolean()) sb.append(random.nextInt(4) == 0 ? ';' : ',');
+            }
+            assertParity(sb.toString());
+        }
+    }
+
+    @Test
+    public void fast_robotPosition() {
+        assertEquals(BluetoothMessage.ofRobotPositionMessage("ROBOT,3,4,W", 3, 4, 4),
+                BluetoothMessageParser.FAST.apply("ROBOT,3,4,W"));
+        assertEquals(BluetoothMessage.ofRobotPositionMessage("ROBOT,3,4", 3, 4, 1),
+                BluetoothMessageParser.FAST.apply("ROBOT,3,4"));
+    }
+
+    @Test
+    public void caps_areNormalised() {
+        BluetoothMessage msg = BluetoothMessageParser.FAST.apply("caps, obstacles ,,ping");
+        assertEquals(BluetoothMessage.ofPeerCapabilitiesMessage("caps, obstacles ,,ping", List.of("OBSTACLES", "PING")), msg);
+        assertTrue(((BluetoothMessage.PeerCapabilitiesMessage) msg).supports(BluetoothMessage.ObstacleBatchMessage.CAPABILITY));
+    }
+
+    @Test
+    public void parseInt_followsIntegerParseInt() {
+        String[] inputs = {"0", "-0", "+5", " 12 ", "-", "+", "", "1a", "2147483647", "2147483648",
+                "-2147483648", "-2147483649", "00012"};
+        for (String s : inputs) {
+            long fast = FastMessageParser.parseInt(s, 0, s.length());
+            Integer expected;
+            try {
+                expected = Integer.parseInt(s.trim());
+            } catch (NumberFormatException e) {
+                expected = null;
+            }
+            if (expected == null) {
+                assertEquals(s, Long.MIN_VALUE, fast);
+            } else {
+                assertEquals(s, (long) expected, fast);
+            }
+        }
+    }
+}
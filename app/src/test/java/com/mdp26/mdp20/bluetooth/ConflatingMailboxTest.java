@@ -0,0 +1,93 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class ConflatingMailboxTest {
+
+    // stands in for the main looper: tasks only run when the test says so
+    private static class ManualExecutor implements java.util.concurrent.Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static BluetoothMessage robot(int x) {
+        return BluetoothMessage.ofRobotPositionMessage("ROBOT," + x + ",1,N", x, 1, 1);
+    }
+
+    @Test
+    public void positions_areLastValueWins() {
+        ManualExecutor ui = new ManualExecutor();
+        List<BluetoothMessage> seen = new ArrayList<>();
+        ConflatingMailbox mailbox = new ConflatingMailbox(ui, seen::add);
+        for (int x = 0; x < 100; x++) {
+            mailbox.offer(robot(x));
+        }
+        assertEquals(1, ui.tasks.size()); // one drain, not one task per frame
+        ui.runAll();
+        assertEquals(List.of(robot(99)), seen);
+        assertEquals(100, mailbox.getOfferedCount());
+        assertEquals(1, mailbox.getDeliveredCount());
+        assertEquals(99, mailbox.getCollapsedCount());
+    }
+
+    @Test
+    public void otherFrames_areNeverDropped_andKeepOrder() {
+        ManualExecutor ui = new ManualExecutor();
+        List<BluetoothMessage> seen = new ArrayList<>();
+        ConflatingMailbox mailbox = new ConflatingMailbox(ui, seen::add);
+        BluetoothMessage info = BluetoothMessage.ofPlainStringMessage("[info] a");
+        BluetoothMessage target = BluetoothMessage.ofTargetFoundMessage("TARGET,1,11", 1, 11);
+        BluetoothMessage running = BluetoothMessage.ofRobotStatusMessage("STATUS,running", "running");
+        BluetoothMessage finished = BluetoothMessage.ofRobotStatusMessage("STATUS,finished", "finished");
+
+        mailbox.offer(robot(1));
+        mailbox.offer(running);
+        mailbox.offer(info);
+        mailbox.offer(robot(2));
+        mailbox.offer(target);
+        mailbox.offer(info);
+        mailbox.offer(finished);
+        ui.runAll();
+        // superseded frames leave a gap, the newer value comes after what arrived in between
+        assertEquals(List.of(info, robot(2), target, info, finished), seen);
+        assertEquals(2, mailbox.getCollapsedCount());
+
+        // after a drain nothing is pending, the next position is delivered again
+        mailbox.offer(robot(3));
+        ui.runAll();
+        assertEquals(robot(3), seen.get(seen.size() - 1));
+        assertEquals(6, mailbox.getDeliveredCount());
+    }
+
+    @Test
+    public void closedSubscription_getsNothingQueued() {
+        ManualExecutor ui = new ManualExecutor();
+        MessageBus bus = new MessageBus(BluetoothMessageParser.FAST);
+        List<BluetoothMessage> seen = new ArrayList<>();
+        MessageBus.Subscription subscription = bus.subscribeConflated(ui, seen::add);
+        bus.publishFrame("ROBOT,1,2,N");
+        bus.publishFrame("ROBOT,3,4,N");
+        subscription.close();
+        ui.runAll();
+        assertTrue(seen.isEmpty());
+        assertEquals(1, subscription.getMailbox().getCollapsedCount());
+    }
+}
@@ -0,0 +1,136 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds {@link FrameAssembler} with chunk boundaries that an RFCOMM socket is allowed to produce.
+ */
+public class FrameAssemblerTest {
+
+    private final List<String> frames = new ArrayList<>();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void singleChunk_multipleFrames() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        assertEquals(3, assembler.feed(bytes("ROBOT,1,2,N\nTARGET,3,11\nSTATUS,running\n"), 0, 39));
+        assertEquals(List.of("ROBOT,1,2,N", "TARGET,3,11", "STATUS,running"), frames);
+        assertEquals(0, assembler.pendingBytes());
+    }
+
+    @Test
+    public void partialFrame_isCarriedOverReads() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] a = bytes("ROBOT,1");
+        byte[] b = bytes(",2,N\nTARG");
+        byte[] c = bytes("ET,3,11\n");
+        assertEquals(0, assembler.feed(a, 0, a.length));
+        assertEquals(7, assembler.pendingBytes());
+        assertEquals(1, assembler.feed(b, 0, b.length));
+        assertEquals(1, assembler.feed(c, 0, c.length));
+        assertEquals(List.of("ROBOT,1,2,N", "TARGET,3,11"), frames);
+    }
+
+    @Test
+    public void oneByteAtATime() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] in = bytes("INFO,hello\nSTATUS,finished\n");
+        for (int i = 0; i < in.length; i++) {
+            assembler.feed(in, i, 1);
+        }
+        assertEquals(List.of("INFO,hello", "STATUS,finished"), frames);
+    }
+
+    @Test
+    public void emptyLinesAndCrlf_areDropped() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] in = bytes("\n\nINFO,a\r\n\r\nINFO,b\n");
+        assembler.feed(in, 0, in.length);
+        assertEquals(List.of("INFO,a", "INFO,b"), frames);
+    }
+
+    @Test
+    public void multiByteCharacter_splitAcrossReads() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] in = bytes("INFO,café ✓ 🚀\n");
+        // split inside every multi-byte sequence
+        for (int cut = 1; cut < in.length; cut++) {
+            frames.clear();
+            assembler.feed(in, 0, cut);
+            assembler.feed(in, cut, in.length - cut);
+            assertEquals("cut at " + cut, List.of("INFO,café ✓ 🚀"), frames);
+        }
+    }
+
+    @Test
+    public void multiByteCharacter_splitAcrossRingWrap() {
+        // small ring so frames keep wrapping around its end at every possible offset
+        FrameAssembler assembler = new FrameAssembler(16, frames::add);
+        String frame = "🚀éx✓";
+        byte[] in = bytes(frame + "\n");
+        for (int i = 0; i < 64; i++) {
+            assembler.feed(in, 0, in.length);
+        }
+        assertEquals(64, frames.size());
+        for (String f : frames) {
+            assertEquals(frame, f);
+        }
+    }
+
+    @Test
+    public void oversizedFrame_isFlushedNotLost() {
+        FrameAssembler assembler = new FrameAssembler(16, frames::add);
+        byte[] in = bytes("0123456789abcdefXYZ\nok\n");
+        assembler.feed(in, 0, in.length);
+        assertEquals(List.of("0123456789abcdef", "XYZ", "ok"), frames);
+        assertEquals(1, assembler.getOversizedFrameCount());
+    }
+
+    @Test
+    public void reset_dropsPartialFrame() {
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] a = bytes("garbage");
+        byte[] b = bytes("INFO,x\n");
+        assembler.feed(a, 0, a.length);
+        assembler.reset();
+        assembler.feed(b, 0, b.length);
+        assertEquals(List.of("INFO,x"), frames);
+    }
+
+    @Test
+    public void randomChunking_matchesSplit() {
+        Random random = new Random(20);
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String line = switch (random.nextInt(4)) {
+                case 0 -> "ROBOT," + random.nextInt(20) + "," + random.nextInt(20) + ",N";
+                case 1 -> "TARGET," + random.nextInt(8) + "," + random.nextInt(41);
+                case 2 -> "INFO,über → " + i;
+                default -> "STATUS,running";
+            };
+            expected.add(line);
+            sb.append(line).append('\n');
+        }
+        byte[] in = bytes(sb.toString());
+        FrameAssembler assembler = new FrameAssembler(64, frames::add);
+        int off = 0;
+        while (off < in.length) {
+            int n = Math.min(in.length - off, 1 + random.nextInt(40));
+            assembler.feed(in, off, n);
+            off += n;
+        }
+        assertEquals(expected, frames);
+        assertEquals(500, assembler.getFrameCount());
+    }
+}
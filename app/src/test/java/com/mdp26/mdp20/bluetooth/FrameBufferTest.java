@@ -0,0 +1,81 @@
+package com.mdp26.mdp20.bluetooth;
+
+import com.mdp26.mdp20.Facing;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferTest {
+
+    private static byte[] encode(JsonMessage msg) {
+        FrameBuffer buf = new FrameBuffer(4); // small on purpose, exercises growth
+        msg.encodeTo(buf);
+        return Arrays.copyOf(buf.array(), buf.length());
+    }
+
+    private static void assertSameBytes(JsonMessage msg) {
+        assertArrayEquals(msg.toString(), msg.getAsJson().getBytes(StandardCharsets.UTF_8), encode(msg));
+    }
+
+    @Test
+    public void encodeTo_matchesGetAsJson() {
+        List<JsonMessage> messages = new ArrayList<>();
+        int[] values = {0, 1, 2, 9, 10, 19, -1, -7, 123456, Integer.MAX_VALUE / 10, -Integer.MAX_VALUE / 10};
+        for (int x : values) {
+            for (int y : values) {
+                for (Facing facing : Facing.values()) {
+                    messages.add((JsonMessage) BluetoothMessage.ofRobotStateMessage(x, y, facing));
+                    messages.add((JsonMessage) BluetoothMessage.ofObstacleEventMessage(x, x, y, facing, false));
+                    messages.add((JsonMessage) BluetoothMessage.ofObstacleEventMessage(y, x, y, facing, true));
+                }
+            }
+        }
+        for (RobotMoveCommand cmd : RobotMoveCommand.values()) {
+            messages.add((JsonMessage) BluetoothMessage.ofRobotMoveMessage(cmd));
+        }
+        messages.add((JsonMessage) BluetoothMessage.ofRobotStartMessage());
+        messages.add((JsonMessage) BluetoothMessage.ofObstaclesMessage(List.of()));
+        for (JsonMessage msg : messages) {
+            assertSameBytes(msg);
+        }
+    }
+
+    @Test
+    public void putInt_edgeValues() {
+        FrameBuffer buf = new FrameBuffer();
+        for (int v : new int[]{0, -0, 7, -7, 10, 100, 999, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            buf.reset().putInt(v);
+            assertEquals(String.valueOf(v), buf.toString());
+        }
+    }
+
+    @Test
+    public void put_encodesUtf8LikeGetBytes() {
+        String[] inputs = {"plain", "café", "路径", "robot 🤖", "bad \uD83D end", "\uDC00x", ""};
+        FrameBuffer buf = new FrameBuffer(1);
+        for (String s : inputs) {
+            buf.reset().put(s);
+            assertArrayEquals(s, s.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(buf.array(), buf.length()));
+        }
+    }
+
+    @Test
+    public void reusedBuffer_doesNotGrowOnceSized() {
+        FrameBuffer buf = new FrameBuffer();
+        JsonMessage msg = (JsonMessage) BluetoothMessage.ofObstacleEventMessage(12, 19, 19, Facing.WEST, false);
+        msg.encodeTo(buf.reset());
+        byte[] backing = buf.array();
+        for (int i = 0; i < 1000; i++) {
+            msg.encodeTo(buf.reset());
+            buf.put('\n');
+        }
+        assertSame(backing, buf.array());
+        assertEquals("OBSTACLE,12,190,190,WEST\n", buf.toString());
+    }
+}
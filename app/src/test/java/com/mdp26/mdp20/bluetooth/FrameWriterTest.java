@@ -0,0 +1,214 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class FrameWriterTest {
+
+    // output stream standing in for a slow RFCOMM link: the first write blocks until released
+    private static class GatedStream extends OutputStream {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        int writes = 0;
+
+        @Override
+        public void write(int b) {
+            throw new UnsupportedOperationException("writer should only do bulk writes");
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            writes++;
+            firstWriteStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            written.write(b, off, len);
+        }
+
+        synchronized String text() {
+            return written.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean offer(FrameWriter writer, String frame) {
+        byte[] b = (frame + "\n").getBytes(StandardCharsets.UTF_8);
+        return writer.offer(b, 0, b.length);
+    }
+
+    @Test
+    public void pendingFrames_areCoalescedIntoOneWrite() throws Exception {
+        GatedStream out = new GatedStream();
+        FrameWriter writer = new FrameWriter(out);
+        writer.start();
+
+        assertTrue(offer(writer, "f"));
+        assertTrue(out.firstWriteStarted.await(1, TimeUnit.SECONDS));
+        // link is stuck on the first write, these pile up in the queue
+        for (int i = 0; i < 10; i++) {
+            assertTrue(offer(writer, "OBSTACLE," + i + ",10,10,NORTH"));
+        }
+        assertEquals(10, writer.getStats().queuedFrames());
+
+        out.release.countDown();
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+
+        FrameWriter.Stats stats = writer.getStats();
+        assertEquals(2, out.writes);
+        assertEquals(2, stats.flushes());
+        assertEquals(11, stats.framesWritten());
+        assertEquals(out.written.size(), stats.bytesWritten());
+        assertEquals(10, stats.maxQueuedFrames());
+        assertTrue(out.text().startsWith("f\nOBSTACLE,0,10,10,NORTH\n"));
+        assertTrue(out.text().endsWith("OBSTACLE,9,10,10,NORTH\n"));
+    }
+
+    @Test
+    public void reject_refusesWhenFull() throws Exception {
+        GatedStream out = new GatedStream();
+        FrameWriter writer = new FrameWriter(out, 1024, 4, FrameWriter.OverflowPolicy.REJECT);
+        writer.start();
+        assertTrue(offer(writer, "first"));
+        assertTrue(out.firstWriteStarted.await(1, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(writer, "q" + i));
+        }
+        assertFalse(offer(writer, "q4"));
+        assertEquals(1, writer.getStats().rejectedFrames());
+
+        out.release.countDown();
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+        assertEquals("first\nq0\nq1\nq2\nq3\n", out.text());
+    }
+
+    @Test
+    public void dropOldest_keepsNewestFrames() throws Exception {
+        GatedStream out = new GatedStream();
+        // room for 3 frames of 3 bytes
+        FrameWriter writer = new FrameWriter(out, 9, 64, FrameWriter.OverflowPolicy.DROP_OLDEST);
+        writer.start();
+        assertTrue(offer(writer, "xx"));
+        assertTrue(out.firstWriteStarted.await(1, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(offer(writer, "a" + i));
+        }
+        assertEquals(2, writer.getStats().droppedFrames());
+
+        out.release.countDown();
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+        assertEquals("xx\na2\na3\na4\n", out.text());
+    }
+
+    @Test
+    public void block_waitsForRoom() throws Exception {
+        GatedStream out = new GatedStream();
+        FrameWriter writer = new FrameWriter(out, 1024, 1, FrameWriter.OverflowPolicy.BLOCK);
+        writer.start();
+        assertTrue(offer(writer, "one"));
+        assertTrue(out.firstWriteStarted.await(1, TimeUnit.SECONDS));
+        assertTrue(offer(writer, "two")); // fills the single slot
+
+        AtomicBoolean thirdQueued = new AtomicBoolean(false);
+        Thread caller = new Thread(() -> thirdQueued.set(offer(writer, "three")));
+        caller.start();
+        caller.join(100);
+        assertTrue("caller should be blocked on a full queue", caller.isAlive());
+
+        out.release.countDown();
+        caller.join(1000);
+        assertTrue(thirdQueued.get());
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+        assertEquals("one\ntwo\nthree\n", out.text());
+    }
+
+    @Test
+    public void failedWrite_closesWriter() throws Exception {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("link lost");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("link lost");
+            }
+        };
+        FrameWriter writer = new FrameWriter(broken, 1024, 8, FrameWriter.OverflowPolicy.BLOCK);
+        writer.start();
+        assertTrue(offer(writer, "f"));
+        assertFalse(writer.awaitDrained(1, TimeUnit.SECONDS));
+        // must not block forever on a dead link
+        assertFalse(offer(writer, "f"));
+    }
+
+    @Test
+    public void detachedWriter_replaysInOrderOnAttach() throws Exception {
+        FrameWriter writer = new FrameWriter(1024, 4, FrameWriter.OverflowPolicy.BLOCK);
+        assertFalse(writer.isAttached());
+        // outage: queued up to the limit, BLOCK must not wait for a link that isn't there
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(writer, "OBSTACLE," + i));
+        }
+        assertFalse(offer(writer, "OBSTACLE,4"));
+        assertEquals(1, writer.getStats().rejectedFrames());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.attach(out);
+        assertTrue(offer(writer, "f"));
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+        assertEquals("OBSTACLE,0\nOBSTACLE,1\nOBSTACLE,2\nOBSTACLE,3\nf\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void failedWrite_detachesSharedWriter() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("link lost");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                failed.countDown();
+                throw new IOException("link lost");
+            }
+        };
+        FrameWriter writer = new FrameWriter(1024, 8, FrameWriter.OverflowPolicy.REJECT);
+        writer.attach(broken);
+        assertTrue(offer(writer, "lost"));
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS)); // the failed batch is not requeued
+        assertFalse(writer.isAttached());
+        assertEquals(1, writer.getStats().lostFrames());
+
+        // still open, later frames wait for the next link
+        assertTrue(offer(writer, "kept"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(writer.detach(out));
+        writer.attach(out);
+        assertTrue(writer.awaitDrained(1, TimeUnit.SECONDS));
+        writer.stop();
+        assertEquals("kept\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
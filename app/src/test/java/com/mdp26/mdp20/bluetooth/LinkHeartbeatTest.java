@@ -0,0 +1,138 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LinkHeartbeatTest {
+
+    // stand-in for the RPi: answers every PING after a fixed delay on a fake clock, unless told to stay silent
+    private static class FakeRpi implements MessageSink {
+        long now = 0;
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(40);
+        boolean silent = false;
+        LinkHeartbeat heartbeat;
+        final List<String> pings = new ArrayList<>();
+
+        @Override
+        public boolean sendMessage(String s) {
+            pings.add(s);
+            if (!silent) {
+                now += delayNanos;
+                heartbeat.onFrame("PONG," + s.substring(s.indexOf(',') + 1));
+            }
+            return true;
+        }
+
+        @Override
+        public boolean sendMessage(JsonMessage msg) {
+            return sendMessage(msg.getAsJson());
+        }
+    }
+
+    private static FakeRpi rpiWithHeartbeat() {
+        FakeRpi rpi = new FakeRpi();
+        rpi.heartbeat = new LinkHeartbeat(rpi, () -> rpi.now);
+        return rpi;
+    }
+
+    @Test
+    public void roundTrips_areRecorded() {
+        FakeRpi rpi = rpiWithHeartbeat();
+        for (int i = 0; i < 10; i++) {
+            rpi.heartbeat.tick();
+        }
+        assertEquals(List.of("PING,1", "PING,2"), rpi.pings.subList(0, 2));
+        LatencyHistogram.Snapshot snapshot = rpi.heartbeat.getLatency().getSnapshot();
+        assertEquals(10, snapshot.count());
+        assertEquals(40_000, snapshot.max());
+        assertTrue(snapshot.p50() >= 40_000 * 0.94 && snapshot.p50() <= 40_000);
+        assertFalse(rpi.heartbeat.isDegraded());
+    }
+
+    @Test
+    public void missedHeartbeats_degradeThenRecover() {
+        FakeRpi rpi = rpiWithHeartbeat();
+        List<Boolean> events = new ArrayList<>();
+        rpi.heartbeat.setDegradedListener(events::add);
+        rpi.heartbeat.tick();
+
+        rpi.silent = true;
+        for (int i = 0; i < LinkHeartbeat.MISSED_LIMIT; i++) {
+            rpi.heartbeat.tick();
+            assertFalse(rpi.heartbeat.isDegraded());
+        }
+        rpi.heartbeat.tick();
+        assertTrue(rpi.heartbeat.isDegraded());
+        rpi.heartbeat.tick();
+        assertEquals(List.of(true), events);
+
+        rpi.silent = false;
+        rpi.heartbeat.tick();
+        assertFalse(rpi.heartbeat.isDegraded());
+        assertEquals(List.of(true, false), events);
+    }
+
+    @Test
+    public void silentPeer_neverArmsDegradation() {
+        FakeRpi rpi = rpiWithHeartbeat();
+        rpi.silent = true;
+        for (int i = 0; i < 10; i++) {
+            rpi.heartbeat.tick();
+        }
+        assertFalse(rpi.heartbeat.isDegraded());
+        assertEquals(0, rpi.heartbeat.getLatency().getCount());
+    }
+
+    @Test
+    public void onlyPongFramesAreConsumed() {
+        FakeRpi rpi = rpiWithHeartbeat();
+        rpi.silent = true;
+        rpi.heartbeat.tick();
+        assertFalse(rpi.heartbeat.onFrame("ROBOT,1,2,N"));
+        assertFalse(rpi.heartbeat.onFrame("PONGS,1"));
+        assertTrue(rpi.heartbeat.onFrame("PONG,99")); // never sent
+        assertEquals(1, rpi.heartbeat.getLatePongs());
+        assertTrue(rpi.heartbeat.onFrame("PONG,1"));
+        assertTrue(rpi.heartbeat.onFrame("PONG,1")); // duplicate
+        assertEquals(1, rpi.heartbeat.getPongsReceived());
+        assertEquals(2, rpi.heartbeat.getLatePongs());
+    }
+
+    @Test
+    public void histogram_bucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            assertEquals(LatencyHistogram.bucketUpperBound(i - 1) + 1, LatencyHistogram.bucketLowerBound(i));
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketLowerBound(i)));
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(i)));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogram_percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(10);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextInt(200_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getPercentile(p);
+            assertTrue(p + ": " + reported + " vs " + exact, reported >= exact && reported <= exact * 1.07);
+        }
+        assertEquals(values[values.length - 1], histogram.getPercentile(100));
+        assertEquals(values[values.length - 1], histogram.getSnapshot().max());
+        histogram.reset();
+        assertEquals(0, histogram.getSnapshot().count());
+    }
+}
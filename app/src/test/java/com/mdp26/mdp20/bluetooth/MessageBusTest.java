@@ -0,0 +1,146 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MessageBusTest {
+
+    @Test
+    public void frame_isParsedOnceForAllSubscribers() {
+        AtomicInteger parses = new AtomicInteger();
+        MessageBus bus = new MessageBus(msg -> {
+            parses.incrementAndGet();
+            return BluetoothMessageParser.DEFAULT.apply(msg);
+        });
+        List<BluetoothMessage> a = new ArrayList<>();
+        List<BluetoothMessage> b = new ArrayList<>();
+        List<BluetoothMessage> c = new ArrayList<>();
+        bus.subscribe(MessageBus.POSTING, a::add);
+        bus.subscribe(MessageBus.POSTING, b::add);
+        bus.subscribe(MessageBus.POSTING, c::add);
+
+        bus.publishFrame("ROBOT,3,4,E");
+
+        assertEquals(1, parses.get());
+        BluetoothMessage expected = BluetoothMessage.ofRobotPositionMessage("ROBOT,3,4,E", 3, 4, 2);
+        assertEquals(List.of(expected), a);
+        assertSame(a.get(0), b.get(0));
+        assertSame(a.get(0), c.get(0));
+    }
+
+    @Test
+    public void subscriber_runsOnItsExecutor() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        List<Runnable> queued = new ArrayList<>();
+        Executor deferred = queued::add;
+        List<BluetoothMessage> received = new ArrayList<>();
+        bus.subscribe(deferred, received::add);
+
+        bus.publishFrame("STATUS,running");
+        assertTrue(received.isEmpty());
+        assertEquals(1, queued.size());
+
+        queued.get(0).run();
+        assertEquals(1, received.size());
+        assertTrue(received.get(0) instanceof BluetoothMessage.RobotStatusMessage);
+    }
+
+    @Test
+    public void closedSubscription_getsNothing_evenIfAlreadyQueued() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        List<Runnable> queued = new ArrayList<>();
+        List<BluetoothMessage> received = new ArrayList<>();
+        MessageBus.Subscription subscription = bus.subscribe(queued::add, received::add);
+
+        bus.publishFrame("INFO,hello");
+        subscription.close();
+        bus.publishFrame("INFO,again");
+        queued.forEach(Runnable::run);
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, queued.size());
+        assertEquals(0, bus.getSubscriberCount());
+        assertFalse(subscription.isActive());
+    }
+
+    @Test
+    public void throwingPostingSubscriber_doesNotStopOthers() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        List<BluetoothMessage> received = new ArrayList<>();
+        bus.subscribe(MessageBus.POSTING, msg -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.subscribe(MessageBus.POSTING, received::add);
+        bus.publishFrame("INFO,x");
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void legacyAdapter_seesRawFrames() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        List<String> raw = new ArrayList<>();
+        bus.setLegacyAdapter(raw::add);
+        bus.publishFrame("INFO,hello");
+        bus.setLegacyAdapter(null);
+        bus.publishFrame("INFO,not forwarded");
+        assertEquals(List.of("INFO,hello"), raw);
+    }
+
+    @Test
+    public void concurrentSubscribeWhilePublishing() throws Exception {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        AtomicInteger delivered = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                bus.publishFrame("TARGET,1," + (i % 40));
+            }
+            done.countDown();
+        });
+        publisher.start();
+        ConcurrentLinkedQueue<MessageBus.Subscription> subs = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 200; i++) {
+            subs.add(bus.subscribe(MessageBus.POSTING, msg -> delivered.incrementAndGet()));
+        }
+        for (MessageBus.Subscription s : subs) {
+            s.close();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, bus.getSubscriberCount());
+    }
+
+    @Test
+    public void loopbackPipeline_readParseDispatch() throws Exception {
+        // the same read -> assemble -> parse -> dispatch chain MessageThread runs, against an in-memory RPi
+        LoopbackTransport.Pair pair = LoopbackTransport.createPair();
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofDefault());
+        List<BluetoothMessage> received = new ArrayList<>();
+        bus.subscribe(MessageBus.POSTING, received::add);
+
+        pair.remote().getOutputStream().write("ROBOT,1,2,N\nTARGET,3,11\nSTAT".getBytes(StandardCharsets.UTF_8));
+        pair.remote().getOutputStream().write("US,finished\n".getBytes(StandardCharsets.UTF_8));
+        pair.remote().close();
+
+        FrameAssembler assembler = new FrameAssembler(bus::publishFrame);
+        byte[] buf = new byte[BluetoothConnection.READ_BUF_SIZE];
+        int n;
+        while ((n = pair.local().getInputStream().read(buf)) >= 0) {
+            assembler.feed(buf, 0, n);
+        }
+
+        assertEquals(3, received.size());
+        assertTrue(received.get(0) instanceof BluetoothMessage.RobotPositionMessage);
+        assertTrue(received.get(1) instanceof BluetoothMessage.TargetFoundMessage);
+        assertEquals(BluetoothMessage.ofRobotStatusMessage("STATUS,finished", "finished"), received.get(2));
+    }
+}
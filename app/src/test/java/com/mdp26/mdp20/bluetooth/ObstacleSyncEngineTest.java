@@ -0,0 +1,215 @@
+package com.mdp26.mdp20.bluetooth;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.canvas.Grid;
+import com.mdp26.mdp20.canvas.GridObstacle;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ObstacleSyncEngineTest {
+
+    // stands in for a BluetoothConnection, records the frames as sent
+    private static class RecordingSink implements MessageSink {
+        final List<String> frames = new ArrayList<>();
+        boolean refuse = false;
+        boolean batching = false;
+
+        @Override
+        public boolean supports(String capability) {
+            return batching && capability.equals(BluetoothMessage.ObstacleBatchMessage.CAPABILITY);
+        }
+
+        @Override
+        public boolean sendMessage(String s) {
+            if (refuse) return false;
+            frames.add(s);
+            return true;
+        }
+
+        @Override
+        public boolean sendMessage(JsonMessage msg) {
+            return sendMessage(msg.getAsJson());
+        }
+
+        List<String> take() {
+            List<String> copy = new ArrayList<>(frames);
+            frames.clear();
+            return copy;
+        }
+    }
+
+    private Grid grid;
+    private ObstacleSyncEngine engine;
+    private RecordingSink sink;
+
+    @Before
+    public void setUp() {
+        grid = new Grid();
+        grid.clear(); // ids are handed out from a static counter
+        engine = new ObstacleSyncEngine(grid);
+        sink = new RecordingSink();
+    }
+
+    private GridObstacle add(int x, int y) {
+        GridObstacle obstacle = GridObstacle.of(x, y, Facing.NORTH);
+        grid.addObstacle(obstacle);
+        return obstacle;
+    }
+
+    @Test
+    public void firstSync_onAConnection_isFull() {
+        add(1, 2);
+        add(3, 4);
+        assertEquals(3, engine.sync(sink, null));
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,10,20,NORTH", "OBSTACLE,2,30,40,NORTH"), sink.take());
+        assertEquals(1, engine.getFullResyncCount());
+    }
+
+    @Test
+    public void edits_sendOnlyTheDelta() {
+        GridObstacle a = add(1, 2);
+        GridObstacle b = add(3, 4);
+        add(5, 6);
+        engine.sync(sink, null);
+        sink.take();
+
+        grid.rotateObstacle(a);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLE,1,10,20,EAST"), sink.take());
+
+        grid.moveObstacle(b, 7, 8);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLE,2,70,80,NORTH"), sink.take());
+
+        grid.removeObstacle(5, 6);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLE,3,50,60,-1"), sink.take());
+
+        GridObstacle d = add(9, 9);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLE," + d.getId() + ",90,90,NORTH"), sink.take());
+        assertEquals(1, engine.getFullResyncCount());
+    }
+
+    @Test
+    public void changesBetweenSyncs_areCoalesced() {
+        GridObstacle a = add(1, 1);
+        engine.sync(sink, null);
+        sink.take();
+
+        grid.moveObstacle(a, 2, 2);
+        grid.rotateObstacle(a);
+        grid.moveObstacle(a, 3, 3);
+        GridObstacle b = add(4, 4);
+        grid.removeObstacle(4, 4);
+        grid.updateObstacleTarget(a.getId(), 11); // not part of the remote state
+
+        assertEquals(1, engine.sync(sink, null));
+        assertEquals(List.of("OBSTACLE,1,30,30,EAST"), sink.take());
+        assertNotEquals(0, b.getId());
+    }
+
+    @Test
+    public void clear_isForwardedThenRefilled() {
+        add(1, 1);
+        add(2, 2);
+        engine.sync(sink, null);
+        sink.take();
+
+        grid.clear();
+        add(5, 5);
+        engine.sync(sink, null);
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,50,50,NORTH"), sink.take());
+        assertEquals(1, engine.getFullResyncCount());
+    }
+
+    @Test
+    public void newConnection_getsFullResync() {
+        add(1, 1);
+        engine.sync(sink, null);
+        sink.take();
+
+        RecordingSink reconnected = new RecordingSink();
+        engine.sync(reconnected, null);
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,10,10,NORTH"), reconnected.take());
+        assertEquals(2, engine.getFullResyncCount());
+    }
+
+    @Test
+    public void journalOverflow_fallsBackToFullResync() {
+        GridObstacle a = add(1, 1);
+        engine.sync(sink, null);
+        sink.take();
+        for (int i = 0; i < Grid.JOURNAL_SIZE + 1; i++) {
+            grid.rotateObstacle(a);
+        }
+        engine.sync(sink, null);
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,10,10,EAST"), sink.take());
+        assertEquals(2, engine.getFullResyncCount());
+    }
+
+    @Test
+    public void refusedSend_resyncsNextTime() {
+        GridObstacle a = add(1, 1);
+        engine.sync(sink, null);
+        sink.take();
+
+        sink.refuse = true;
+        grid.rotateObstacle(a);
+        assertEquals(0, engine.sync(sink, null));
+        sink.refuse = false;
+        engine.sync(sink, null);
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,10,10,EAST"), sink.take());
+    }
+
+    @Test
+    public void noConnection_sendsNothing_andCatchesUpLater() {
+        add(1, 1);
+        assertEquals(0, engine.sync(null, null));
+        List<String> log = new ArrayList<>();
+        engine.sync(sink, (frame, id) -> log.add(frame));
+        assertEquals(List.of("CLEAR", "OBSTACLE,1,10,10,NORTH"), log);
+        assertEquals(log, sink.take());
+    }
+
+    @Test
+    public void batchCapablePeer_getsOneFrame() {
+        sink.batching = true;
+        add(1, 2);
+        add(3, 4);
+        assertEquals(2, engine.sync(sink, null));
+        assertEquals(List.of("CLEAR", "OBSTACLES|1,10,20,NORTH|2,30,40,NORTH"), sink.take());
+
+        // a single edit still goes out as a plain OBSTACLE frame
+        grid.removeObstacle(1, 2);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLE,1,10,20,-1"), sink.take());
+
+        grid.clear();
+        add(5, 5);
+        add(6, 6);
+        engine.sync(sink, null);
+        assertEquals(List.of("CLEAR", "OBSTACLES|1,50,50,NORTH|2,60,60,NORTH"), sink.take());
+        assertEquals(2, engine.getBatchesSent());
+    }
+
+    @Test
+    public void batch_mixesUpsertsAndRemovals() {
+        sink.batching = true;
+        GridObstacle a = add(1, 1);
+        add(2, 2);
+        engine.sync(sink, null);
+        sink.take();
+
+        grid.rotateObstacle(a);
+        grid.removeObstacle(2, 2);
+        engine.sync(sink, null);
+        assertEquals(List.of("OBSTACLES|1,10,10,EAST|2,20,20,-1"), sink.take());
+    }
+}
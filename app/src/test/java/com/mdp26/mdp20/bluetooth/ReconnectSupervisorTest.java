@@ -0,0 +1,61 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReconnectSupervisorTest {
+
+    @Test
+    public void delays_backOffWithJitter() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(250, 1000, 30_000, new Random(2079), System::nanoTime);
+        assertEquals(250, supervisor.delayFor(1));
+        for (int i = 0; i < 1000; i++) {
+            long second = supervisor.delayFor(2);
+            assertTrue(second >= 500 && second <= 1000);
+            long fourth = supervisor.delayFor(4);
+            assertTrue(fourth >= 2000 && fourth <= 4000);
+            long late = supervisor.delayFor(40); // capped, no overflow
+            assertTrue(late >= 15_000 && late <= 30_000);
+        }
+    }
+
+    @Test
+    public void retries_untilConnected() throws Exception {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(1, 2, 8, new Random(1), System::nanoTime);
+        AtomicInteger tries = new AtomicInteger();
+        CountDownLatch connected = new CountDownLatch(1);
+        supervisor.setTarget(() -> {
+            // the link comes back on the third attempt
+            if (tries.incrementAndGet() < 3) {
+                supervisor.onAttemptFailed();
+            } else {
+                supervisor.onConnected();
+                connected.countDown();
+            }
+        });
+
+        supervisor.onLinkLost();
+        supervisor.onLinkLost(); // already reconnecting, no second cycle
+        assertTrue(connected.await(1, TimeUnit.SECONDS));
+        assertFalse(supervisor.isReconnecting());
+        assertEquals(3, supervisor.getAttemptCount());
+        assertEquals(1, supervisor.getOutageCount());
+        assertEquals(1, supervisor.getReconnectCount());
+        assertEquals(1, supervisor.getTimeToReconnect().getCount());
+    }
+
+    @Test
+    public void noTarget_noRetries() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor();
+        supervisor.onLinkLost();
+        assertFalse(supervisor.isReconnecting());
+        supervisor.onConnected(); // a fresh connection is not a reconnect
+        assertEquals(0, supervisor.getReconnectCount());
+    }
+}
@@ -0,0 +1,102 @@
+package com.mdp26.mdp20.bluetooth;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransportTest {
+
+    // reads frames the way MessageThread does until `expected` frames have arrived
+    private static List<String> readFrames(InputStream in, int expected) throws IOException {
+        List<String> frames = new ArrayList<>();
+        FrameAssembler assembler = new FrameAssembler(frames::add);
+        byte[] buf = new byte[BluetoothConnection.READ_BUF_SIZE];
+        while (frames.size() < expected) {
+            int n = in.read(buf);
+            if (n < 0) break;
+            assembler.feed(buf, 0, n);
+        }
+        return frames;
+    }
+
+    @Test
+    public void loopback_bothDirections() throws Exception {
+        LoopbackTransport.Pair pair = LoopbackTransport.createPair();
+        pair.remote().getOutputStream().write("ROBOT,1,2,N\n".getBytes(StandardCharsets.UTF_8));
+        pair.local().getOutputStream().write("CLEAR\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("ROBOT,1,2,N"), readFrames(pair.local().getInputStream(), 1));
+        assertEquals(List.of("CLEAR"), readFrames(pair.remote().getInputStream(), 1));
+    }
+
+    @Test
+    public void loopback_writerBlocksUntilReaderDrains() throws Exception {
+        // pipe much smaller than the payload, so the writer has to wait on the reader
+        LoopbackTransport.Pair pair = LoopbackTransport.createPair(64);
+        int count = 2000;
+        Thread rpi = new Thread(() -> {
+            try {
+                OutputStream out = pair.remote().getOutputStream();
+                for (int i = 0; i < count; i++) {
+                    out.write(("TARGET," + i + ",11\n").getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        rpi.start();
+        List<String> frames = readFrames(pair.local().getInputStream(), count);
+        rpi.join();
+        assertEquals(count, frames.size());
+        assertEquals("TARGET,1999,11", frames.get(count - 1));
+    }
+
+    @Test
+    public void loopback_closeGivesEndOfStream() throws Exception {
+        LoopbackTransport.Pair pair = LoopbackTransport.createPair();
+        pair.remote().getOutputStream().write('x');
+        pair.remote().close();
+
+        InputStream in = pair.local().getInputStream();
+        assertEquals('x', in.read());
+        assertEquals(-1, in.read());
+        try {
+            pair.local().getOutputStream().write('y');
+            fail("write to a closed pipe should throw");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void tcp_roundTrip() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread rpi = new Thread(() -> {
+                try (Socket s = server.accept()) {
+                    // echo one frame back
+                    List<String> in = readFrames(s.getInputStream(), 1);
+                    s.getOutputStream().write(("INFO," + in.get(0) + "\n").getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            rpi.start();
+
+            try (TcpTransport transport = TcpTransport.connect("127.0.0.1", server.getLocalPort())) {
+                transport.getOutputStream().write("PATH\n".getBytes(StandardCharsets.UTF_8));
+                assertEquals(List.of("INFO,PATH"), readFrames(transport.getInputStream(), 1));
+                assertNull(transport.getDevice());
+            }
+            rpi.join();
+        }
+    }
+}
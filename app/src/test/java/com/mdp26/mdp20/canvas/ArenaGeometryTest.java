@@ -0,0 +1,74 @@
+package com.mdp26.mdp20.canvas;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ArenaGeometryTest {
+    private ArenaGeometry geometry;
+
+    @Before
+    public void setUp() {
+        geometry = new ArenaGeometry();
+        geometry.layout(440, 440, 20, 20); // 20px cells, 20px margin
+    }
+
+    // where the recorded pixel lands on screen, as the view replays the layers
+    private float screenX(int recordedX) {
+        return recordedX * geometry.deltaScale() + geometry.deltaX();
+    }
+
+    private float screenY(int recordedY) {
+        return recordedY * geometry.deltaScale() + geometry.deltaY();
+    }
+
+    @Test
+    public void hitTesting_matchesWhatIsDrawn() {
+        assertEquals(0, geometry.columnAt(20.5f));
+        assertEquals(19, geometry.rowAt(20.5f));
+        assertTrue(geometry.zoomBy(2.5f, 100, 300));
+        assertTrue(geometry.zoomBy(1.1f, 250, 50)); // not recorded yet, only the transform changed
+        assertFalse(geometry.isRecordedAtZoom());
+
+        for (int cell = 0; cell < 20; cell++) {
+            float middleX = screenX(geometry.left(cell)) + geometry.zoomCellSize / 2;
+            float middleY = screenY(geometry.top(cell)) + geometry.zoomCellSize / 2;
+            assertEquals(cell, geometry.columnAt(middleX));
+            assertEquals(cell, geometry.rowAt(middleY));
+        }
+        geometry.record();
+        assertTrue(geometry.isRecordedAtZoom());
+        assertEquals(Math.round(20 * 2.5f * 1.1f), geometry.cellSize);
+        assertEquals(geometry.cellSize, geometry.zoomCellSize * (1 / geometry.deltaScale()), 1e-3);
+    }
+
+    @Test
+    public void zoom_keepsFocusAndStaysInBounds() {
+        int column = geometry.columnAt(200), row = geometry.rowAt(200);
+        geometry.zoomBy(3, 200, 200);
+        assertEquals(column, geometry.columnAt(200));
+        assertEquals(row, geometry.rowAt(200));
+
+        geometry.zoomBy(100, 200, 200);
+        assertEquals(440f / ArenaGeometry.MIN_CELLS_ACROSS, geometry.zoomCellSize, 1e-3);
+        geometry.panBy(10_000, 10_000); // no further than the labels
+        assertEquals(geometry.zoomCellSize, geometry.zoomOffsetX, 1e-3);
+        assertEquals(0, geometry.columnAt(geometry.zoomCellSize + 1));
+
+        assertFalse(geometry.zoomBy(0.001f, 0, 0) && geometry.zoomCellSize < 20);
+        assertEquals(20, geometry.zoomCellSize, 1e-3);
+        assertEquals(20, geometry.zoomOffsetX, 1e-3); // centered again
+    }
+
+    @Test
+    public void recording_isRedoneOnlyWhenNeeded() {
+        geometry.setRecordingVisible();
+        geometry.zoomBy(1.5f, 220, 220);
+        assertTrue(geometry.recordingFits()); // within 2x, all cells recorded
+        geometry.zoomBy(1.5f, 220, 220);
+        assertFalse(geometry.recordingFits()); // 2.25x
+        geometry.record();
+        assertTrue(geometry.recordingFits());
+    }
+}
@@ -0,0 +1,163 @@
+package com.mdp26.mdp20.canvas;
+
+import com.mdp26.mdp20.Facing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GridTest {
+    private Grid grid;
+
+    @Before
+    public void setUp() {
+        grid = new Grid();
+        grid.clear(); // ids are handed out from a static counter
+    }
+
+    private GridObstacle add(int x, int y) {
+        GridObstacle obstacle = GridObstacle.of(x, y);
+        assertTrue(grid.addObstacle(obstacle));
+        return obstacle;
+    }
+
+    @Test
+    public void indexes_followAddMoveRemove() {
+        GridObstacle a = add(1, 1);
+        GridObstacle b = add(2, 2);
+        GridObstacle c = add(3, 3);
+        assertFalse(grid.addObstacle(GridObstacle.of(2, 2))); // occupied
+        assertFalse(grid.addObstacle(GridObstacle.of(20, 0))); // outside
+
+        // moving the obstacle directly still goes through the grid
+        assertTrue(a.updatePosition(5, 6));
+        assertFalse(grid.hasObstacle(1, 1));
+        assertSame(a, grid.findObstacleWithPos(5, 6).get());
+        assertFalse(grid.moveObstacle(b, 3, 3)); // taken by c
+        assertSame(b, grid.findObstacleWithPos(2, 2).get());
+
+        // a is in slot 0, c takes its place
+        assertTrue(grid.removeObstacle(5, 6));
+        assertFalse(grid.removeObstacle(5, 6));
+        assertEquals(2, grid.getObstacleList().size());
+        assertSame(c, grid.findObstacleWithId(c.getId()).get());
+        assertSame(c, grid.findObstacleWithPos(3, 3).get());
+        assertEquals(Optional.empty(), grid.findObstacleWithId(a.getId()));
+
+        // no longer on the grid, so moving it does not touch the grid
+        assertTrue(a.updatePosition(3, 3));
+        assertSame(c, grid.findObstacleWithPos(3, 3).get());
+
+        grid.updateObstacleTarget(c.getId(), 11);
+        assertEquals(11, c.getTarget().getTargetId());
+        grid.clear();
+        assertFalse(grid.hasObstacle(2, 2));
+        assertEquals(Optional.empty(), grid.findObstacleWithId(c.getId()));
+    }
+
+    @Test
+    public void approxPos_findsNearestWithinRadius() {
+        GridObstacle near = add(5, 5);
+        add(9, 9);
+        assertSame(near, grid.findObstacleWithApproxPos(6, 6, 2).get());
+        assertSame(near, grid.findObstacleWithApproxPos(5, 5, 1).get());
+        assertEquals(Optional.empty(), grid.findObstacleWithApproxPos(7, 7, 2)); // sqrt(8) away from both
+        assertEquals(Optional.empty(), grid.findObstacleWithApproxPos(0, 0, 0));
+        // a radius larger than the grid falls back to checking each obstacle
+        assertSame(near, grid.findObstacleWithApproxPos(0, 0, 100).get());
+    }
+
+    @Test
+    public void largeArena_isSparse() {
+        Grid big = new Grid(500, 400);
+        assertTrue(big.isInsideGrid(499, 399));
+        assertFalse(big.isInsideGrid(500, 0));
+        GridObstacle corner = GridObstacle.of(499, 399);
+        assertTrue(big.addObstacle(corner));
+        assertTrue(big.addObstacle(GridObstacle.of(10, 10)));
+        assertTrue(big.addObstacle(GridObstacle.of(250, 200)));
+        assertSame(corner, big.findObstacleWithPos(499, 399).get());
+
+        List<GridObstacle> visible = new ArrayList<>();
+        big.collectObstaclesIn(200, 150, 600, 600, visible); // clamped to the arena
+        assertEquals(2, visible.size());
+        visible.clear();
+        big.collectObstaclesIn(0, 0, 20, 20, visible);
+        assertEquals(1, visible.size());
+
+        try {
+            new Grid(20, Grid.MAX_SIZE + 1);
+            fail("arena larger than MAX_SIZE should be refused");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void cellIndex_agreesWithHashMap() {
+        CellIndex index = new CellIndex();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int cell = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                index.remove(cell);
+                expected.remove(cell);
+            } else {
+                index.put(cell, i);
+                expected.put(cell, i);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int cell = 0; cell < 500; cell++) {
+            assertEquals(expected.getOrDefault(cell, CellIndex.NONE).intValue(), index.get(cell));
+        }
+    }
+
+    @Test
+    public void stride_keepsSpacing() {
+        assertEquals(1, ArenaGeometry.stride(40, 6));
+        assertEquals(2, ArenaGeometry.stride(4, 6));
+        assertEquals(50, ArenaGeometry.stride(1, 40));
+    }
+
+    @Test
+    public void listeners_hearTheCellsTouched() {
+        List<String> cells = new ArrayList<>();
+        grid.addListener((minX, minY, maxX, maxY) -> cells.add(minX + "," + minY + ".." + maxX + "," + maxY));
+        GridObstacle a = add(1, 2);
+        grid.rotateObstacle(a);
+        grid.moveObstacle(a, 4, 5);
+        grid.updateObstacleTarget(a.getId(), 11);
+        grid.clearTargets();
+        grid.removeObstacle(4, 5);
+        grid.clear(); // nothing left, nothing to repaint
+        assertEquals(List.of("1,2..1,2", "1,2..1,2", "1,2..1,2", "4,5..4,5", "4,5..4,5", "4,5..4,5",
+                "4,5..4,5"), cells);
+
+        add(0, 0);
+        cells.clear();
+        grid.clear();
+        assertEquals(List.of("0,0..19,19"), cells);
+    }
+
+    @Test
+    public void robot_reportsOldAndNewCell() {
+        Robot robot = Robot.ofDefault();
+        List<String> changes = new ArrayList<>();
+        robot.addListener((oldX, oldY, newX, newY) -> changes.add(oldX + "," + oldY + "->" + newX + "," + newY));
+        robot.moveForward();
+        robot.rotateRight();
+        robot.updatePosition(5, 6).updateFacing(Facing.EAST); // already facing east
+        robot.moveBackward(); // back to 4,6
+        assertEquals(List.of("1,1->1,2", "1,2->1,2", "1,2->5,6", "5,6->4,6"), changes);
+    }
+}
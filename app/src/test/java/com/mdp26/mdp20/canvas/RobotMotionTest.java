@@ -0,0 +1,83 @@
+package com.mdp26.mdp20.canvas;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.bluetooth.RobotMoveCommand;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RobotMotionTest {
+    private static final double EPS = 1e-9;
+    private RobotMotion motion;
+
+    @Before
+    public void setUp() {
+        motion = new RobotMotion();
+        motion.snapTo(5, 5, Facing.NORTH, 0);
+    }
+
+    private static long ms(double millis) {
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void command_glidesToItsEndAndStops() {
+        motion.commandSent(RobotMoveCommand.FORWARD, 0);
+        assertTrue(motion.onPose(5, 6, Facing.NORTH, 0));
+        assertEquals(5, motion.getY(), EPS); // no jump to the new cell
+
+        double oneCell = 1000 / RobotMotion.SPEED;
+        assertTrue(motion.step(ms(oneCell / 2)));
+        assertEquals(5.5, motion.getY(), 0.01);
+        assertEquals(5, motion.getX(), EPS);
+
+        assertFalse(motion.step(ms(oneCell * 3)));
+        assertEquals(6, motion.getY(), EPS); // not past the end
+        assertEquals(0, motion.getHeading(), EPS);
+    }
+
+    @Test
+    public void rotation_takesTheShortWay() {
+        motion.commandSent(RobotMoveCommand.ROTATE_LEFT, 0);
+        motion.onPose(5, 5, Facing.WEST, 0);
+        motion.step(ms(250));
+        assertEquals(-45, motion.getHeading(), 1);
+        assertFalse(motion.step(ms(2000)));
+        assertEquals(-90, motion.getHeading(), EPS);
+    }
+
+    @Test
+    public void reports_areExtrapolatedAndReconciledWithoutSnapping() {
+        double maxStep = 0;
+        double lastY = motion.getY();
+        int y = 5;
+        for (long t = ms(1); t <= ms(1000); t += ms(1)) { // a frame every ms, a report every 100ms
+            if (t % ms(100) == 0) {
+                motion.onPose(5, ++y, Facing.NORTH, t);
+            } else {
+                motion.step(t);
+            }
+            maxStep = Math.max(maxStep, Math.abs(motion.getY() - lastY));
+            lastY = motion.getY();
+        }
+        assertTrue("jumped " + maxStep, maxStep < 0.05);
+        // caught up with the reports, a little ahead of the last one
+        assertTrue(motion.getY() >= 14.9 && motion.getY() < 15.5);
+
+        // the robot stopped: the lead eases back to the last report
+        assertFalse(motion.step(ms(3000)));
+        assertEquals(15, motion.getY(), EPS);
+    }
+
+    @Test
+    public void longJump_snaps() {
+        assertFalse(motion.onPose(15, 15, Facing.SOUTH, ms(10)));
+        assertEquals(15, motion.getX(), EPS);
+        assertEquals(15, motion.getY(), EPS);
+        assertEquals(180, motion.getHeading(), EPS);
+    }
+}
@@ -0,0 +1,51 @@
+package com.mdp26.mdp20.canvas;
+
+import com.mdp26.mdp20.Facing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RobotTrailTest {
+    private long now = 0;
+
+    @Test
+    public void ring_keepsTheNewestPoints() {
+        RobotTrail trail = new RobotTrail(4, () -> now);
+        for (int i = 0; i < 10; i++) {
+            now = i;
+            assertTrue(trail.add(i, 2 * i, Facing.EAST));
+        }
+        assertFalse(trail.add(9, 18, Facing.EAST)); // same pose
+        assertEquals(4, trail.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, trail.getX(i), 0);
+            assertEquals(2 * (6 + i), trail.getY(i), 0);
+            assertEquals(90, trail.getHeading(i), 0);
+            assertEquals(6 + i, trail.getTime(i));
+        }
+    }
+
+    @Test
+    public void follow_recordsMovesAndTurns() {
+        RobotTrail trail = new RobotTrail(16, () -> now);
+        Robot robot = Robot.of(1, 1);
+        trail.follow(robot);
+        int[] changes = {0};
+        trail.addListener(() -> changes[0]++);
+
+        robot.moveForward();
+        robot.rotateRight();
+        robot.updatePose(5, 5, Facing.SOUTH);
+        assertEquals(4, trail.size());
+        assertEquals(1, trail.getY(0), 0);
+        assertEquals(2, trail.getY(1), 0);
+        assertEquals(90, trail.getHeading(2), 0);
+        assertEquals(180, trail.getHeading(3), 0);
+        assertEquals(3, changes[0]);
+
+        trail.clear(); // restarts at the robot
+        assertEquals(1, trail.size());
+        assertEquals(5, trail.getX(0), 0);
+    }
+}
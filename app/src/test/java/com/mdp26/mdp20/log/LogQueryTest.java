@@ -0,0 +1,142 @@
+package com.mdp26.mdp20.log;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.bluetooth.JsonMessage;
+import com.mdp26.mdp20.bluetooth.MessageSink;
+import com.mdp26.mdp20.bluetooth.ObstacleSyncEngine;
+import com.mdp26.mdp20.canvas.Grid;
+import com.mdp26.mdp20.canvas.GridObstacle;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class LogQueryTest {
+    private static final int N = 100_000;
+    private static final Executor INLINE = Runnable::run;
+
+    private long now;
+    private MessageLog log;
+
+    // one entry per 10 ms, every 10th a TARGET about obstacle 0-7, every 100th an ERROR
+    @Before
+    public void fill() {
+        now = 0;
+        log = new MessageLog(N, task -> {}, () -> now);
+        for (int i = 0; i < N; i++) {
+            now = i * 10L;
+            if (i % 100 == 0) {
+                log.append(LogEntry.Direction.RECV, LogKind.ERROR, "ERROR,fault " + i);
+            } else if (i % 10 == 0) {
+                log.append(LogEntry.Direction.RECV, LogKind.TARGET, (i / 10) % 8, "TARGET," + (i / 10) % 8 + ",11");
+            } else {
+                log.append(LogEntry.Direction.RECV, LogKind.POSITION, "ROBOT,1,2,N");
+            }
+        }
+        log.flush();
+    }
+
+    @Test
+    public void query_matchesLinearScan() {
+        LogQuery[] queries = {
+                LogQuery.all().ofKinds(LogKind.TARGET).forObstacle(3),
+                LogQuery.all().ofKinds(LogKind.ERROR).since(now - 60_000),
+                LogQuery.all().ofKinds(LogKind.ERROR, LogKind.TARGET).between(123_456, 234_567),
+                LogQuery.all().since(now - 1_000),
+        };
+        for (LogQuery query : queries) {
+            List<LogEntry> expected = new ArrayList<>();
+            for (int i = 0; i < log.size(); i++) {
+                if (query.matches(log.get(i))) expected.add(log.get(i));
+            }
+            assertEquals(query.toString(), expected, log.query(query));
+        }
+        assertEquals(N / 80, log.query(LogQuery.all().forObstacle(3)).size());
+        assertEquals(60, log.query(LogQuery.all().ofKinds(LogKind.ERROR).since(now - 60_000)).size());
+    }
+
+    @Test
+    public void query_isFastOnALargeLog() {
+        LogQuery query = LogQuery.all().ofKinds(LogKind.ERROR).since(now - 60_000);
+        for (int i = 0; i < 20; i++) log.query(query); // warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) log.query(query);
+        long perQueryMicros = (System.nanoTime() - start) / 100 / 1000;
+        assertTrue("query took " + perQueryMicros + " us", perQueryMicros < 5_000);
+    }
+
+    @Test
+    public void query_forgetsEvictedEntries() {
+        MessageLog small = new MessageLog(10, task -> {}, () -> 0L);
+        for (int i = 0; i < 25; i++) small.append(LogEntry.Direction.RECV, LogKind.TARGET, i % 2, "T" + i);
+        small.flush();
+        List<LogEntry> hits = small.query(LogQuery.all().forObstacle(1));
+        assertEquals(5, hits.size());
+        assertEquals("T15", hits.get(0).text());
+        assertNull(small.getBySeq(14));
+        assertEquals("T24", small.getBySeq(24).text());
+    }
+
+    @Test
+    public void query_findsSentObstacleEdits() {
+        MessageLog small = new MessageLog(100, task -> {}, () -> 0L);
+        MessageSink sink = new MessageSink() {
+            @Override
+            public boolean sendMessage(String s) {
+                return true;
+            }
+
+            @Override
+            public boolean sendMessage(JsonMessage msg) {
+                return true;
+            }
+        };
+        Grid grid = new Grid();
+        ObstacleSyncEngine engine = new ObstacleSyncEngine(grid);
+        GridObstacle moved = GridObstacle.of(1, 1, Facing.NORTH);
+        grid.addObstacle(moved);
+        grid.addObstacle(GridObstacle.of(5, 5, Facing.EAST));
+        engine.sync(sink, (frame, id) -> small.append(LogEntry.Direction.SENT, LogKind.OBSTACLE, id, frame));
+        grid.moveObstacle(moved, 2, 3);
+        engine.sync(sink, (frame, id) -> small.append(LogEntry.Direction.SENT, LogKind.OBSTACLE, id, frame));
+        small.flush();
+
+        List<LogEntry> hits = small.query(LogQuery.all().ofKinds(LogKind.OBSTACLE).forObstacle(moved.getId()));
+        assertEquals(2, hits.size()); // added, then moved
+        for (LogEntry hit : hits) assertEquals(LogEntry.Direction.SENT, hit.direction());
+        assertEquals(4, small.query(LogQuery.all().ofKinds(LogKind.OBSTACLE)).size()); // and CLEAR, the other one
+    }
+
+    @Test
+    public void search_isCaseInsensitiveAndNarrows() {
+        MessageLog small = new MessageLog(100, task -> {}, () -> 0L);
+        small.append(LogEntry.Direction.RECV, LogKind.TARGET, 3, "TARGET,3,11");
+        small.append(LogEntry.Direction.RECV, LogKind.INFO, "info: target lost");
+        small.append(LogEntry.Direction.RECV, LogKind.ERROR, "ERROR,bad");
+        small.flush();
+        LogSearch search = new LogSearch(small, INLINE, INLINE);
+        List<String> results = new ArrayList<>();
+        search.search("tar", (needle, matches) -> results.add(needle + ":" + matches.size()));
+        small.append(LogEntry.Direction.RECV, LogKind.TARGET, 4, "TARGET,4,12");
+        small.flush();
+        search.search("targ", (needle, matches) -> results.add(needle + ":" + matches.size()));
+        search.search("target,", (needle, matches) -> results.add(needle + ":" + matches.size()));
+        assertEquals(List.of("tar:2", "targ:3", "target,:2"), results);
+    }
+
+    @Test
+    public void search_supersededResultsAreNotDelivered() {
+        List<Runnable> queued = new ArrayList<>();
+        LogSearch search = new LogSearch(log, queued::add, INLINE);
+        List<String> results = new ArrayList<>();
+        search.search("ERROR", (needle, matches) -> results.add(needle));
+        search.search("ROBOT", (needle, matches) -> results.add(needle));
+        for (Runnable task : queued) task.run();
+        assertEquals(List.of("ROBOT"), results);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mdp26.mdp20.log;
+
+import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class MessageLogTest {
+
+    // stands in for the Choreographer: the flush only runs when the test says the frame starts
+    private static class ManualFrames implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void frame() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static MessageLog log(int capacity, ManualFrames frames) {
+        return new MessageLog(capacity, frames, () -> 1_000L);
+    }
+
+    @Test
+    public void appends_areFlushedOncePerFrame() {
+        ManualFrames frames = new ManualFrames();
+        MessageLog log = log(10, frames);
+        List<int[]> flushes = new ArrayList<>();
+        log.addListener((evicted, inserted) -> flushes.add(new int[]{evicted, inserted}));
+
+        for (int i = 0; i < 5; i++) {
+            log.append(LogEntry.Direction.RECV, LogKind.POSITION, "ROBOT," + i + ",1,N");
+        }
+        assertEquals(1, frames.tasks.size());
+        assertEquals(0, log.size()); // nothing visible before the frame
+        frames.frame();
+        assertEquals(5, log.size());
+        assertEquals(1, flushes.size());
+        assertArrayEquals(new int[]{0, 5}, flushes.get(0));
+        assertEquals("ROBOT,0,1,N", log.get(0).text());
+        assertEquals(4, log.get(4).seq());
+    }
+
+    @Test
+    public void ring_staysBounded() {
+        ManualFrames frames = new ManualFrames();
+        MessageLog log = log(4, frames);
+        List<int[]> flushes = new ArrayList<>();
+        log.addListener((evicted, inserted) -> flushes.add(new int[]{evicted, inserted}));
+
+        for (int i = 0; i < 3; i++) log.append(LogEntry.Direction.SENT, LogKind.COMMAND, "a" + i);
+        frames.frame();
+        for (int i = 0; i < 3; i++) log.append(LogEntry.Direction.SENT, LogKind.COMMAND, "b" + i);
+        frames.frame();
+        assertArrayEquals(new int[]{2, 3}, flushes.get(1));
+        assertEquals(4, log.size());
+        assertEquals("a2", log.get(0).text());
+        assertEquals("b2", log.get(3).text());
+
+        // more than the capacity in one frame, flushed early each time the staging fills up
+        for (int i = 0; i < 10; i++) log.append(LogEntry.Direction.RECV, LogKind.INFO, "c" + i);
+        frames.frame();
+        assertEquals(5, flushes.size());
+        assertArrayEquals(new int[]{4, 4}, flushes.get(2));
+        assertArrayEquals(new int[]{2, 2}, flushes.get(4));
+        assertEquals("c6", log.get(0).text());
+        assertEquals(12, log.get(0).seq());
+        assertEquals(16, log.getAppendedCount());
+    }
+
+    @Test
+    public void kinds_followMessageTypes() {
+        assertEquals(LogKind.ERROR, LogKind.of(BluetoothMessageParser.FAST.apply("ERROR,bad")));
+        assertEquals(LogKind.INFO, LogKind.of(BluetoothMessageParser.FAST.apply("INFO,ok")));
+        assertEquals(LogKind.TARGET, LogKind.of(BluetoothMessageParser.FAST.apply("TARGET,3,11")));
+        assertEquals(LogKind.POSITION, LogKind.of(BluetoothMessageParser.FAST.apply("ROBOT,1,2,N")));
+    }
+}
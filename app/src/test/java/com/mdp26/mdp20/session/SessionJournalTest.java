@@ -0,0 +1,121 @@
+package com.mdp26.mdp20.session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SessionJournalTest {
+    private File dir;
+    private long now = 1_000_000;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private SessionJournal journal(int segmentBytes, int maxSegments) throws IOException {
+        return new SessionJournal(dir, segmentBytes, maxSegments, () -> now);
+    }
+
+    private static List<JournalReader.Entry> readAll(JournalReader reader) {
+        List<JournalReader.Entry> entries = new ArrayList<>();
+        while (reader.hasNext()) entries.add(reader.next());
+        reader.close();
+        return entries;
+    }
+
+    @Test
+    public void records_areReadBackInOrder() throws IOException {
+        SessionJournal journal = journal(SessionJournal.DEFAULT_SEGMENT_BYTES, 4);
+        journal.record(SessionJournal.Direction.IN, "ROBOT,1,2,N");
+        now += 5_000_000;
+        byte[] out = "xxOBSTACLE,1,10,10,NORTHyy".getBytes(StandardCharsets.UTF_8);
+        journal.record(SessionJournal.Direction.OUT, out, 2, out.length - 4);
+        journal.record(SessionJournal.Direction.IN, "INFO,héllo");
+
+        List<JournalReader.Entry> entries = readAll(JournalReader.open(dir));
+        assertEquals(3, entries.size());
+        assertEquals(SessionJournal.Direction.IN, entries.get(0).direction());
+        assertEquals("ROBOT,1,2,N", entries.get(0).text());
+        assertEquals(SessionJournal.Direction.OUT, entries.get(1).direction());
+        assertEquals("OBSTACLE,1,10,10,NORTH", entries.get(1).text());
+        assertEquals(5_000_000, entries.get(1).timestampNanos() - entries.get(0).timestampNanos());
+        assertEquals(5, entries.get(1).wallTimeMillis() - entries.get(0).wallTimeMillis());
+        assertEquals("INFO,héllo", entries.get(2).text());
+        assertEquals(journal.getSessionId(), entries.get(2).sessionId());
+        journal.close();
+    }
+
+    @Test
+    public void segments_rotate_andOldOnesAreDeleted() throws IOException {
+        // room for 4 records of 20 payload bytes per segment
+        int segmentBytes = SessionJournal.SEGMENT_HEADER_BYTES + 4 * (SessionJournal.RECORD_HEADER_BYTES + 20);
+        SessionJournal journal = journal(segmentBytes, 3);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(journal.record(SessionJournal.Direction.OUT, String.format("frame-%014d", i)));
+        }
+        assertEquals(5, journal.getSegmentsOpened());
+        assertEquals(3, JournalReader.listSegments(dir).size());
+        assertFalse(journal.record(SessionJournal.Direction.OUT, new byte[segmentBytes], 0, segmentBytes));
+        assertEquals(1, journal.getOversizedCount());
+
+        // only the last 3 segments are left, i.e. frames 8 to 19
+        List<JournalReader.Entry> entries = readAll(JournalReader.open(dir));
+        assertEquals(12, entries.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(String.format("frame-%014d", i + 8), entries.get(i).text());
+        }
+        journal.close();
+    }
+
+    @Test
+    public void tornRecord_endsTheSegment() throws IOException {
+        SessionJournal journal = journal(4096, 4);
+        journal.record(SessionJournal.Direction.IN, "STATUS,running");
+        journal.record(SessionJournal.Direction.IN, "STATUS,finished");
+        journal.close();
+        // as if the process died before the second record's size was written
+        File segment = JournalReader.listSegments(dir).get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(SessionJournal.SEGMENT_HEADER_BYTES + SessionJournal.RECORD_HEADER_BYTES + "STATUS,running".length());
+            raf.writeInt(0);
+        }
+        List<JournalReader.Entry> entries = readAll(JournalReader.open(dir));
+        assertEquals(1, entries.size());
+        assertEquals("STATUS,running", entries.get(0).text());
+    }
+
+    @Test
+    public void sessions_areKeptApart() throws Exception {
+        SessionJournal first = journal(4096, 8);
+        first.record(SessionJournal.Direction.IN, "first");
+        first.close();
+        SessionJournal second = journal(4096, 8);
+        second.record(SessionJournal.Direction.IN, "second");
+
+        assertEquals(List.of(first.getSessionId(), second.getSessionId()), JournalReader.listSessions(dir));
+        List<JournalReader.Entry> entries = readAll(JournalReader.open(dir, second.getSessionId()));
+        assertEquals(1, entries.size());
+        assertEquals("second", entries.get(0).text());
+        second.close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.mdp26.mdp20.session;
+
+import com.mdp26.mdp20.bluetooth.BluetoothMessage;
+import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
+import com.mdp26.mdp20.bluetooth.MessageBus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionReplayerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private File dir;
+    private long now = 0;
+    private long sessionId;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("replay").toFile();
+        // a short run: frames 20 ms apart, with traffic the replayer must leave out
+        SessionJournal journal = new SessionJournal(dir, 4096, 4, () -> now);
+        String[][] run = {
+                {"IN", "STATUS,running"}, {"OUT", "OBSTACLE,1,10,10,NORTH"}, {"IN", "ROBOT,1,2,N"},
+                {"IN", "PONG,7"}, {"IN", "TARGET,1,11"}, {"IN", "ROBOT,1,3,N"}, {"IN", "STATUS,finished"}};
+        for (String[] frame : run) {
+            journal.record(SessionJournal.Direction.valueOf(frame[0]), frame[1]);
+            now += 20 * MS;
+        }
+        journal.close();
+        sessionId = journal.getSessionId();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private static List<String> subscribe(MessageBus bus) {
+        List<String> seen = new ArrayList<>();
+        bus.subscribe(MessageBus.POSTING, msg -> seen.add(raw(msg)));
+        return seen;
+    }
+
+    private static String raw(BluetoothMessage msg) {
+        if (msg instanceof BluetoothMessage.RobotStatusMessage m) return m.rawMsg();
+        if (msg instanceof BluetoothMessage.RobotPositionMessage m) return m.rawMsg();
+        if (msg instanceof BluetoothMessage.TargetFoundMessage m) return m.rawMsg();
+        return msg.toString();
+    }
+
+    @Test
+    public void maxSpeed_publishesInboundFramesInOrder() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofFast());
+        List<String> seen = subscribe(bus);
+        List<String> raw = new ArrayList<>();
+        bus.setLegacyAdapter(raw::add);
+        SessionReplayer replayer = new SessionReplayer(dir, sessionId, bus);
+        replayer.setSpeed(SessionReplayer.MAX_SPEED);
+
+        SessionReplayer.Report report = replayer.run();
+        List<String> expected = List.of("STATUS,running", "ROBOT,1,2,N", "TARGET,1,11", "ROBOT,1,3,N", "STATUS,finished");
+        assertEquals(expected, seen);
+        assertEquals(expected, raw);
+        assertEquals(5, report.framesPublished());
+        assertEquals(2, report.framesSkipped()); // the outbound frame and the heartbeat reply
+        assertEquals(5, report.parse().count());
+        assertEquals(7, report.read().count());
+        assertTrue(report.framesPerSecond() > 0);
+        assertTrue(report.elapsedNanos() < 100 * MS); // 120 ms of recorded traffic, no pauses
+
+        // deterministic: a second replay gives the same sequence
+        seen.clear();
+        replayer.run();
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    public void seek_startsAtOffset() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofFast());
+        List<String> seen = subscribe(bus);
+        SessionReplayer replayer = new SessionReplayer(dir, sessionId, bus);
+        replayer.setSpeed(SessionReplayer.MAX_SPEED);
+        replayer.seek(80, TimeUnit.MILLISECONDS);
+        SessionReplayer.Report report = replayer.run();
+        assertEquals(List.of("TARGET,1,11", "ROBOT,1,3,N", "STATUS,finished"), seen);
+        assertEquals(4, report.framesSkipped());
+    }
+
+    @Test
+    public void speed_scalesTheRecordedGaps() {
+        MessageBus bus = new MessageBus(BluetoothMessageParser.ofFast());
+        List<String> seen = subscribe(bus);
+        SessionReplayer replayer = new SessionReplayer(dir, sessionId, bus);
+        replayer.setSpeed(2);
+        SessionReplayer.Report report = replayer.run();
+        assertEquals(5, seen.size());
+        // last inbound frame was recorded 120 ms after the first
+        assertTrue(report.elapsedNanos() >= 60 * MS);
+    }
+}
@@ -0,0 +1,61 @@
+// JMH benchmarks for the app's pure-Java hot paths (protocol, grid model, robot motion).
+// Run with: ./gradlew :benchmark:jmh   (results in benchmark/build/results/jmh/results.json)
+// Narrow down with e.g. -PjmhIncludes=Parser
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+// Classes compiled straight from :app's sources, they must not depend on the Android framework
+// beyond android.util.Log, which is shimmed in src/main/java.
+val appSources = listOf(
+    "com/mdp26/mdp20/Facing.java",
+    "com/mdp26/mdp20/Position.java",
+    "com/mdp26/mdp20/Target.java",
+    "com/mdp26/mdp20/bluetooth/BluetoothMessage.java",
+    "com/mdp26/mdp20/bluetooth/BluetoothMessageParser.java",
+    "com/mdp26/mdp20/bluetooth/FastMessageParser.java",
+    "com/mdp26/mdp20/bluetooth/FrameBuffer.java",
+    "com/mdp26/mdp20/bluetooth/JsonMessage.java",
+    "com/mdp26/mdp20/bluetooth/RobotMoveCommand.java",
+    "com/mdp26/mdp20/canvas/CellIndex.java",
+    "com/mdp26/mdp20/canvas/Grid.java",
+    "com/mdp26/mdp20/canvas/GridChange.java",
+    "com/mdp26/mdp20/canvas/GridObstacle.java",
+    "com/mdp26/mdp20/canvas/Robot.java",
+)
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(appSources)
+            include("android/**")
+        }
+    }
+}
+
+dependencies {
+    // org.json is part of the Android platform, on the JVM it comes from Maven
+    implementation("org.json:json:20231013")
+}
+
+jmh {
+    val includesProp = providers.gradleProperty("jmhIncludes")
+    if (includesProp.isPresent) includes.add(includesProp.get())
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("us")
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    fork.set(1)
+    // allocation rate (gc.alloc.rate.norm = bytes per op) next to throughput
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
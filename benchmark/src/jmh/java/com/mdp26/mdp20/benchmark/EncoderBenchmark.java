@@ -0,0 +1,75 @@
+package com.mdp26.mdp20.benchmark;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.bluetooth.BluetoothMessage;
+import com.mdp26.mdp20.bluetooth.FrameBuffer;
+import com.mdp26.mdp20.bluetooth.JsonMessage;
+import com.mdp26.mdp20.bluetooth.RobotMoveCommand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Outbound message encoding, {@link JsonMessage#getAsJson()} plus the UTF-8 bytes that used to be sent,
+ * against {@link JsonMessage#encodeTo} into a reused {@link FrameBuffer}.
+ */
+@State(Scope.Benchmark)
+public class EncoderBenchmark {
+
+    private final JsonMessage robotState = (JsonMessage) BluetoothMessage.ofRobotStateMessage(7, 12, Facing.EAST);
+    private final JsonMessage obstacleAdd = (JsonMessage) BluetoothMessage.ofObstacleEventMessage(5, 10, 14, Facing.SOUTH, false);
+    private final JsonMessage obstacleRemove = (JsonMessage) BluetoothMessage.ofObstacleEventMessage(5, 10, 14, Facing.SOUTH, true);
+    private final JsonMessage robotMove = (JsonMessage) BluetoothMessage.ofRobotMoveMessage(RobotMoveCommand.TURN_LEFT);
+    private final FrameBuffer buf = new FrameBuffer();
+
+    @Benchmark
+    public String robotState() {
+        return robotState.getAsJson();
+    }
+
+    @Benchmark
+    public String obstacleAdd() {
+        return obstacleAdd.getAsJson();
+    }
+
+    @Benchmark
+    public String obstacleRemove() {
+        return obstacleRemove.getAsJson();
+    }
+
+    @Benchmark
+    public String robotMove() {
+        return robotMove.getAsJson();
+    }
+
+    @Benchmark
+    public byte[] robotStateFrameBytes() {
+        return (robotState.getAsJson() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int robotStateEncodeTo() {
+        robotState.encodeTo(buf.reset());
+        return buf.put('\n').length();
+    }
+
+    @Benchmark
+    public byte[] obstacleAddFrameBytes() {
+        return (obstacleAdd.getAsJson() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int obstacleAddEncodeTo() {
+        obstacleAdd.encodeTo(buf.reset());
+        return buf.put('\n').length();
+    }
+
+    @Benchmark
+    public int robotMoveEncodeTo() {
+        robotMove.encodeTo(buf.reset());
+        return buf.put('\n').length();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mdp26.mdp20.benchmark;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.canvas.Grid;
+import com.mdp26.mdp20.canvas.GridObstacle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * {@link Grid} lookups as done per touch event and per inbound TARGET message, at varying obstacle counts.
+ * <p> Queries cycle through a fixed mix of hits and misses so every op does comparable work.
+ */
+@State(Scope.Benchmark)
+public class GridBenchmark {
+    private static final int QUERIES = 256; // power of two
+    private static final int SELECTION_RADIUS = 2;
+    private static final int GRID_SIZE = Grid.DEFAULT_SIZE;
+
+    @Param({"8", "40", "200"})
+    public int obstacleCount;
+
+    private Grid grid;
+    private final int[] qx = new int[QUERIES];
+    private final int[] qy = new int[QUERIES];
+    private final int[] qid = new int[QUERIES];
+    private int cursor = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(20);
+        grid = new Grid();
+        grid.clear();
+        while (grid.getObstacleList().size() < obstacleCount) {
+            int x = random.nextInt(GRID_SIZE);
+            int y = random.nextInt(GRID_SIZE);
+            if (!grid.hasObstacle(x, y)) {
+                grid.addObstacle(GridObstacle.of(x, y, Facing.values()[random.nextInt(4)]));
+            }
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            qx[i] = random.nextInt(GRID_SIZE);
+            qy[i] = random.nextInt(GRID_SIZE);
+            qid[i] = 1 + random.nextInt(obstacleCount * 2); // about half miss
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (QUERIES - 1);
+    }
+
+    @Benchmark
+    public Optional<GridObstacle> findObstacleWithPos() {
+        int i = next();
+        return grid.findObstacleWithPos(qx[i], qy[i]);
+    }
+
+    @Benchmark
+    public Optional<GridObstacle> findObstacleWithApproxPos() {
+        int i = next();
+        return grid.findObstacleWithApproxPos(qx[i], qy[i], SELECTION_RADIUS);
+    }
+
+    @Benchmark
+    public Optional<GridObstacle> findObstacleWithId() {
+        return grid.findObstacleWithId(qid[next()]);
+    }
+}
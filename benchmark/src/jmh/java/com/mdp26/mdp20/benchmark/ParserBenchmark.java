@@ -0,0 +1,46 @@
+package com.mdp26.mdp20.benchmark;
+
+import com.mdp26.mdp20.bluetooth.BluetoothMessage;
+import com.mdp26.mdp20.bluetooth.BluetoothMessageParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Inbound frame parsing, one frame per documented message type.
+ */
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"DEFAULT", "FAST"})
+    public String parser;
+
+    @Param({
+            "ROBOT,12,7,E",           // the high-rate position stream
+            "ROBOT,12,7,3",           // numeric direction
+            "LOCATION;4;15;WEST",
+            "TARGET,3,11",
+            "IMAGE-REC,3,11,NORTH",
+            "STATUS,running",
+            "INFO,path computed",
+            "ERROR,camera offline",
+            "MODE,manual",
+            "hello rpi"               // plain string, no separator
+    })
+    public String frame;
+
+    private BluetoothMessageParser impl;
+
+    @Setup
+    public void setup() {
+        impl = parser.equals("FAST") ? BluetoothMessageParser.ofFast() : BluetoothMessageParser.ofDefault();
+    }
+
+    @Benchmark
+    public BluetoothMessage parse() {
+        return impl.apply(frame);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mdp26.mdp20.benchmark;
+
+import com.mdp26.mdp20.Facing;
+import com.mdp26.mdp20.canvas.Robot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link Robot} motion. The robot is kept in the middle of the arena so moves are not rejected by the bounds check.
+ */
+@State(Scope.Thread)
+public class RobotBenchmark {
+    private Robot robot;
+
+    @Setup
+    public void setup() {
+        robot = Robot.of(10, 10, Facing.NORTH);
+    }
+
+    @Benchmark
+    public Robot forwardBackward() {
+        robot.moveForward();
+        robot.moveBackward();
+        return robot;
+    }
+
+    @Benchmark
+    public Robot turnRightLeft() {
+        // turns do not cancel out, start each op from the centre
+        robot.updatePosition(10, 10).updateFacing(Facing.NORTH);
+        robot.turnRight();
+        robot.turnLeft();
+        return robot;
+    }
+
+    @Benchmark
+    public Robot rotate() {
+        robot.rotateRight();
+        robot.rotateLeft();
+        return robot;
+    }
+
+    @Benchmark
+    public Robot updatePositionAndFacing() {
+        return robot.updatePosition(10, 10).updateFacing(Facing.EAST);
+    }
+}
@@ -0,0 +1,15 @@
+package android.util;
+
+/**
+ * JVM stand-in for the Android logger so app classes can be benchmarked off-device. Discards everything,
+ * like the framework stubs do in local unit tests.
+ */
+public final class Log {
+    private Log() {}
+
+    public static int d(String tag, String msg) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg, Throwable tr) { return 0; }
+}
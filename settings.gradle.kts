@@ -15,4 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "MDP Grp20 Controller"
 include(":app")
+include(":benchmark")
  
\ No newline at end of file